@@ -0,0 +1,282 @@
+package me.desht.dhutils.nms.api;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Version-independent bulk relighting of a set of 16x16x16 chunk sections.  Rather than
+ * relighting each changed block separately, all light in the sections is removed and then
+ * recomputed with a single queue-based flood fill for block light and another for sky
+ * light.  Light which spilled out of the sections is also removed and recomputed, and light
+ * from the surrounding blocks is propagated back in.
+ * <p>
+ * Subclasses provide the low-level access to the world's chunk data.  All co-ordinates passed
+ * to the accessor methods are world block co-ordinates.  An engine is not thread-safe and
+ * should only be used from the main server thread.
+ */
+public abstract class LightingEngine {
+	private static final int MAX_LIGHT = 15;
+	private static final int[] DX = { 1, -1, 0, 0, 0, 0 };
+	private static final int[] DY = { 0, 0, 1, -1, 0, 0 };
+	private static final int[] DZ = { 0, 0, 0, 0, 1, -1 };
+	private static final int DOWN = 3;
+
+	private final LongQueue removeQueue = new LongQueue();
+	private final LongQueue addQueue = new LongQueue();
+
+	/**
+	 * Check if the chunk containing the given block is loaded.  The flood fill never
+	 * spreads into unloaded chunks.
+	 *
+	 * @param x block X co-ordinate
+	 * @param z block Z co-ordinate
+	 * @return true if the chunk is loaded
+	 */
+	protected abstract boolean isLoaded(int x, int z);
+
+	/**
+	 * Check if the world has sky light.
+	 *
+	 * @return true if the world has sky light
+	 */
+	protected abstract boolean hasSky();
+
+	protected abstract int getOpacity(int x, int y, int z);
+
+	protected abstract int getEmission(int x, int y, int z);
+
+	protected abstract int getLight(boolean sky, int x, int y, int z);
+
+	protected abstract void setLight(boolean sky, int x, int y, int z, int level);
+
+	/**
+	 * Called once for each chunk containing at least one section to be relit, before any
+	 * light is recalculated.  Implementations should bring the chunk's height map up to date
+	 * here, since section-level writes don't maintain it.
+	 *
+	 * @param cx chunk X co-ordinate
+	 * @param cz chunk Z co-ordinate
+	 */
+	protected abstract void prepareChunk(int cx, int cz);
+
+	/**
+	 * Relight the given chunk sections.  The three arrays must be the same length; element
+	 * <em>n</em> of each gives the chunk X co-ordinate, section index and chunk Z co-ordinate
+	 * of one section.
+	 *
+	 * @param cx chunk X co-ordinates
+	 * @param sy section indices (block Y co-ordinate &gt;&gt; 4)
+	 * @param cz chunk Z co-ordinates
+	 */
+	public void relight(int[] cx, int[] sy, int[] cz) {
+		Set<Long> sections = new HashSet<Long>(cx.length * 2);
+		Set<Long> chunks = new HashSet<Long>();
+		for (int n = 0; n < cx.length; n++) {
+			sections.add(sectionKey(cx[n], sy[n], cz[n]));
+			if (chunks.add(sectionKey(cx[n], 0, cz[n]))) {
+				prepareChunk(cx[n], cz[n]);
+			}
+		}
+
+		relight(false, cx, sy, cz, sections);
+		if (hasSky()) {
+			relight(true, cx, sy, cz, sections);
+		}
+	}
+
+	private void relight(boolean sky, int[] cx, int[] sy, int[] cz, Set<Long> sections) {
+		removeQueue.clear();
+		addQueue.clear();
+
+		// 1. remove all existing light from the sections, and seed the new light sources
+		for (int n = 0; n < cx.length; n++) {
+			int baseX = cx[n] << 4, baseY = sy[n] << 4, baseZ = cz[n] << 4;
+			for (int y = baseY; y < baseY + 16; y++) {
+				for (int z = baseZ; z < baseZ + 16; z++) {
+					for (int x = baseX; x < baseX + 16; x++) {
+						int old = getLight(sky, x, y, z);
+						if (old > 0) {
+							setLight(sky, x, y, z, 0);
+							removeQueue.add(pack(x, y, z, old));
+						}
+						int source = sky ? skySource(x, y, z) : getEmission(x, y, z);
+						if (source > 0) {
+							setLight(sky, x, y, z, source);
+							addQueue.add(pack(x, y, z, source));
+						}
+					}
+				}
+			}
+		}
+
+		// 2. any light in neighbouring blocks outside the sections may need to flow back in
+		for (int n = 0; n < cx.length; n++) {
+			seedBoundary(sky, cx[n], sy[n], cz[n], sections);
+		}
+
+		// 3. remove light which spilled out of the sections from the old light sources
+		while (!removeQueue.isEmpty()) {
+			long v = removeQueue.poll();
+			int x = unpackX(v), y = unpackY(v), z = unpackZ(v), level = unpackLevel(v);
+			for (int dir = 0; dir < 6; dir++) {
+				int nx = x + DX[dir], ny = y + DY[dir], nz = z + DZ[dir];
+				if (ny < 0 || ny > 255 || !isLoaded(nx, nz)) {
+					continue;
+				}
+				int nl = getLight(sky, nx, ny, nz);
+				if (nl == 0) {
+					continue;
+				}
+				if (nl < level || sky && dir == DOWN && level == MAX_LIGHT && nl == MAX_LIGHT) {
+					// this neighbour was (probably) lit from here; darken it and carry on
+					setLight(sky, nx, ny, nz, 0);
+					removeQueue.add(pack(nx, ny, nz, nl));
+					int source = sky ? skySource(nx, ny, nz) : getEmission(nx, ny, nz);
+					if (source > 0) {
+						setLight(sky, nx, ny, nz, source);
+						addQueue.add(pack(nx, ny, nz, source));
+					}
+				} else {
+					// lit from somewhere else; it needs to spread back into the darkened area
+					addQueue.add(pack(nx, ny, nz, nl));
+				}
+			}
+		}
+
+		// 4. flood fill the new light outwards
+		while (!addQueue.isEmpty()) {
+			long v = addQueue.poll();
+			int x = unpackX(v), y = unpackY(v), z = unpackZ(v), level = unpackLevel(v);
+			if (getLight(sky, x, y, z) != level) {
+				// superseded by a brighter (or darker) update since being queued
+				continue;
+			}
+			for (int dir = 0; dir < 6; dir++) {
+				int nx = x + DX[dir], ny = y + DY[dir], nz = z + DZ[dir];
+				if (ny < 0 || ny > 255 || !isLoaded(nx, nz)) {
+					continue;
+				}
+				int opacity = getOpacity(nx, ny, nz);
+				int nl;
+				if (sky && dir == DOWN && level == MAX_LIGHT && opacity == 0) {
+					nl = MAX_LIGHT;
+				} else {
+					nl = level - Math.max(1, opacity);
+				}
+				if (nl > getLight(sky, nx, ny, nz)) {
+					setLight(sky, nx, ny, nz, nl);
+					if (nl > 1) {
+						addQueue.add(pack(nx, ny, nz, nl));
+					}
+				}
+			}
+		}
+	}
+
+	private int skySource(int x, int y, int z) {
+		if (y < 255) {
+			// direct sky light enters from above, which is handled via the boundary
+			// seeding (or by propagation from another section being relit)
+			return 0;
+		}
+		return Math.max(0, MAX_LIGHT - getOpacity(x, y, z));
+	}
+
+	private void seedBoundary(boolean sky, int cx, int sy, int cz, Set<Long> sections) {
+		int baseX = cx << 4, baseY = sy << 4, baseZ = cz << 4;
+		if (!sections.contains(sectionKey(cx - 1, sy, cz))) {
+			seedFace(sky, baseX - 1, baseX - 1, baseY, baseY + 15, baseZ, baseZ + 15);
+		}
+		if (!sections.contains(sectionKey(cx + 1, sy, cz))) {
+			seedFace(sky, baseX + 16, baseX + 16, baseY, baseY + 15, baseZ, baseZ + 15);
+		}
+		if (!sections.contains(sectionKey(cx, sy, cz - 1))) {
+			seedFace(sky, baseX, baseX + 15, baseY, baseY + 15, baseZ - 1, baseZ - 1);
+		}
+		if (!sections.contains(sectionKey(cx, sy, cz + 1))) {
+			seedFace(sky, baseX, baseX + 15, baseY, baseY + 15, baseZ + 16, baseZ + 16);
+		}
+		if (sy > 0 && !sections.contains(sectionKey(cx, sy - 1, cz))) {
+			seedFace(sky, baseX, baseX + 15, baseY - 1, baseY - 1, baseZ, baseZ + 15);
+		}
+		if (sy < 15 && !sections.contains(sectionKey(cx, sy + 1, cz))) {
+			seedFace(sky, baseX, baseX + 15, baseY + 16, baseY + 16, baseZ, baseZ + 15);
+		}
+	}
+
+	private void seedFace(boolean sky, int x1, int x2, int y1, int y2, int z1, int z2) {
+		if (!isLoaded(x1, z1)) {
+			return;
+		}
+		for (int y = y1; y <= y2; y++) {
+			for (int z = z1; z <= z2; z++) {
+				for (int x = x1; x <= x2; x++) {
+					int level = getLight(sky, x, y, z);
+					if (level > 1) {
+						addQueue.add(pack(x, y, z, level));
+					}
+				}
+			}
+		}
+	}
+
+	private static long sectionKey(int cx, int sy, int cz) {
+		return ((long) cx & 0x3ffffffL) << 38 | ((long) cz & 0x3ffffffL) << 12 | (sy & 0xfffL);
+	}
+
+	// queue entries: X (26 bits), Z (26 bits), Y (8 bits), light level (4 bits)
+	private static long pack(int x, int y, int z, int level) {
+		return ((long) x & 0x3ffffffL) << 38 | ((long) z & 0x3ffffffL) << 12 | (y & 0xffL) << 4 | (level & 0xfL);
+	}
+
+	private static int unpackX(long v) {
+		return (int) (v >> 38);
+	}
+
+	private static int unpackZ(long v) {
+		return (int) (v << 26 >> 38);
+	}
+
+	private static int unpackY(long v) {
+		return (int) (v >> 4) & 0xff;
+	}
+
+	private static int unpackLevel(long v) {
+		return (int) v & 0xf;
+	}
+
+	/**
+	 * Minimal FIFO of longs.  Storage is retained between relights to avoid reallocation.
+	 */
+	private static class LongQueue {
+		private long[] values = new long[4096];
+		private int head = 0, tail = 0;
+
+		void add(long v) {
+			if (tail == values.length) {
+				if (head > values.length / 2) {
+					System.arraycopy(values, head, values, 0, tail - head);
+				} else {
+					long[] newValues = new long[values.length * 2];
+					System.arraycopy(values, head, newValues, 0, tail - head);
+					values = newValues;
+				}
+				tail -= head;
+				head = 0;
+			}
+			values[tail++] = v;
+		}
+
+		long poll() {
+			return values[head++];
+		}
+
+		boolean isEmpty() {
+			return head == tail;
+		}
+
+		void clear() {
+			head = tail = 0;
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package me.desht.dhutils.nms.api;
+
+/**
+ * An immutable snapshot of the light blocking and light emission levels of every block ID.
+ * Looking a block up here is a plain array read, so it's much cheaper than calling
+ * {@link NMSAbstraction#getBlockLightBlocking(int)} or {@link NMSAbstraction#getBlockLightEmission(int)}
+ * in a tight loop.
+ */
+public final class LightingProperties {
+	private static final int MAX_BLOCK_ID = 4096;
+
+	private final byte[] opacity;
+	private final byte[] emission;
+
+	private LightingProperties(byte[] opacity, byte[] emission) {
+		this.opacity = opacity;
+		this.emission = emission;
+	}
+
+	/**
+	 * Build a snapshot of the lighting properties reported by the given NMS abstraction.
+	 *
+	 * @param nms the NMS abstraction
+	 * @return a new LightingProperties object
+	 */
+	public static LightingProperties snapshot(NMSAbstraction nms) {
+		byte[] opacity = new byte[MAX_BLOCK_ID];
+		byte[] emission = new byte[MAX_BLOCK_ID];
+		for (int id = 0; id < MAX_BLOCK_ID; id++) {
+			try {
+				opacity[id] = (byte) nms.getBlockLightBlocking(id);
+				emission[id] = (byte) nms.getBlockLightEmission(id);
+			} catch (RuntimeException e) {
+				// no such block in this server version
+			}
+		}
+		return new LightingProperties(opacity, emission);
+	}
+
+	/**
+	 * Get the light blocking level of the given block ID.
+	 *
+	 * @param blockId the block ID
+	 * @return the amount of light lost when passing through the block
+	 */
+	public int getOpacity(int blockId) {
+		return opacity[blockId & 0xfff];
+	}
+
+	/**
+	 * Get the light emission level of the given block ID.
+	 *
+	 * @param blockId the block ID
+	 * @return the block's light emission level
+	 */
+	public int getEmission(int blockId) {
+		return emission[blockId & 0xfff];
+	}
+
+	/**
+	 * Check if changing a block from one ID to another could affect lighting.
+	 *
+	 * @param oldBlockId the old block ID
+	 * @param newBlockId the new block ID
+	 * @return true if the blocks differ in light blocking or light emission
+	 */
+	public boolean affectsLighting(int oldBlockId, int newBlockId) {
+		return opacity[oldBlockId & 0xfff] != opacity[newBlockId & 0xfff]
+				|| emission[oldBlockId & 0xfff] != emission[newBlockId & 0xfff];
+	}
+}
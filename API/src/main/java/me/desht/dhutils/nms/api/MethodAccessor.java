@@ -0,0 +1,115 @@
+package me.desht.dhutils.nms.api;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * A reflectively-resolved method, looked up and made accessible once so that later calls
+ * don't repeat the lookup or the access checks, and whose failures are reported
+ * consistently: exceptions thrown by the method itself are unwrapped and rethrown.
+ * Accessors are intended to be held in static final fields.
+ * <p>
+ * Calls still go through {@link Method#invoke(Object, Object...)}, so the arguments are
+ * boxed into a new array on every call, including through the <code>int</code> overloads;
+ * an accessor costs the same per call as a cached Method.  Where a hot path can make a
+ * direct call instead, it should.
+ * <p>
+ * If the method can't be found, the accessor is still created, but {@link #isAvailable()}
+ * returns false and any attempt to invoke it throws an IllegalStateException.
+ */
+public class MethodAccessor {
+	private final Method method;
+	private final String description;
+
+	private MethodAccessor(Method method, String description) {
+		this.method = method;
+		this.description = description;
+		if (method != null) {
+			method.setAccessible(true);
+		}
+	}
+
+	/**
+	 * Resolve a method with the given name and exact parameter types, which may be
+	 * non-public.  The given class and its superclasses are searched.
+	 *
+	 * @param cls the class to search
+	 * @param name the method name
+	 * @param params the method's parameter types
+	 * @return a new accessor
+	 */
+	public static MethodAccessor declared(Class<?> cls, String name, Class<?>... params) {
+		for (Class<?> c = cls; c != null; c = c.getSuperclass()) {
+			try {
+				return new MethodAccessor(c.getDeclaredMethod(name, params), cls.getName() + "." + name);
+			} catch (NoSuchMethodException e) {
+				// try the superclass
+			}
+		}
+		return new MethodAccessor(null, cls.getName() + "." + name);
+	}
+
+	/**
+	 * Resolve the first public method with the given name, regardless of its parameter types.
+	 *
+	 * @param cls the class to search
+	 * @param name the method name
+	 * @return a new accessor
+	 */
+	public static MethodAccessor named(Class<?> cls, String name) {
+		for (Method m : cls.getMethods()) {
+			if (m.getName().equals(name)) {
+				return new MethodAccessor(m, cls.getName() + "." + name);
+			}
+		}
+		return new MethodAccessor(null, cls.getName() + "." + name);
+	}
+
+	/**
+	 * Check if the method was found.
+	 *
+	 * @return true if the method is available to invoke
+	 */
+	public boolean isAvailable() {
+		return method != null;
+	}
+
+	public Object invoke(Object target) {
+		return doInvoke(target, null);
+	}
+
+	public Object invoke(Object target, Object arg) {
+		return doInvoke(target, new Object[] { arg });
+	}
+
+	public Object invoke(Object target, Object arg1, Object arg2) {
+		return doInvoke(target, new Object[] { arg1, arg2 });
+	}
+
+	public Object invoke(Object target, int arg1, int arg2) {
+		return doInvoke(target, new Object[] { arg1, arg2 });
+	}
+
+	public Object invoke(Object target, int arg1, int arg2, int arg3) {
+		return doInvoke(target, new Object[] { arg1, arg2, arg3 });
+	}
+
+	private Object doInvoke(Object target, Object[] args) {
+		if (method == null) {
+			throw new IllegalStateException("method not found: " + description);
+		}
+		try {
+			return method.invoke(target, args);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("can't access " + description, e);
+		} catch (InvocationTargetException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(description + " failed", cause);
+		}
+	}
+}
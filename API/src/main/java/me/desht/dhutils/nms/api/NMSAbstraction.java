@@ -23,6 +23,92 @@ public interface NMSAbstraction {
 	 */
 	public boolean setBlockFast(World world, int x, int y, int z, int blockId, byte data);
 
+	/**
+	 * Update many blocks in a single 16x16x16 chunk section in one pass.  The chunk is looked up
+	 * only once, and blocks which don't have a tile entity (either before or after the change) are
+	 * written directly into the section without running the block's placement or removal logic.
+	 * As with {@link #setBlockFast(World, int, int, int, int, byte)}, clients are not notified and
+	 * no relighting is done.
+	 * <p>
+	 * All arrays are 4096 elements long and are indexed as <code>(y &lt;&lt; 8) | (z &lt;&lt; 4) | x</code>,
+	 * where x, y and z are the block's co-ordinates within the section (0-15).
+	 *
+	 * @param world the world
+	 * @param cx X co-ordinate of the chunk
+	 * @param sy index of the section within the chunk (i.e. block Y co-ordinate &gt;&gt; 4)
+	 * @param cz Z co-ordinate of the chunk
+	 * @param blockIds the new block IDs; a negative entry leaves that block unchanged
+	 * @param data the new block data
+	 * @param oldBlockIds if not null, receives the previous block ID of each block which was
+	 *                    changed, or -1 for blocks which were not changed
+	 * @return the number of blocks which were actually changed
+	 */
+	public int setSectionFast(World world, int cx, int sy, int cz, short[] blockIds, byte[] data, short[] oldBlockIds);
+
+	/**
+	 * Set every block in a 16x16x16 chunk section to the same block ID and data.  This is
+	 * equivalent to calling {@link #setSectionFast(World, int, int, int, short[], byte[], short[])}
+	 * with uniform arrays, but the new block only needs to be resolved once, and no arrays
+	 * need to be built.  Clients are not notified and no relighting is done.
+	 *
+	 * @param world the world
+	 * @param cx X co-ordinate of the chunk
+	 * @param sy index of the section within the chunk (i.e. block Y co-ordinate &gt;&gt; 4)
+	 * @param cz Z co-ordinate of the chunk
+	 * @param blockId the new block ID
+	 * @param data the new block data
+	 * @param oldBlockIds if not null, a 4096-element array which receives the previous block ID
+	 *                    of each block which was changed, or -1 for blocks which were not changed
+	 * @return the number of blocks which were actually changed
+	 */
+	public int fillSection(World world, int cx, int sy, int cz, int blockId, byte data, short[] oldBlockIds);
+
+	/**
+	 * Read the contents of a 16x16x16 chunk section into the given arrays, which use the same
+	 * layout as {@link #setSectionFast(World, int, int, int, short[], byte[], short[])}.  Any of
+	 * the arrays may be null if that information isn't needed.
+	 *
+	 * @param world the world
+	 * @param cx X co-ordinate of the chunk
+	 * @param sy index of the section within the chunk (i.e. block Y co-ordinate &gt;&gt; 4)
+	 * @param cz Z co-ordinate of the chunk
+	 * @param blockIds receives the block IDs
+	 * @param data receives the block data
+	 * @param blockLight receives the block light levels
+	 * @param skyLight receives the sky light levels
+	 */
+	public void readSection(World world, int cx, int sy, int cz, short[] blockIds, byte[] data, byte[] blockLight, byte[] skyLight);
+
+	/**
+	 * Get the NBT data of the tile entity at the given position, e.g. a sign's text or a chest's
+	 * contents.  The data is returned as a gzip-compressed stream holding a single named compound
+	 * tag, in the same form as the vanilla server's NBT files.
+	 *
+	 * @param world the world
+	 * @param x X co-ordinate of the block
+	 * @param y Y co-ordinate of the block
+	 * @param z Z co-ordinate of the block
+	 * @return the tile entity's data, or null if there is no tile entity at this position, or
+	 *         tile entity data isn't supported
+	 */
+	public byte[] getTileEntityData(World world, int x, int y, int z);
+
+	/**
+	 * Load NBT data, in the form returned by {@link #getTileEntityData(World, int, int, int)},
+	 * into the tile entity at the given position, and notify clients of the change.  The
+	 * position tags in the data are replaced with the given position.  The block must already
+	 * be of a type which has a suitable tile entity.
+	 *
+	 * @param world the world
+	 * @param x X co-ordinate of the block
+	 * @param y Y co-ordinate of the block
+	 * @param z Z co-ordinate of the block
+	 * @param nbt the tile entity's data
+	 * @return true if the data was loaded, false if there is no tile entity at this position, or
+	 *         tile entity data isn't supported
+	 */
+	public boolean setTileEntityData(World world, int x, int y, int z, byte[] nbt);
+
 	/**
 	 * Force an override of the light level at the given block position
 	 *
@@ -44,6 +130,19 @@ public interface NMSAbstraction {
 	 */
 	public void recalculateBlockLighting(World world, int x, int y, int z);
 
+	/**
+	 * Recalculate block and sky light for a set of 16x16x16 chunk sections in one pass.  This is
+	 * much cheaper than calling {@link #recalculateBlockLighting(World, int, int, int)} for every
+	 * changed block when a large number of blocks have changed.  The three arrays must be the
+	 * same length; element <em>n</em> of each identifies one section.
+	 *
+	 * @param world the world
+	 * @param cx X co-ordinates of the sections' chunks
+	 * @param sy indices of the sections within their chunks (block Y co-ordinate &gt;&gt; 4)
+	 * @param cz Z co-ordinates of the sections' chunks
+	 */
+	public void relightSections(World world, int[] cx, int[] sy, int[] cz);
+
 	/**
 	 * Get the light emission level for the given block.
 	 *
@@ -0,0 +1,178 @@
+package me.desht.dhutils.nms.api;
+
+import org.bukkit.Material;
+import org.bukkit.block.BlockFace;
+
+import java.util.Arrays;
+
+/**
+ * A bitset of the opaque blocks in a 16x16x16 chunk section and the blocks bordering it, from
+ * which the positions which are completely enclosed by opaque blocks (and so can't take part
+ * in any lighting change) are worked out a 64-bit word at a time.
+ * <p>
+ * Bits are stored four Z rows to a word: the bit for section position (x, y, z) is bit
+ * <code>((z &amp; 3) &lt;&lt; 4) | x</code> of word <code>(y &lt;&lt; 2) | (z &gt;&gt; 2)</code>.
+ * With this layout, the neighbours of every position in a word can be found with a shift of
+ * that word (X and Z) or with the word four places along (Y).
+ * <p>
+ * "Opaque" here means not transparent according to {@link Material#isTransparent()}, the same
+ * test used by the per-block neighbour checks this replaces.
+ */
+public class OcclusionMask {
+	private static final int WORDS = 64;
+	private static final long X0 = 0x0001000100010001L;
+	private static final long X15 = 0x8000800080008000L;
+	private static final long LANE = 0xffffL;
+
+	private static final boolean[] opaqueIds = new boolean[4096];
+	static {
+		for (int id = 0; id < opaqueIds.length; id++) {
+			Material mat = Material.getMaterial(id);
+			opaqueIds[id] = mat != null && !mat.isTransparent();
+		}
+	}
+
+	private final long[] opaque = new long[WORDS];
+	// bits of the blocks just outside each face of the section, in the position of the
+	// section block they border
+	private final long[] east = new long[WORDS], west = new long[WORDS];
+	private final long[] south = new long[WORDS], north = new long[WORDS];
+	private final long[] up = new long[WORDS], down = new long[WORDS];
+	private final long[] enclosed = new long[WORDS];
+	private boolean computed = false;
+
+	/**
+	 * Check if the given block ID is opaque.
+	 *
+	 * @param blockId the block ID
+	 * @return true if the block is opaque
+	 */
+	public static boolean isOpaque(int blockId) {
+		return opaqueIds[blockId & 0xfff];
+	}
+
+	/**
+	 * Clear all bits, including the bordering faces.
+	 */
+	public void clear() {
+		Arrays.fill(opaque, 0L);
+		Arrays.fill(east, 0L);
+		Arrays.fill(west, 0L);
+		Arrays.fill(south, 0L);
+		Arrays.fill(north, 0L);
+		Arrays.fill(up, 0L);
+		Arrays.fill(down, 0L);
+		computed = false;
+	}
+
+	/**
+	 * Load the section itself from an array of block IDs, laid out as for
+	 * {@link NMSAbstraction#readSection(org.bukkit.World, int, int, int, short[], byte[], byte[], byte[])}.
+	 *
+	 * @param blockIds the section's block IDs
+	 */
+	public void setSection(short[] blockIds) {
+		for (int w = 0; w < WORDS; w++) {
+			long bits = 0L;
+			int base = w << 6;
+			for (int b = 0; b < 64; b++) {
+				if (opaqueIds[blockIds[base + b] & 0xfff]) {
+					bits |= 1L << b;
+				}
+			}
+			opaque[w] = bits;
+		}
+		computed = false;
+	}
+
+	/**
+	 * Load one bordering face from the block IDs of the neighbouring section in the given
+	 * direction.  Only the layer of the neighbouring section which touches this section is used.
+	 * Faces which are never loaded are treated as transparent.
+	 *
+	 * @param face the direction of the neighbouring section; one of UP, DOWN, NORTH, SOUTH,
+	 *             EAST or WEST
+	 * @param blockIds the neighbouring section's block IDs
+	 */
+	public void setFace(BlockFace face, short[] blockIds) {
+		long[] dest = getFace(face);
+		Arrays.fill(dest, 0L);
+		for (int y = 0; y < 16; y++) {
+			for (int z = 0; z < 16; z++) {
+				for (int x = 0; x < 16; x++) {
+					// the neighbour's position is this one, wrapped around into the next section
+					int nx = (x + face.getModX()) & 0x0f, ny = (y + face.getModY()) & 0x0f, nz = (z + face.getModZ()) & 0x0f;
+					boolean onFace = (face.getModX() == 0 || nx == (face.getModX() > 0 ? 0 : 15))
+							&& (face.getModY() == 0 || ny == (face.getModY() > 0 ? 0 : 15))
+							&& (face.getModZ() == 0 || nz == (face.getModZ() > 0 ? 0 : 15));
+					if (onFace && opaqueIds[blockIds[ny << 8 | nz << 4 | nx] & 0xfff]) {
+						dest[y << 2 | z >> 2] |= 1L << ((z & 3) << 4 | x);
+					}
+				}
+			}
+		}
+		computed = false;
+	}
+
+	/**
+	 * Check if the block at the given position is surrounded on all six sides by opaque blocks.
+	 *
+	 * @param x X co-ordinate within the section (0-15)
+	 * @param y Y co-ordinate within the section (0-15)
+	 * @param z Z co-ordinate within the section (0-15)
+	 * @return true if the block is enclosed
+	 */
+	public boolean isEnclosed(int x, int y, int z) {
+		if (!computed) {
+			compute();
+		}
+		return (enclosed[y << 2 | z >> 2] >>> ((z & 3) << 4 | x) & 1L) != 0;
+	}
+
+	/**
+	 * Count the enclosed positions in the section.
+	 *
+	 * @return the number of enclosed positions
+	 */
+	public int countEnclosed() {
+		if (!computed) {
+			compute();
+		}
+		int n = 0;
+		for (long bits : enclosed) {
+			n += Long.bitCount(bits);
+		}
+		return n;
+	}
+
+	private void compute() {
+		for (int w = 0; w < WORDS; w++) {
+			long bits = opaque[w];
+			int y = w >> 2, zGroup = w & 3;
+
+			long e = (bits >>> 1) & ~X15 | east[w];
+			long wst = (bits << 1) & ~X0 | west[w];
+			// each word holds four Z rows, so Z neighbours are 16 bits along, spilling into
+			// the adjacent word for the first and last rows
+			long s = bits >>> 16 | (zGroup < 3 ? (opaque[w + 1] & LANE) << 48 : south[w]);
+			long n = bits << 16 | (zGroup > 0 ? opaque[w - 1] >>> 48 : north[w]);
+			long u = y < 15 ? opaque[w + 4] : up[w];
+			long d = y > 0 ? opaque[w - 4] : down[w];
+
+			enclosed[w] = e & wst & s & n & u & d;
+		}
+		computed = true;
+	}
+
+	private long[] getFace(BlockFace face) {
+		switch (face) {
+			case EAST: return east;
+			case WEST: return west;
+			case SOUTH: return south;
+			case NORTH: return north;
+			case UP: return up;
+			case DOWN: return down;
+			default: throw new IllegalArgumentException("not a section face: " + face);
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package me.desht.dhutils.nms.fallback;
 
+import org.bukkit.ChunkSnapshot;
 import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
@@ -14,6 +15,80 @@ public class NMSHandler implements NMSAbstraction {
 		return world.getBlockAt(x, y, z).setTypeIdAndData(blockId, data, false);
 	}
 
+	@Override
+	public int setSectionFast(World world, int cx, int sy, int cz, short[] blockIds, byte[] data, short[] oldBlockIds) {
+		int baseX = cx << 4, baseY = sy << 4, baseZ = cz << 4;
+		int changed = 0;
+		for (int idx = 0; idx < 4096; idx++) {
+			if (oldBlockIds != null) {
+				oldBlockIds[idx] = -1;
+			}
+			if (blockIds[idx] < 0) {
+				continue;
+			}
+			Block b = world.getBlockAt(baseX + (idx & 0x0f), baseY + (idx >> 8), baseZ + ((idx >> 4) & 0x0f));
+			int oldId = b.getTypeId();
+			if (b.setTypeIdAndData(blockIds[idx], data[idx], false)) {
+				if (oldBlockIds != null) {
+					oldBlockIds[idx] = (short) oldId;
+				}
+				changed++;
+			}
+		}
+		return changed;
+	}
+
+	@Override
+	public int fillSection(World world, int cx, int sy, int cz, int blockId, byte data, short[] oldBlockIds) {
+		int baseX = cx << 4, baseY = sy << 4, baseZ = cz << 4;
+		int changed = 0;
+		for (int idx = 0; idx < 4096; idx++) {
+			if (oldBlockIds != null) {
+				oldBlockIds[idx] = -1;
+			}
+			Block b = world.getBlockAt(baseX + (idx & 0x0f), baseY + (idx >> 8), baseZ + ((idx >> 4) & 0x0f));
+			int oldId = b.getTypeId();
+			if (b.setTypeIdAndData(blockId, data, false)) {
+				if (oldBlockIds != null) {
+					oldBlockIds[idx] = (short) oldId;
+				}
+				changed++;
+			}
+		}
+		return changed;
+	}
+
+	@Override
+	public void readSection(World world, int cx, int sy, int cz, short[] blockIds, byte[] data, byte[] blockLight, byte[] skyLight) {
+		ChunkSnapshot snapshot = world.getChunkAt(cx, cz).getChunkSnapshot();
+		int baseY = sy << 4;
+		for (int idx = 0; idx < 4096; idx++) {
+			int x = idx & 0x0f, y = baseY + (idx >> 8), z = (idx >> 4) & 0x0f;
+			if (blockIds != null) {
+				blockIds[idx] = (short) snapshot.getBlockTypeId(x, y, z);
+			}
+			if (data != null) {
+				data[idx] = (byte) snapshot.getBlockData(x, y, z);
+			}
+			if (blockLight != null) {
+				blockLight[idx] = (byte) snapshot.getBlockEmittedLight(x, y, z);
+			}
+			if (skyLight != null) {
+				skyLight[idx] = (byte) snapshot.getBlockSkyLight(x, y, z);
+			}
+		}
+	}
+
+	@Override
+	public byte[] getTileEntityData(World world, int x, int y, int z) {
+		return null;
+	}
+
+	@Override
+	public boolean setTileEntityData(World world, int x, int y, int z, byte[] nbt) {
+		return false;
+	}
+
 	@Override
 	public void forceBlockLightLevel(World world, int x, int y, int z, int level) {
 	}
@@ -45,4 +120,8 @@ public class NMSHandler implements NMSAbstraction {
 	@Override
 	public void recalculateBlockLighting(World world, int x, int y, int z) {
 	}
+
+	@Override
+	public void relightSections(World world, int[] cx, int[] sy, int[] cz) {
+	}
 }
@@ -1,6 +1,6 @@
 package me.desht.dhutils;
 
-import java.lang.reflect.Method;
+import me.desht.dhutils.nms.api.MethodAccessor;
 
 import org.bukkit.FireworkEffect;
 import org.bukkit.Location;
@@ -38,9 +38,9 @@ public class FireworkEffectPlayer {
      */
     
     // internal references, performance improvements
-    private Method world_getHandle = null;
-    private Method nms_world_broadcastEntityEffect = null;
-    private Method firework_getHandle = null;
+    private MethodAccessor world_getHandle = null;
+    private MethodAccessor nms_world_broadcastEntityEffect = null;
+    private MethodAccessor firework_getHandle = null;
     
     /**
      * Play a pretty firework at the location with the FireworkEffect when called
@@ -60,16 +60,16 @@ public class FireworkEffectPlayer {
          */
         if(world_getHandle == null) {
             // get the methods of the craftbukkit objects
-            world_getHandle = getMethod(world.getClass(), "getHandle");
-            firework_getHandle = getMethod(fw.getClass(), "getHandle");
+            world_getHandle = MethodAccessor.named(world.getClass(), "getHandle");
+            firework_getHandle = MethodAccessor.named(fw.getClass(), "getHandle");
         }
         // invoke with no arguments
-        nms_world = world_getHandle.invoke(world, (Object[]) null);
-        nms_firework = firework_getHandle.invoke(fw, (Object[]) null);
+        nms_world = world_getHandle.invoke(world);
+        nms_firework = firework_getHandle.invoke(fw);
         // null checks are fast, so having this seperate is ok
         if(nms_world_broadcastEntityEffect == null) {
             // get the method of the nms_world
-            nms_world_broadcastEntityEffect = getMethod(nms_world.getClass(), "broadcastEntityEffect");
+            nms_world_broadcastEntityEffect = MethodAccessor.named(nms_world.getClass(), "broadcastEntityEffect");
         }
         /*
          * Now we mess with the metadata, allowing nice clean spawning of a pretty firework (look, pretty lights!)
@@ -89,24 +89,9 @@ public class FireworkEffectPlayer {
          */
 
         // invoke with arguments
-        nms_world_broadcastEntityEffect.invoke(nms_world, new Object[] {nms_firework, (byte) 17});
+        nms_world_broadcastEntityEffect.invoke(nms_world, nms_firework, (byte) 17);
         // remove from the game
         fw.remove();
     }
-    
-    /**
-     * Internal method, used as shorthand to grab our method in a nice friendly manner
-     * @param cl
-     * @param method
-     * @return Method (or null)
-     */
-    private static Method getMethod(Class<?> cl, String method) {
-        for(Method m : cl.getMethods()) {
-            if(m.getName().equals(method)) {
-                return m;
-            }
-        }
-        return null;
-    }
 
 }
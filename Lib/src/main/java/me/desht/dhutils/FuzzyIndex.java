@@ -0,0 +1,329 @@
+package me.desht.dhutils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index of values by string key, which can be searched by exact key, by key prefix, or for
+ * the closest key within a given edit (Levenshtein) distance.  Keys are held in a prefix trie,
+ * for exact and prefix lookups, and in a BK-tree, so that a fuzzy lookup only needs to compare
+ * against a small part of the index rather than every key.
+ * <p>
+ * Keys are normalised with {@link #normalise(String)} when added and when searched for, so
+ * lookups ignore case, spaces and underscores.  Methods which return keys return them as they
+ * were added.
+ * <p>
+ * An index should be fully built before it is shared between threads.
+ *
+ * @param <T> the type of the indexed values
+ */
+public class FuzzyIndex<T> {
+	private static final Map<Class<?>, FuzzyIndex<?>> enumIndexes = new HashMap<Class<?>, FuzzyIndex<?>>();
+
+	private final TrieNode root = new TrieNode();
+	private BKNode bkRoot = null;
+	private int size = 0;
+
+	/**
+	 * Get an index of the constants of the given enum, keyed by their <code>toString()</code>
+	 * values.  Indexes are built once per enum class, and must not be modified.
+	 *
+	 * @param c the enum class
+	 * @param <T> the enum type
+	 * @return the index
+	 */
+	@SuppressWarnings("unchecked")
+	public static synchronized <T extends Enum<?>> FuzzyIndex<T> forEnum(Class<T> c) {
+		FuzzyIndex<T> index = (FuzzyIndex<T>) enumIndexes.get(c);
+		if (index == null) {
+			index = new FuzzyIndex<T>();
+			for (T t : c.getEnumConstants()) {
+				index.put(t.toString(), t);
+			}
+			enumIndexes.put(c, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Build an index of the entries in the given map.
+	 *
+	 * @param map the map
+	 * @param <T> the type of the map's values
+	 * @return a new index
+	 */
+	public static <T> FuzzyIndex<T> forMap(Map<String, T> map) {
+		FuzzyIndex<T> index = new FuzzyIndex<T>();
+		for (Map.Entry<String, T> entry : map.entrySet()) {
+			index.put(entry.getKey(), entry.getValue());
+		}
+		return index;
+	}
+
+	/**
+	 * Normalise a key: convert it to lower case and remove any spaces and underscores.
+	 *
+	 * @param key the key
+	 * @return the normalised key
+	 */
+	public static String normalise(String key) {
+		StringBuilder sb = new StringBuilder(key.length());
+		for (int i = 0; i < key.length(); i++) {
+			char c = key.charAt(i);
+			if (c != ' ' && c != '_') {
+				sb.append(Character.toLowerCase(c));
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Add a value to the index.  If a key which normalises to the same string is already
+	 * present, its value is replaced.
+	 *
+	 * @param key the key
+	 * @param value the value
+	 */
+	public void put(String key, T value) {
+		String norm = normalise(key);
+		TrieNode node = root;
+		for (int i = 0; i < norm.length(); i++) {
+			node = node.getOrAddChild(norm.charAt(i));
+		}
+		if (node.key == null) {
+			size++;
+			addToBKTree(norm, node);
+		}
+		node.key = key;
+		node.value = value;
+	}
+
+	/**
+	 * Get the value for the given key.
+	 *
+	 * @param key the key
+	 * @return the value, or null if the key is not present
+	 */
+	public T get(String key) {
+		TrieNode node = find(normalise(key));
+		return node == null ? null : node.<T>getValue();
+	}
+
+	/**
+	 * Get the keys which begin with the given prefix, in order of their normalised form.
+	 *
+	 * @param prefix the prefix; if null or empty, all keys are returned
+	 * @return a list of keys
+	 */
+	public List<String> getKeysWithPrefix(String prefix) {
+		List<String> res = new ArrayList<String>();
+		TrieNode node = prefix == null ? root : find(normalise(prefix));
+		if (node != null) {
+			node.collectKeys(res);
+		}
+		return res;
+	}
+
+	/**
+	 * Get the value whose key is closest to the given key, within the given edit distance.  An
+	 * exact match is always preferred; of several keys at the same distance, the one added
+	 * first is used.
+	 *
+	 * @param key the key
+	 * @param maxDistance the maximum edit distance
+	 * @return the value, or null if no key is close enough
+	 */
+	public T findClosest(String key, int maxDistance) {
+		String norm = normalise(key);
+		TrieNode exact = find(norm);
+		if (exact != null && exact.key != null) {
+			return exact.getValue();
+		}
+		BKNode best = null;
+		int bestDist = maxDistance + 1;
+		Deque<BKNode> stack = new ArrayDeque<BKNode>();
+		if (bkRoot != null) {
+			stack.push(bkRoot);
+		}
+		while (!stack.isEmpty()) {
+			BKNode node = stack.pop();
+			// only keys no further than the best so far are of interest
+			int radius = Math.min(maxDistance, bestDist);
+			int d = node.distanceTo(norm, radius);
+			if (d < 0) {
+				continue;
+			}
+			if (d < bestDist || d == bestDist && best != null && node.order < best.order) {
+				best = node;
+				bestDist = d;
+			}
+			node.pushChildren(stack, d, Math.min(maxDistance, bestDist));
+		}
+		return best == null ? null : best.entry.<T>getValue();
+	}
+
+	/**
+	 * Get all keys within the given edit distance of the given key, e.g. for suggesting
+	 * alternatives to an unknown name.
+	 *
+	 * @param key the key
+	 * @param maxDistance the maximum edit distance
+	 * @return a list of keys, in no particular order
+	 */
+	public List<String> getKeysWithin(String key, int maxDistance) {
+		String norm = normalise(key);
+		List<String> res = new ArrayList<String>();
+		Deque<BKNode> stack = new ArrayDeque<BKNode>();
+		if (bkRoot != null) {
+			stack.push(bkRoot);
+		}
+		while (!stack.isEmpty()) {
+			BKNode node = stack.pop();
+			int d = node.distanceTo(norm, maxDistance);
+			if (d < 0) {
+				continue;
+			}
+			if (d <= maxDistance) {
+				res.add(node.entry.key);
+			}
+			node.pushChildren(stack, d, maxDistance);
+		}
+		return res;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private TrieNode find(String norm) {
+		TrieNode node = root;
+		for (int i = 0; i < norm.length() && node != null; i++) {
+			node = node.getChild(norm.charAt(i));
+		}
+		return node;
+	}
+
+	private void addToBKTree(String norm, TrieNode entry) {
+		BKNode newNode = new BKNode(norm, entry, size);
+		if (bkRoot == null) {
+			bkRoot = newNode;
+			return;
+		}
+		BKNode node = bkRoot;
+		while (true) {
+			int d = StringUtil.getLevenshteinDistance(norm, node.norm);
+			BKNode child = node.getChild(d);
+			if (child == null) {
+				node.setChild(d, newNode);
+				return;
+			}
+			node = child;
+		}
+	}
+
+	private static class TrieNode {
+		private static final char[] NO_CHARS = new char[0];
+		private static final TrieNode[] NO_NODES = new TrieNode[0];
+
+		// child nodes, sorted by character
+		private char[] chars = NO_CHARS;
+		private TrieNode[] children = NO_NODES;
+		// the key as added, or null if no key ends here
+		private String key = null;
+		private Object value = null;
+
+		@SuppressWarnings("unchecked")
+		private <T> T getValue() {
+			return (T) value;
+		}
+
+		private TrieNode getChild(char c) {
+			int idx = Arrays.binarySearch(chars, c);
+			return idx >= 0 ? children[idx] : null;
+		}
+
+		private TrieNode getOrAddChild(char c) {
+			int idx = Arrays.binarySearch(chars, c);
+			if (idx >= 0) {
+				return children[idx];
+			}
+			int pos = -idx - 1;
+			char[] newChars = new char[chars.length + 1];
+			TrieNode[] newChildren = new TrieNode[children.length + 1];
+			System.arraycopy(chars, 0, newChars, 0, pos);
+			System.arraycopy(children, 0, newChildren, 0, pos);
+			System.arraycopy(chars, pos, newChars, pos + 1, chars.length - pos);
+			System.arraycopy(children, pos, newChildren, pos + 1, children.length - pos);
+			newChars[pos] = c;
+			newChildren[pos] = new TrieNode();
+			chars = newChars;
+			children = newChildren;
+			return newChildren[pos];
+		}
+
+		private void collectKeys(List<String> res) {
+			if (key != null) {
+				res.add(key);
+			}
+			for (TrieNode child : children) {
+				child.collectKeys(res);
+			}
+		}
+	}
+
+	private static class BKNode {
+		private static final BKNode[] NO_NODES = new BKNode[0];
+
+		private final String norm;
+		private final TrieNode entry;
+		private final int order;
+		// children indexed by their distance from this node
+		private BKNode[] children = NO_NODES;
+
+		private BKNode(String norm, TrieNode entry, int order) {
+			this.norm = norm;
+			this.entry = entry;
+			this.order = order;
+		}
+
+		private BKNode getChild(int dist) {
+			return dist < children.length ? children[dist] : null;
+		}
+
+		/**
+		 * Get the distance from this node's key to the search key, if it's small enough for
+		 * this node or any of its children to be within the given radius of the search key.
+		 *
+		 * @return the distance, or -1 if neither this node nor its children need be searched
+		 */
+		private int distanceTo(String key, int radius) {
+			// a child at distance i can only be within the radius if this node is within i + radius
+			return StringUtil.getLevenshteinDistance(key, norm, radius + Math.max(0, children.length - 1));
+		}
+
+		private void setChild(int dist, BKNode child) {
+			if (dist >= children.length) {
+				children = Arrays.copyOf(children, dist + 1);
+			}
+			children[dist] = child;
+		}
+
+		/**
+		 * Push those children which could be within the given radius of the search key, given
+		 * that this node is the given distance from it (by the triangle inequality).
+		 */
+		private void pushChildren(Deque<BKNode> stack, int dist, int radius) {
+			int lo = Math.max(0, dist - radius), hi = Math.min(children.length - 1, dist + radius);
+			for (int i = lo; i <= hi; i++) {
+				if (children[i] != null) {
+					stack.push(children[i]);
+				}
+			}
+		}
+	}
+}
@@ -9,6 +9,7 @@ import org.bukkit.inventory.meta.BookMeta;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.inventory.meta.LeatherArmorMeta;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -580,6 +581,9 @@ public class ItemNames {
             .put("2267", "Music Disk (wait)")
             .build();
 
+    // reverse of the above map: item name to item key, built when first needed
+    private static FuzzyIndex<String> nameIndex = null;
+
     /**
      * Given an item stack, return a friendly printable name for the item, as
      * the (English-language) vanilla Minecraft client would display it.
@@ -635,4 +639,46 @@ public class ItemNames {
         String s = lookup(stack);
         return stack.getAmount() + " x " + s;
     }
+
+    /**
+     * Given a friendly item name, as returned by {@link #lookup(org.bukkit.inventory.ItemStack)},
+     * return an item stack of that item.  Case, spaces and underscores in the name are ignored.
+     * Names which include a dye colour (e.g. "Red Wool") are not recognised.
+     *
+     * @param name the item name
+     * @param fuzzy if true, and there is no exact match, accept a name one edit away
+     * @return an item stack of one of the named item, or null if the name is not known
+     */
+    public static ItemStack matchItem(String name, boolean fuzzy) {
+        String key = StringUtil.lookup(getNameIndex(), name, fuzzy);
+        if (key == null) {
+            return null;
+        }
+        String[] parts = key.split(":");
+        return new ItemStack(Integer.parseInt(parts[0]), 1, parts.length > 1 ? Short.parseShort(parts[1]) : 0);
+    }
+
+    /**
+     * Get the friendly item names which begin with the given prefix, e.g. for tab completion.
+     *
+     * @param prefix the prefix
+     * @return a list of item names
+     */
+    public static List<String> getNameCompletions(String prefix) {
+        return getNameIndex().getKeysWithPrefix(prefix);
+    }
+
+    private static synchronized FuzzyIndex<String> getNameIndex() {
+        if (nameIndex == null) {
+            FuzzyIndex<String> index = new FuzzyIndex<String>();
+            for (Map.Entry<String, String> entry : map.entrySet()) {
+                // several items can share a name; the first one listed is used
+                if (index.get(entry.getValue()) == null) {
+                    index.put(entry.getValue(), entry.getKey());
+                }
+            }
+            nameIndex = index;
+        }
+        return nameIndex;
+    }
 }
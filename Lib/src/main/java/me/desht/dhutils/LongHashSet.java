@@ -0,0 +1,191 @@
+package me.desht.dhutils;
+
+import java.util.Arrays;
+
+/**
+ * A set of primitive long values, using open addressing with linear probing.  Unlike a
+ * HashSet&lt;Long&gt;, no objects are allocated per entry.
+ */
+public class LongHashSet {
+	private static final long EMPTY = Long.MIN_VALUE;
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private long[] table;
+	private int size = 0;
+	private boolean hasEmptyValue = false;
+
+	public LongHashSet() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Create a set which can hold at least the given number of values before needing to grow.
+	 *
+	 * @param expected the expected number of values
+	 */
+	public LongHashSet(int expected) {
+		table = new long[tableSizeFor(expected)];
+		Arrays.fill(table, EMPTY);
+	}
+
+	/**
+	 * Add a value to the set.
+	 *
+	 * @param value the value to add
+	 * @return true if the value was added, false if it was already present
+	 */
+	public boolean add(long value) {
+		if (value == EMPTY) {
+			if (hasEmptyValue) {
+				return false;
+			}
+			hasEmptyValue = true;
+			size++;
+			return true;
+		}
+		int mask = table.length - 1;
+		int i = hash(value) & mask;
+		while (table[i] != EMPTY) {
+			if (table[i] == value) {
+				return false;
+			}
+			i = (i + 1) & mask;
+		}
+		table[i] = value;
+		if (++size * 2 > table.length) {
+			rehash(table.length * 2);
+		}
+		return true;
+	}
+
+	/**
+	 * Check if the set contains the given value.
+	 *
+	 * @param value the value to check
+	 * @return true if the value is in the set
+	 */
+	public boolean contains(long value) {
+		if (value == EMPTY) {
+			return hasEmptyValue;
+		}
+		int mask = table.length - 1;
+		int i = hash(value) & mask;
+		while (table[i] != EMPTY) {
+			if (table[i] == value) {
+				return true;
+			}
+			i = (i + 1) & mask;
+		}
+		return false;
+	}
+
+	/**
+	 * Remove a value from the set.
+	 *
+	 * @param value the value to remove
+	 * @return true if the value was present
+	 */
+	public boolean remove(long value) {
+		if (value == EMPTY) {
+			if (!hasEmptyValue) {
+				return false;
+			}
+			hasEmptyValue = false;
+			size--;
+			return true;
+		}
+		int mask = table.length - 1;
+		int i = hash(value) & mask;
+		while (table[i] != value) {
+			if (table[i] == EMPTY) {
+				return false;
+			}
+			i = (i + 1) & mask;
+		}
+		// backward-shift deletion, so that no tombstones are needed
+		int gap = i;
+		i = (i + 1) & mask;
+		while (table[i] != EMPTY) {
+			int home = hash(table[i]) & mask;
+			if (((i - home) & mask) >= ((i - gap) & mask)) {
+				table[gap] = table[i];
+				gap = i;
+			}
+			i = (i + 1) & mask;
+		}
+		table[gap] = EMPTY;
+		size--;
+		return true;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		Arrays.fill(table, EMPTY);
+		hasEmptyValue = false;
+		size = 0;
+	}
+
+	/**
+	 * Get a copy of all the values in this set, in no particular order.
+	 *
+	 * @return an array of the values
+	 */
+	public long[] toArray() {
+		long[] res = new long[size];
+		int n = 0;
+		if (hasEmptyValue) {
+			res[n++] = EMPTY;
+		}
+		for (long v : table) {
+			if (v != EMPTY) {
+				res[n++] = v;
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Get the approximate heap usage of this set's storage.
+	 *
+	 * @return the memory used, in bytes
+	 */
+	public long getMemoryUsage() {
+		return table.length * 8L;
+	}
+
+	private void rehash(int newCapacity) {
+		long[] old = table;
+		table = new long[newCapacity];
+		Arrays.fill(table, EMPTY);
+		int mask = newCapacity - 1;
+		for (long v : old) {
+			if (v != EMPTY) {
+				int i = hash(v) & mask;
+				while (table[i] != EMPTY) {
+					i = (i + 1) & mask;
+				}
+				table[i] = v;
+			}
+		}
+	}
+
+	private static int tableSizeFor(int expected) {
+		int n = DEFAULT_CAPACITY;
+		while (n < expected * 2) {
+			n <<= 1;
+		}
+		return n;
+	}
+
+	private static int hash(long value) {
+		long h = value * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
@@ -0,0 +1,91 @@
+package me.desht.dhutils;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A growable FIFO queue of primitive long values, backed by a circular array.
+ */
+public class LongRingBuffer {
+	private static final int DEFAULT_CAPACITY = 64;
+
+	private long[] buffer;
+	private int head = 0;
+	private int size = 0;
+
+	public LongRingBuffer() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Create a buffer with the given initial capacity.
+	 *
+	 * @param capacity the initial capacity
+	 */
+	public LongRingBuffer(int capacity) {
+		buffer = new long[Math.max(1, capacity)];
+	}
+
+	/**
+	 * Add a value to the tail of the queue, growing the buffer if necessary.
+	 *
+	 * @param value the value to add
+	 */
+	public void add(long value) {
+		if (size == buffer.length) {
+			grow();
+		}
+		buffer[(head + size) % buffer.length] = value;
+		size++;
+	}
+
+	/**
+	 * Remove and return the value at the head of the queue.
+	 *
+	 * @return the value at the head of the queue
+	 * @throws NoSuchElementException if the queue is empty
+	 */
+	public long poll() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		long value = buffer[head];
+		head = (head + 1) % buffer.length;
+		size--;
+		return value;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int capacity() {
+		return buffer.length;
+	}
+
+	public void clear() {
+		head = 0;
+		size = 0;
+	}
+
+	/**
+	 * Get the approximate heap usage of this buffer's storage.
+	 *
+	 * @return the memory used, in bytes
+	 */
+	public long getMemoryUsage() {
+		return buffer.length * 8L;
+	}
+
+	private void grow() {
+		long[] newBuffer = new long[buffer.length * 2];
+		int firstPart = Math.min(size, buffer.length - head);
+		System.arraycopy(buffer, head, newBuffer, 0, firstPart);
+		System.arraycopy(buffer, 0, newBuffer, firstPart, size - firstPart);
+		buffer = newBuffer;
+		head = 0;
+	}
+}
@@ -28,6 +28,30 @@ import java.util.Map;
  * @author sk89q
  */
 public class StringUtil {
+    /**
+     * Per-thread work buffers for {@link #getLevenshteinDistance(String, String, int)}.
+     */
+    private static final ThreadLocal<DistanceBuffers> distanceBuffers = new ThreadLocal<DistanceBuffers>() {
+        @Override
+        protected DistanceBuffers initialValue() {
+            return new DistanceBuffers();
+        }
+    };
+
+    private static class DistanceBuffers {
+        // match masks for ASCII characters; all zero between uses
+        private final long[] peq = new long[128];
+        private int[] p = new int[0];
+        private int[] d = new int[0];
+
+        private void ensureCapacity(int size) {
+            if (p.length < size) {
+                p = new int[size];
+                d = new int[size];
+            }
+        }
+    }
+
     /**
      * Trim a string if it is longer than a certain length.
      *  
@@ -273,6 +297,196 @@ public class StringUtil {
         return p[n];
     }
 
+    /**
+     * <p>Find the Levenshtein distance between two Strings, if it is no greater than the
+     * given threshold.</p>
+     *
+     * <p>This is much cheaper than {@link #getLevenshteinDistance(String, String)} when only
+     * close matches are of interest: the calculation gives up as soon as the distance is known
+     * to exceed the threshold.  If the shorter String has no more than 64 characters, the
+     * distance is calculated a column at a time with bitwise operations (Myers' bit-parallel
+     * algorithm); otherwise only a diagonal band of the distance matrix, of width
+     * <code>2 * threshold + 1</code>, is calculated.  No objects are allocated, other than
+     * work buffers which are kept per thread.</p>
+     *
+     * <pre>
+     * StringUtil.getLevenshteinDistance("frog", "fog", 1)             = 1
+     * StringUtil.getLevenshteinDistance("elephant", "hippo", 7)       = 7
+     * StringUtil.getLevenshteinDistance("elephant", "hippo", 6)       = -1
+     * </pre>
+     *
+     * @param s  the first String, must not be null
+     * @param t  the second String, must not be null
+     * @param threshold the greatest distance of interest, must not be negative
+     * @return the distance, or -1 if it is greater than the threshold
+     * @throws IllegalArgumentException if either String input <code>null</code>, or the
+     *         threshold is negative
+     */
+    public static int getLevenshteinDistance(String s, String t, int threshold) {
+        if (s == null || t == null) {
+            throw new IllegalArgumentException("Strings must not be null");
+        }
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold must not be negative");
+        }
+
+        // make s the shorter string
+        if (s.length() > t.length()) {
+            String tmp = s;
+            s = t;
+            t = tmp;
+        }
+        int n = s.length();
+        int m = t.length();
+
+        // the distance is at least the difference in length, and at most the longer length
+        if (m - n > threshold) {
+            return -1;
+        } else if (n == 0) {
+            return m;
+        }
+        threshold = Math.min(threshold, m);
+
+        return n <= 64 ? bitParallelDistance(s, t, threshold) : bandedDistance(s, t, threshold);
+    }
+
+    /**
+     * Myers' bit-parallel edit distance, as formulated by Hyyr&ouml;.  Bit i of the vertical
+     * delta vectors holds the change in distance between rows i and i+1 of the current column of
+     * the distance matrix (rows being characters of s, the pattern, at most 64 long).
+     */
+    private static int bitParallelDistance(String s, String t, int threshold) {
+        int n = s.length();
+        int m = t.length();
+        long[] peq = distanceBuffers.get().peq;
+
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 128) {
+                peq[c] |= 1L << i;
+            }
+        }
+
+        long pv = -1L; // positive vertical deltas: the first column is 0, 1, 2 ...
+        long mv = 0L;  // negative vertical deltas
+        long last = 1L << (n - 1);
+        int score = n;
+        int res = -1;
+        for (int j = 0; j < m; j++) {
+            long eq = charMask(s, t.charAt(j), peq);
+            long xv = eq | mv;
+            long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+            if ((ph & last) != 0) {
+                score++;
+            } else if ((mh & last) != 0) {
+                score--;
+            }
+            // the top row of the matrix is 0, 1, 2 ... so always shift in a positive delta
+            ph = (ph << 1) | 1L;
+            mh = mh << 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+
+            // the score can drop by at most one per remaining character of t
+            if (score - (m - j - 1) > threshold) {
+                break;
+            }
+            if (j == m - 1) {
+                res = score;
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 128) {
+                peq[c] = 0L;
+            }
+        }
+
+        return res >= 0 && res <= threshold ? res : -1;
+    }
+
+    private static long charMask(String s, char c, long[] peq) {
+        if (c < 128) {
+            return peq[c];
+        }
+        long mask = 0L;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == c) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Classic two-row dynamic programming, but only within <code>threshold</code> cells of the
+     * diagonal, since any path through the matrix which strays further costs too much.
+     */
+    private static int bandedDistance(String s, String t, int threshold) {
+        int n = s.length();
+        int m = t.length();
+        // any value greater than the threshold will do for cells outside the band
+        int big = threshold + 1;
+
+        DistanceBuffers buffers = distanceBuffers.get();
+        buffers.ensureCapacity(n + 1);
+        int[] p = buffers.p;
+        int[] d = buffers.d;
+        int[] tmp;
+
+        for (int i = 0; i <= n; i++) {
+            p[i] = Math.min(i, big);
+        }
+
+        for (int j = 1; j <= m; j++) {
+            char tj = t.charAt(j - 1);
+            d[0] = Math.min(j, big);
+
+            int min = Math.max(1, j - threshold);
+            int max = Math.min(n, j + threshold);
+            if (min > 1) {
+                d[min - 1] = big;
+            }
+            int rowMin = d[0];
+            for (int i = min; i <= max; i++) {
+                if (s.charAt(i - 1) == tj) {
+                    d[i] = p[i - 1];
+                } else {
+                    d[i] = Math.min(big, 1 + Math.min(Math.min(d[i - 1], p[i]), p[i - 1]));
+                }
+                rowMin = Math.min(rowMin, d[i]);
+            }
+            if (max < n) {
+                d[max + 1] = big;
+            }
+            if (rowMin > threshold) {
+                return -1;
+            }
+
+            tmp = p;
+            p = d;
+            d = tmp;
+        }
+
+        return p[n] <= threshold ? p[n] : -1;
+    }
+
+    /**
+     * Look up a value by name in the given index.  Case, spaces and underscores in the name
+     * are ignored.
+     *
+     * @param index the index to search
+     * @param name the name to look for
+     * @param fuzzy if true, and there is no exact match, accept a name one edit away
+     * @return the value, or null if there is no match
+     */
+    public static <T> T lookup(FuzzyIndex<T> index, String name, boolean fuzzy) {
+        return fuzzy ? index.findClosest(name, 1) : index.get(name);
+    }
+
     public static <T extends Enum<?>> T lookup(Map<String, T> lookup, String name, boolean fuzzy) {
         String testName = name.replaceAll("[ _]", "").toLowerCase();
 
@@ -285,26 +499,18 @@ public class StringUtil {
             return null;
         }
 
-        int minDist = Integer.MAX_VALUE;
-
         for (Map.Entry<String, T> entry : lookup.entrySet()) {
             final String key = entry.getKey();
             if (key.charAt(0) != testName.charAt(0)) {
                 continue;
             }
 
-            int dist = getLevenshteinDistance(key, testName);
-
-            if (dist >= minDist) {
-                minDist = dist;
-                type = entry.getValue();
+            // the exact match has already been ruled out, so any distance of 1 is the best
+            if (getLevenshteinDistance(key, testName, 1) >= 0) {
+                return entry.getValue();
             }
         }
 
-        if (minDist > 1) {
-            return null;
-        }
-
-        return type;
+        return null;
     }
 }
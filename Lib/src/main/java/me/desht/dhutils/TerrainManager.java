@@ -3,68 +3,81 @@ package me.desht.dhutils;
 import java.io.File;
 import java.io.IOException;
 
+import me.desht.dhutils.block.CraftMassBlockUpdate;
+import me.desht.dhutils.block.MassBlockJob;
+import me.desht.dhutils.block.MassBlockScheduler;
+import me.desht.dhutils.block.MassBlockUpdate;
+import me.desht.dhutils.cuboid.Cuboid;
+import me.desht.dhutils.schematic.Schematic;
+
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
 
-import com.sk89q.worldedit.CuboidClipboard;
-import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.EmptyClipboardException;
 import com.sk89q.worldedit.FilenameException;
-import com.sk89q.worldedit.LocalPlayer;
-import com.sk89q.worldedit.LocalSession;
 import com.sk89q.worldedit.MaxChangedBlocksException;
-import com.sk89q.worldedit.Vector;
-import com.sk89q.worldedit.WorldEdit;
-import com.sk89q.worldedit.bukkit.BukkitWorld;
 import com.sk89q.worldedit.bukkit.WorldEditPlugin;
 import com.sk89q.worldedit.data.DataException;
-import com.sk89q.worldedit.schematic.SchematicFormat;
 
 /**
  * @author desht
  *
- * A wrapper class for the WorldEdit terrain loading & saving API to make things a little
- * simple for other plugins to use.
+ * Terrain loading & saving in the MCEdit schematic format, as used by WorldEdit.  Schematics
+ * are read and written by {@link Schematic}, and pasted a chunk section at a time through a
+ * {@link MassBlockUpdate}; WorldEdit does not need to be installed.  Tile entity data (sign
+ * text, chest contents etc.) is saved and pasted along with the blocks, as long as the NMS
+ * abstraction supports it.
+ * <p>
+ * The WorldEdit exceptions in the method signatures are kept for compatibility with existing
+ * callers, but are never thrown.
  */
 public class TerrainManager {
 	private static final String EXTENSION = "schematic";
 
-	private final WorldEdit we;
-	private final LocalSession localSession;
-	private final EditSession editSession;
-	private final LocalPlayer localPlayer;
+	private final Plugin plugin;
+	private final World world;
+
+	/**
+	 * Constructor
+	 *
+	 * @param plugin	the plugin doing the loading & saving
+	 * @param world	the world to work in
+	 */
+	public TerrainManager(Plugin plugin, World world) {
+		this.plugin = plugin;
+		this.world = world;
+	}
 
 	/**
 	 * Constructor
-	 * 
+	 *
 	 * @param wep	the WorldEdit plugin instance
 	 * @param player	the player to work with
+	 * @deprecated WorldEdit is no longer needed; use {@link #TerrainManager(Plugin, World)}
 	 */
+	@Deprecated
 	public TerrainManager(WorldEditPlugin wep, Player player) {
-		we = wep.getWorldEdit();
-		localPlayer = wep.wrapPlayer(player);
-		localSession = we.getSession(localPlayer);
-		editSession = localSession.createEditSession(localPlayer);		
+		this((Plugin) wep, player.getWorld());
 	}
 
 	/**
 	 * Constructor
-	 * 
+	 *
 	 * @param wep	the WorldEdit plugin instance
 	 * @param world	the world to work in
+	 * @deprecated WorldEdit is no longer needed; use {@link #TerrainManager(Plugin, World)}
 	 */
+	@Deprecated
 	public TerrainManager(WorldEditPlugin wep, World world) {
-		we = wep.getWorldEdit();
-		localPlayer = null;
-		localSession = new LocalSession(we.getConfiguration());
-		editSession = new EditSession(new BukkitWorld(world), we.getConfiguration().maxChangeLimit);
+		this((Plugin) wep, world);
 	}
 
 	/**
 	 * Write the terrain bounded by the given locations to the given file as a MCedit format
 	 * schematic.
-	 * 
+	 *
 	 * @param saveFile	a File representing the schematic file to create
 	 * @param l1	one corner of the region to save
 	 * @param l2	the corner of the region to save, opposite to l1
@@ -72,24 +85,14 @@ public class TerrainManager {
 	 * @throws IOException
 	 */
 	public void saveTerrain(File saveFile, Location l1, Location l2) throws FilenameException, DataException, IOException {
-		Vector min = getMin(l1, l2);
-		Vector max = getMax(l1, l2);
-
-		saveFile = we.getSafeSaveFile(localPlayer,
-		                              saveFile.getParentFile(), saveFile.getName(),
-		                              EXTENSION, new String[] { EXTENSION });
-
-		editSession.enableQueue();
-		CuboidClipboard clipboard = new CuboidClipboard(max.subtract(min).add(new Vector(1, 1, 1)), min);
-		clipboard.copy(editSession);
-		SchematicFormat.MCEDIT.save(clipboard, saveFile);
-		editSession.flushQueue();
+		Cuboid cuboid = new Cuboid(inWorld(l1), inWorld(l2));
+		Schematic.copy(cuboid).save(getSchematicFile(saveFile));
 	}
 
 	/**
 	 * Load the data from the given schematic file and paste it at the given location.  If the location is null, then
 	 * paste it at the saved data's origin.
-	 * 
+	 *
 	 * @param saveFile	a File representing the schematic file to load
 	 * @param loc		the location to paste the clipboard at (may be null)
 	 * @throws FilenameException
@@ -99,20 +102,18 @@ public class TerrainManager {
 	 * @throws EmptyClipboardException
 	 */
 	public void loadSchematic(File saveFile, Location loc) throws FilenameException, DataException, IOException, MaxChangedBlocksException, EmptyClipboardException {
-		saveFile = we.getSafeSaveFile(localPlayer,
-		                              saveFile.getParentFile(), saveFile.getName(),
-		                              EXTENSION, new String[] { EXTENSION });
-
-		editSession.enableQueue();
-		localSession.setClipboard(SchematicFormat.MCEDIT.load(saveFile));
-		localSession.getClipboard().place(editSession, getPastePosition(loc), false);
-		editSession.flushQueue();
-		we.flushBlockBag(localPlayer, editSession);
+		Schematic schematic = Schematic.load(getSchematicFile(saveFile));
+
+		MassBlockUpdate mbu = CraftMassBlockUpdate.createMassBlockUpdater(plugin, world);
+		mbu.setBatchMode(true);
+		mbu.setRelightingStrategy(MassBlockUpdate.RelightingStrategy.BATCH);
+		schematic.paste(mbu, getPastePosition(schematic, loc));
+		mbu.notifyClients();
 	}
 
 	/**
 	 * Load the data from the given schematic file and paste it at the saved clipboard's origin.
-	 * 
+	 *
 	 * @param saveFile
 	 * @throws FilenameException
 	 * @throws DataException
@@ -124,26 +125,61 @@ public class TerrainManager {
 		loadSchematic(saveFile, null);
 	}
 
-	private Vector getPastePosition(Location loc) throws EmptyClipboardException {
-		if (loc == null) 
-			return localSession.getClipboard().getOrigin();
-		else 
-			return new Vector(loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
+	/**
+	 * Load the given schematic file and paste it at the given location, spread over several
+	 * ticks.  The schematic's block data is streamed into a memory-mapped cache file rather
+	 * than loaded onto the heap, and pasted one chunk column per unit of a
+	 * {@link MassBlockJob}, so this is suitable for very large schematics.  The job flushes
+	 * and relights its batch-mode update after each column, so each column is written to the
+	 * world and relit in the tick it's pasted, and only one column's section buffers are held
+	 * at a time.  Modified chunks are then resent to clients at most
+	 * {@link MassBlockJob#DEFAULT_MAX_CHUNKS_PER_TICK} per tick.  If the location is null,
+	 * then paste it at the saved data's origin.
+	 *
+	 * @param saveFile	a File representing the schematic file to load
+	 * @param loc		the location to paste the schematic at (may be null)
+	 * @param scheduler	the scheduler to run the paste job
+	 * @return the submitted job, which may be used to track progress or to cancel the paste
+	 * @throws IOException
+	 */
+	public MassBlockJob loadSchematicGradually(File saveFile, Location loc, MassBlockScheduler scheduler) throws IOException {
+		final Schematic schematic = Schematic.open(getSchematicFile(saveFile));
+
+		MassBlockUpdate mbu = CraftMassBlockUpdate.createMassBlockUpdater(plugin, world);
+		mbu.setBatchMode(true);
+		mbu.setRelightingStrategy(MassBlockUpdate.RelightingStrategy.BATCH);
+		mbu.setMaxChunksPerTick(MassBlockJob.DEFAULT_MAX_CHUNKS_PER_TICK);
+		MassBlockJob job = new MassBlockJob(plugin, mbu);
+		schematic.paste(job, getPastePosition(schematic, loc));
+		job.setListener(new MassBlockJob.Listener() {
+			@Override
+			public void onProgress(MassBlockJob job) {
+			}
+
+			@Override
+			public void onFinished(MassBlockJob job) {
+				schematic.close();
+			}
+		});
+		scheduler.submit(job);
+		return job;
+	}
+
+	private Location getPastePosition(Schematic schematic, Location loc) {
+		if (loc == null)
+			return schematic.getOrigin().toLocation(world);
+		else
+			return inWorld(loc);
 	}
 
-	private Vector getMin(Location l1, Location l2) {
-		return new Vector(
-		                  Math.min(l1.getBlockX(), l2.getBlockX()),
-		                  Math.min(l1.getBlockY(), l2.getBlockY()),
-		                  Math.min(l1.getBlockZ(), l2.getBlockZ())
-				);
+	private Location inWorld(Location loc) {
+		return new Location(world, loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
 	}
 
-	private Vector getMax(Location l1, Location l2) {
-		return new Vector(
-		                  Math.max(l1.getBlockX(), l2.getBlockX()),
-		                  Math.max(l1.getBlockY(), l2.getBlockY()),
-		                  Math.max(l1.getBlockZ(), l2.getBlockZ())
-				);
+	private File getSchematicFile(File file) {
+		if (file.getName().indexOf('.') < 0) {
+			return new File(file.getParentFile(), file.getName() + "." + EXTENSION);
+		}
+		return file;
 	}
 }
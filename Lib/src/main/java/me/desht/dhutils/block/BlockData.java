@@ -19,6 +19,8 @@
 
 package me.desht.dhutils.block;
 
+import java.util.Arrays;
+
 import com.sk89q.worldedit.CuboidClipboard.FlipDirection;
 
 /**
@@ -27,6 +29,87 @@ import com.sk89q.worldedit.CuboidClipboard.FlipDirection;
  * @author sk89q
  */
 public final class BlockData {
+    /**
+     * Block IDs (exclusive) covered by the lookup tables.  Transforms of IDs or data values
+     * outside the tables are computed directly.
+     */
+    private static final int MAX_ID = 4096;
+
+    // shared by all the rows which leave the data unchanged
+    private static final byte[] IDENTITY_ROW = new byte[16];
+    // shared by all the rows which have nothing to cycle to
+    private static final byte[] NO_CYCLE_ROW = new byte[16];
+    static {
+        for (int data = 0; data < 16; data++) {
+            IDENTITY_ROW[data] = (byte) data;
+            NO_CYCLE_ROW[data] = -1;
+        }
+    }
+
+    private static final int ROTATE_90 = 0;
+    private static final int ROTATE_90_REVERSE = 1;
+    private static final int FLIP_NORTH_SOUTH = 2;
+    private static final int FLIP_WEST_EAST = 3;
+    private static final int FLIP_UP_DOWN = 4;
+    private static final int CYCLE_FORWARD = 5;
+    private static final int CYCLE_BACKWARD = 6;
+
+    /**
+     * Lookup tables for each transform, indexed by block ID and then data value.
+     */
+    private static final byte[][][] tables = new byte[7][][];
+    static {
+        for (int op = 0; op < tables.length; op++) {
+            tables[op] = buildTable(op);
+        }
+    }
+
+    private static byte[][] buildTable(int op) {
+        byte[][] table = new byte[MAX_ID][];
+        byte[] row = new byte[16];
+        for (int type = 0; type < MAX_ID; type++) {
+            for (int data = 0; data < 16; data++) {
+                row[data] = (byte) compute(op, type, data);
+            }
+            table[type] = shareRow(row);
+            if (table[type] == row) {
+                row = new byte[16];
+            }
+        }
+        return table;
+    }
+
+    private static int compute(int op, int type, int data) {
+        switch (op) {
+        case ROTATE_90: return computeRotate90(type, data);
+        case ROTATE_90_REVERSE: return computeRotate90Reverse(type, data);
+        case FLIP_NORTH_SOUTH: return computeFlip(type, data, FlipDirection.NORTH_SOUTH);
+        case FLIP_WEST_EAST: return computeFlip(type, data, FlipDirection.WEST_EAST);
+        case FLIP_UP_DOWN: return computeFlip(type, data, FlipDirection.UP_DOWN);
+        case CYCLE_FORWARD: return computeCycle(type, data, 1);
+        case CYCLE_BACKWARD: return computeCycle(type, data, -1);
+        default: throw new IllegalArgumentException("unknown transform " + op);
+        }
+    }
+
+    /**
+     * Return one of the shared rows if it has the same contents as the given row, so that the
+     * tables only hold separate rows for those blocks which are actually transformed.
+     */
+    private static byte[] shareRow(byte[] row) {
+        if (Arrays.equals(row, IDENTITY_ROW)) {
+            return IDENTITY_ROW;
+        } else if (Arrays.equals(row, NO_CYCLE_ROW)) {
+            return NO_CYCLE_ROW;
+        } else {
+            return row;
+        }
+    }
+
+    private static boolean inTable(int type, int data) {
+        return type >= 0 && type < MAX_ID && data >= 0 && data < 16;
+    }
+
     /**
      * Rotate a block's data value 90 degrees (north->east->south->west->north);
      * 
@@ -35,6 +118,188 @@ public final class BlockData {
      * @return
      */
     public static int rotate90(int type, int data) {
+        return inTable(type, data) ? tables[ROTATE_90][type][data] : computeRotate90(type, data);
+    }
+
+    /**
+     * Rotate a block's data value -90 degrees (north<-east<-south<-west<-north);
+     * 
+     * @param type
+     * @param data
+     * @return
+     */
+    public static int rotate90Reverse(int type, int data) {
+        return inTable(type, data) ? tables[ROTATE_90_REVERSE][type][data] : computeRotate90Reverse(type, data);
+    }
+
+    /**
+     * Flip a block's data value.
+     * 
+     * @param type
+     * @param data
+     * @return
+     */
+    public static int flip(int type, int data) {
+        return rotate90(type, rotate90(type, data));
+    }
+
+    /**
+     * Flip a block's data value.
+     * 
+     * @param type
+     * @param data
+     * @param direction
+     * @return
+     */
+    public static int flip(int type, int data, FlipDirection direction) {
+        return inTable(type, data) ? tables[flipOp(direction)][type][data] : computeFlip(type, data, direction);
+    }
+
+    /**
+     * Cycle a block's data value. This usually goes through some rotational pattern
+     * depending on the block. If it returns -1, it means the id and data specified
+     * do not have anything to cycle to.
+     *
+     * @param type block id to be cycled
+     * @param data block data value that it starts at
+     * @param increment whether to go forward (1) or backward (-1) in the cycle
+     * @return the new data value for the block
+     */
+    public static int cycle(int type, int data, int increment) {
+        if (increment != -1 && increment != 1) {
+            throw new IllegalArgumentException("Increment must be 1 or -1.");
+        }
+        if (inTable(type, data)) {
+            return tables[increment == 1 ? CYCLE_FORWARD : CYCLE_BACKWARD][type][data];
+        }
+        return computeCycle(type, data, increment);
+    }
+
+    private static int flipOp(FlipDirection direction) {
+        switch (direction) {
+        case NORTH_SOUTH: return FLIP_NORTH_SOUTH;
+        case WEST_EAST: return FLIP_WEST_EAST;
+        case UP_DOWN: return FLIP_UP_DOWN;
+        default: throw new IllegalArgumentException("unknown flip direction " + direction);
+        }
+    }
+
+    /**
+     * A combination of rotations and flips, which can be applied to a block's data value with a
+     * single table lookup.  Transforms are immutable; the methods which add a step return a new
+     * transform.  For example, to rotate blocks 90 degrees and then mirror them west to east:
+     * <pre>
+     * BlockData.Transform t = BlockData.Transform.rotation(1).thenFlip(FlipDirection.WEST_EAST);
+     * int newData = t.apply(type, data);
+     * </pre>
+     */
+    public static final class Transform {
+        private static final Transform IDENTITY = new Transform(null);
+
+        // null for the identity transform
+        private final byte[][] table;
+
+        private Transform(byte[][] table) {
+            this.table = table;
+        }
+
+        /**
+         * Get the transform which leaves all data values unchanged.
+         *
+         * @return the identity transform
+         */
+        public static Transform identity() {
+            return IDENTITY;
+        }
+
+        /**
+         * Get a transform which rotates by the given number of quarter turns.
+         *
+         * @param quarterTurns the number of 90 degree turns, clockwise (north->east) if
+         *                     positive, anticlockwise if negative
+         * @return the transform
+         */
+        public static Transform rotation(int quarterTurns) {
+            return IDENTITY.thenRotate(quarterTurns);
+        }
+
+        /**
+         * Get a transform which applies this transform, followed by the given number of
+         * quarter turns.
+         *
+         * @param quarterTurns the number of 90 degree turns, clockwise (north->east) if
+         *                     positive, anticlockwise if negative
+         * @return the new transform
+         */
+        public Transform thenRotate(int quarterTurns) {
+            switch (mod(quarterTurns, 4)) {
+            case 1: return then(tables[ROTATE_90]);
+            case 2: return then(tables[ROTATE_90]).then(tables[ROTATE_90]);
+            case 3: return then(tables[ROTATE_90_REVERSE]);
+            default: return this;
+            }
+        }
+
+        /**
+         * Get a transform which applies this transform, followed by a flip in the given
+         * direction.
+         *
+         * @param direction the flip direction
+         * @return the new transform
+         */
+        public Transform thenFlip(FlipDirection direction) {
+            return then(tables[flipOp(direction)]);
+        }
+
+        /**
+         * Get a transform which applies this transform, followed by the given transform.
+         *
+         * @param other the transform to apply afterwards
+         * @return the new transform
+         */
+        public Transform then(Transform other) {
+            return other.table == null ? this : then(other.table);
+        }
+
+        /**
+         * Apply this transform to a block's data value.  Data values outside the range 0-15 are
+         * returned unchanged.
+         *
+         * @param type the block ID
+         * @param data the block's data value
+         * @return the transformed data value
+         */
+        public int apply(int type, int data) {
+            if (table == null) {
+                return data;
+            }
+            return inTable(type, data) ? table[type][data] : data;
+        }
+
+        private Transform then(byte[][] next) {
+            if (table == null) {
+                return new Transform(next);
+            }
+            byte[][] res = new byte[MAX_ID][];
+            for (int type = 0; type < MAX_ID; type++) {
+                byte[] first = table[type], second = next[type];
+                if (first == IDENTITY_ROW) {
+                    res[type] = second;
+                } else if (second == IDENTITY_ROW) {
+                    res[type] = first;
+                } else {
+                    byte[] row = new byte[16];
+                    for (int data = 0; data < 16; data++) {
+                        row[data] = second[first[data] & 0x0f];
+                    }
+                    res[type] = shareRow(row);
+                }
+            }
+            return new Transform(res);
+        }
+    }
+
+    private static int computeRotate90(int type, int data) {
         switch (type) {
         case BlockID.TORCH:
         case BlockID.REDSTONE_TORCH_OFF:
@@ -217,14 +482,7 @@ public final class BlockData {
         return data;
     }
 
-    /**
-     * Rotate a block's data value -90 degrees (north<-east<-south<-west<-north);
-     * 
-     * @param type
-     * @param data
-     * @return
-     */
-    public static int rotate90Reverse(int type, int data) {
+    private static int computeRotate90Reverse(int type, int data) {
         // case ([0-9]+): return ([0-9]+) -> case \2: return \1
 
         switch (type) {
@@ -409,26 +667,7 @@ public final class BlockData {
         return data;
     }
 
-    /**
-     * Flip a block's data value.
-     * 
-     * @param type
-     * @param data
-     * @return
-     */
-    public static int flip(int type, int data) {
-        return rotate90(type, rotate90(type, data));
-    }
-
-    /**
-     * Flip a block's data value.
-     * 
-     * @param type
-     * @param data
-     * @param direction
-     * @return
-     */
-    public static int flip(int type, int data, FlipDirection direction) {
+    private static int computeFlip(int type, int data, FlipDirection direction) {
         int flipX = 0;
         int flipY = 0;
         int flipZ = 0;
@@ -683,21 +922,7 @@ public final class BlockData {
         return data;
     }
 
-    /**
-     * Cycle a block's data value. This usually goes through some rotational pattern
-     * depending on the block. If it returns -1, it means the id and data specified
-     * do not have anything to cycle to.
-     *
-     * @param type block id to be cycled
-     * @param data block data value that it starts at
-     * @param increment whether to go forward (1) or backward (-1) in the cycle
-     * @return the new data value for the block
-     */
-    public static int cycle(int type, int data, int increment) {
-        if (increment != -1 && increment != 1) {
-            throw new IllegalArgumentException("Increment must be 1 or -1.");
-        }
-
+    private static int computeCycle(int type, int data, int increment) {
         int store;
         switch (type) {
 
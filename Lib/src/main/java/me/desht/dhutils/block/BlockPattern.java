@@ -0,0 +1,29 @@
+package me.desht.dhutils.block;
+
+/**
+ * Computes the block which should be placed at a given position.  Patterns are used
+ * by {@link MassBlockStager} and may be called from worker threads, so implementations
+ * must be thread-safe and must not access the Bukkit API.
+ */
+public interface BlockPattern {
+	/**
+	 * Get the new block ID for the given position.
+	 *
+	 * @param x X co-ordinate of the block
+	 * @param y Y co-ordinate of the block
+	 * @param z Z co-ordinate of the block
+	 * @return the new block ID, or -1 to leave the block unchanged
+	 */
+	public int getBlockId(int x, int y, int z);
+
+	/**
+	 * Get the new block data for the given position.  This is only called if
+	 * {@link #getBlockId(int, int, int)} did not return -1 for the same position.
+	 *
+	 * @param x X co-ordinate of the block
+	 * @param y Y co-ordinate of the block
+	 * @param z Z co-ordinate of the block
+	 * @return the new block data
+	 */
+	public int getData(int x, int y, int z);
+}
@@ -19,12 +19,11 @@
 
 package me.desht.dhutils.block;
 
+import java.util.Arrays;
 import java.util.EnumSet;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.List;
 
+import me.desht.dhutils.FuzzyIndex;
 import me.desht.dhutils.StringUtil;
 
 //import com.sk89q.util.StringUtil;
@@ -196,13 +195,33 @@ public enum BlockType {
     DROPPER(BlockID.DROPPER, "Dropper", "dropper");
 
     /**
-     * Stores a map of the IDs for fast access.
+     * Highest block ID (exclusive) covered by the lookup tables.
      */
-    private static final Map<Integer, BlockType> ids = new HashMap<Integer, BlockType>();
+    private static final int MAX_ID = 4096;
     /**
-     * Stores a map of the names for fast access.
+     * Stores the types by ID for fast access.
      */
-    private static final Map<String, BlockType> lookup = new HashMap<String, BlockType>();
+    private static final BlockType[] ids = new BlockType[MAX_ID];
+    /**
+     * Stores the properties of each block ID as a set of bit flags, for fast access.
+     */
+    private static final int[] flags = new int[MAX_ID];
+    private static final int PLACE_LAST = 0x0001;
+    private static final int PLACE_FINAL = 0x0002;
+    private static final int PASS_THROUGH = 0x0004;
+    private static final int USES_DATA = 0x0008;
+    private static final int CONTAINER = 0x0010;
+    private static final int REDSTONE_BLOCK = 0x0020;
+    private static final int TRANSFERS_REDSTONE = 0x0040;
+    private static final int REDSTONE_SOURCE = 0x0080;
+    private static final int RAIL = 0x0100;
+    private static final int NATURAL_TERRAIN = 0x0200;
+    private static final int EMITS_LIGHT = 0x0400;
+    private static final int TRANSLUCENT = 0x0800;
+    /**
+     * Stores an index of the names for fast (and fuzzy) access.
+     */
+    private static final FuzzyIndex<BlockType> lookup = new FuzzyIndex<BlockType>();
 
     private final int id;
     private final String name;
@@ -210,7 +229,7 @@ public enum BlockType {
 
     static {
         for (BlockType type : EnumSet.allOf(BlockType.class)) {
-            ids.put(type.id, type);
+            ids[type.id] = type;
             for (String key : type.lookupKeys) {
                 lookup.put(key, type);
             }
@@ -249,7 +268,7 @@ public enum BlockType {
      * @return
      */
     public static BlockType fromID(int id) {
-        return ids.get(id);
+        return id >= 0 && id < MAX_ID ? ids[id] : null;
     }
 
     /**
@@ -277,6 +296,16 @@ public enum BlockType {
         }
     }
 
+    /**
+     * Get the names which begin with the given prefix, e.g. for tab completion.
+     *
+     * @param prefix
+     * @return
+     */
+    public static List<String> getLookupKeys(String prefix) {
+        return lookup.getKeysWithPrefix(prefix);
+    }
+
     /**
      * Get block numeric ID.
      *
@@ -295,60 +324,60 @@ public enum BlockType {
         return name;
     }
 
+    private static boolean hasFlag(int id, int flag) {
+        return id >= 0 && id < MAX_ID && (flags[id] & flag) != 0;
+    }
 
-    /**
-     * HashSet for shouldPlaceLast.
-     */
-    private static final Set<Integer> shouldPlaceLast = new HashSet<Integer>();
+    // flags for shouldPlaceLast()
     static {
-        shouldPlaceLast.add(BlockID.SAPLING);
-        shouldPlaceLast.add(BlockID.BED);
-        shouldPlaceLast.add(BlockID.POWERED_RAIL);
-        shouldPlaceLast.add(BlockID.DETECTOR_RAIL);
-        shouldPlaceLast.add(BlockID.LONG_GRASS);
-        shouldPlaceLast.add(BlockID.DEAD_BUSH);
-        shouldPlaceLast.add(BlockID.PISTON_EXTENSION);
-        shouldPlaceLast.add(BlockID.YELLOW_FLOWER);
-        shouldPlaceLast.add(BlockID.RED_FLOWER);
-        shouldPlaceLast.add(BlockID.BROWN_MUSHROOM);
-        shouldPlaceLast.add(BlockID.RED_MUSHROOM);
-        shouldPlaceLast.add(BlockID.TORCH);
-        shouldPlaceLast.add(BlockID.FIRE);
-        shouldPlaceLast.add(BlockID.REDSTONE_WIRE);
-        shouldPlaceLast.add(BlockID.CROPS);
-        shouldPlaceLast.add(BlockID.LADDER);
-        shouldPlaceLast.add(BlockID.MINECART_TRACKS);
-        shouldPlaceLast.add(BlockID.LEVER);
-        shouldPlaceLast.add(BlockID.STONE_PRESSURE_PLATE);
-        shouldPlaceLast.add(BlockID.WOODEN_PRESSURE_PLATE);
-        shouldPlaceLast.add(BlockID.REDSTONE_TORCH_OFF);
-        shouldPlaceLast.add(BlockID.REDSTONE_TORCH_ON);
-        shouldPlaceLast.add(BlockID.STONE_BUTTON);
-        shouldPlaceLast.add(BlockID.SNOW);
-        shouldPlaceLast.add(BlockID.PORTAL);
-        shouldPlaceLast.add(BlockID.REDSTONE_REPEATER_OFF);
-        shouldPlaceLast.add(BlockID.REDSTONE_REPEATER_ON);
-        shouldPlaceLast.add(BlockID.TRAP_DOOR);
-        shouldPlaceLast.add(BlockID.VINE);
-        shouldPlaceLast.add(BlockID.LILY_PAD);
-        shouldPlaceLast.add(BlockID.NETHER_WART);
-        shouldPlaceLast.add(BlockID.PISTON_BASE);
-        shouldPlaceLast.add(BlockID.PISTON_STICKY_BASE);
-        shouldPlaceLast.add(BlockID.PISTON_EXTENSION);
-        shouldPlaceLast.add(BlockID.PISTON_MOVING_PIECE);
-        shouldPlaceLast.add(BlockID.COCOA_PLANT);
-        shouldPlaceLast.add(BlockID.TRIPWIRE_HOOK);
-        shouldPlaceLast.add(BlockID.TRIPWIRE);
-        shouldPlaceLast.add(BlockID.FLOWER_POT);
-        shouldPlaceLast.add(BlockID.CARROTS);
-        shouldPlaceLast.add(BlockID.POTATOES);
-        shouldPlaceLast.add(BlockID.WOODEN_BUTTON);
-        shouldPlaceLast.add(BlockID.HEAD);
-        shouldPlaceLast.add(BlockID.PRESSURE_PLATE_LIGHT);
-        shouldPlaceLast.add(BlockID.PRESSURE_PLATE_HEAVY);
-        shouldPlaceLast.add(BlockID.COMPARATOR_OFF);
-        shouldPlaceLast.add(BlockID.COMPARATOR_ON);
-        shouldPlaceLast.add(BlockID.ACTIVATOR_RAIL);
+        flags[BlockID.SAPLING] |= PLACE_LAST;
+        flags[BlockID.BED] |= PLACE_LAST;
+        flags[BlockID.POWERED_RAIL] |= PLACE_LAST;
+        flags[BlockID.DETECTOR_RAIL] |= PLACE_LAST;
+        flags[BlockID.LONG_GRASS] |= PLACE_LAST;
+        flags[BlockID.DEAD_BUSH] |= PLACE_LAST;
+        flags[BlockID.PISTON_EXTENSION] |= PLACE_LAST;
+        flags[BlockID.YELLOW_FLOWER] |= PLACE_LAST;
+        flags[BlockID.RED_FLOWER] |= PLACE_LAST;
+        flags[BlockID.BROWN_MUSHROOM] |= PLACE_LAST;
+        flags[BlockID.RED_MUSHROOM] |= PLACE_LAST;
+        flags[BlockID.TORCH] |= PLACE_LAST;
+        flags[BlockID.FIRE] |= PLACE_LAST;
+        flags[BlockID.REDSTONE_WIRE] |= PLACE_LAST;
+        flags[BlockID.CROPS] |= PLACE_LAST;
+        flags[BlockID.LADDER] |= PLACE_LAST;
+        flags[BlockID.MINECART_TRACKS] |= PLACE_LAST;
+        flags[BlockID.LEVER] |= PLACE_LAST;
+        flags[BlockID.STONE_PRESSURE_PLATE] |= PLACE_LAST;
+        flags[BlockID.WOODEN_PRESSURE_PLATE] |= PLACE_LAST;
+        flags[BlockID.REDSTONE_TORCH_OFF] |= PLACE_LAST;
+        flags[BlockID.REDSTONE_TORCH_ON] |= PLACE_LAST;
+        flags[BlockID.STONE_BUTTON] |= PLACE_LAST;
+        flags[BlockID.SNOW] |= PLACE_LAST;
+        flags[BlockID.PORTAL] |= PLACE_LAST;
+        flags[BlockID.REDSTONE_REPEATER_OFF] |= PLACE_LAST;
+        flags[BlockID.REDSTONE_REPEATER_ON] |= PLACE_LAST;
+        flags[BlockID.TRAP_DOOR] |= PLACE_LAST;
+        flags[BlockID.VINE] |= PLACE_LAST;
+        flags[BlockID.LILY_PAD] |= PLACE_LAST;
+        flags[BlockID.NETHER_WART] |= PLACE_LAST;
+        flags[BlockID.PISTON_BASE] |= PLACE_LAST;
+        flags[BlockID.PISTON_STICKY_BASE] |= PLACE_LAST;
+        flags[BlockID.PISTON_EXTENSION] |= PLACE_LAST;
+        flags[BlockID.PISTON_MOVING_PIECE] |= PLACE_LAST;
+        flags[BlockID.COCOA_PLANT] |= PLACE_LAST;
+        flags[BlockID.TRIPWIRE_HOOK] |= PLACE_LAST;
+        flags[BlockID.TRIPWIRE] |= PLACE_LAST;
+        flags[BlockID.FLOWER_POT] |= PLACE_LAST;
+        flags[BlockID.CARROTS] |= PLACE_LAST;
+        flags[BlockID.POTATOES] |= PLACE_LAST;
+        flags[BlockID.WOODEN_BUTTON] |= PLACE_LAST;
+        flags[BlockID.HEAD] |= PLACE_LAST;
+        flags[BlockID.PRESSURE_PLATE_LIGHT] |= PLACE_LAST;
+        flags[BlockID.PRESSURE_PLATE_HEAVY] |= PLACE_LAST;
+        flags[BlockID.COMPARATOR_OFF] |= PLACE_LAST;
+        flags[BlockID.COMPARATOR_ON] |= PLACE_LAST;
+        flags[BlockID.ACTIVATOR_RAIL] |= PLACE_LAST;
     }
 
     /**
@@ -358,7 +387,7 @@ public enum BlockType {
      * @return
      */
     public static boolean shouldPlaceLast(int id) {
-        return shouldPlaceLast.contains(id);
+        return hasFlag(id, PLACE_LAST);
     }
 
     /**
@@ -367,23 +396,20 @@ public enum BlockType {
      * @return
      */
     public boolean shouldPlaceLast() {
-        return shouldPlaceLast.contains(id);
+        return hasFlag(id, PLACE_LAST);
     }
 
-    /**
-     * HashSet for shouldPlaceLast.
-     */
-    private static final Set<Integer> shouldPlaceFinal = new HashSet<Integer>();
+    // flags for shouldPlaceFinal()
     static {
-        shouldPlaceFinal.add(BlockID.SIGN_POST);
-        shouldPlaceFinal.add(BlockID.WOODEN_DOOR);
-        shouldPlaceFinal.add(BlockID.WALL_SIGN);
-        shouldPlaceFinal.add(BlockID.IRON_DOOR);
-        shouldPlaceFinal.add(BlockID.CACTUS);
-        shouldPlaceFinal.add(BlockID.REED);
-        shouldPlaceFinal.add(BlockID.CAKE_BLOCK);
-        shouldPlaceFinal.add(BlockID.PISTON_EXTENSION);
-        shouldPlaceFinal.add(BlockID.PISTON_MOVING_PIECE);
+        flags[BlockID.SIGN_POST] |= PLACE_FINAL;
+        flags[BlockID.WOODEN_DOOR] |= PLACE_FINAL;
+        flags[BlockID.WALL_SIGN] |= PLACE_FINAL;
+        flags[BlockID.IRON_DOOR] |= PLACE_FINAL;
+        flags[BlockID.CACTUS] |= PLACE_FINAL;
+        flags[BlockID.REED] |= PLACE_FINAL;
+        flags[BlockID.CAKE_BLOCK] |= PLACE_FINAL;
+        flags[BlockID.PISTON_EXTENSION] |= PLACE_FINAL;
+        flags[BlockID.PISTON_MOVING_PIECE] |= PLACE_FINAL;
     }
 
     /**
@@ -395,63 +421,60 @@ public enum BlockType {
      * @return
      */
     public static boolean shouldPlaceFinal(int id) {
-        return shouldPlaceFinal.contains(id);
+        return hasFlag(id, PLACE_FINAL);
     }
 
-    /**
-     * HashSet for canPassThrough.
-     */
-    private static final Set<Integer> canPassThrough = new HashSet<Integer>();
+    // flags for canPassThrough()
     static {
-        canPassThrough.add(BlockID.AIR);
-        canPassThrough.add(BlockID.WATER);
-        canPassThrough.add(BlockID.STATIONARY_WATER);
-        canPassThrough.add(BlockID.SAPLING);
-        canPassThrough.add(BlockID.POWERED_RAIL);
-        canPassThrough.add(BlockID.DETECTOR_RAIL);
-        canPassThrough.add(BlockID.WEB);
-        canPassThrough.add(BlockID.LONG_GRASS);
-        canPassThrough.add(BlockID.DEAD_BUSH);
-        canPassThrough.add(BlockID.YELLOW_FLOWER);
-        canPassThrough.add(BlockID.RED_FLOWER);
-        canPassThrough.add(BlockID.BROWN_MUSHROOM);
-        canPassThrough.add(BlockID.RED_MUSHROOM);
-        canPassThrough.add(BlockID.TORCH);
-        canPassThrough.add(BlockID.FIRE);
-        canPassThrough.add(BlockID.REDSTONE_WIRE);
-        canPassThrough.add(BlockID.CROPS);
-        canPassThrough.add(BlockID.SIGN_POST);
-        canPassThrough.add(BlockID.LADDER);
-        canPassThrough.add(BlockID.MINECART_TRACKS);
-        canPassThrough.add(BlockID.WALL_SIGN);
-        canPassThrough.add(BlockID.LEVER);
-        canPassThrough.add(BlockID.STONE_PRESSURE_PLATE);
-        canPassThrough.add(BlockID.WOODEN_PRESSURE_PLATE);
-        canPassThrough.add(BlockID.REDSTONE_TORCH_OFF);
-        canPassThrough.add(BlockID.REDSTONE_TORCH_ON);
-        canPassThrough.add(BlockID.STONE_BUTTON);
-        canPassThrough.add(BlockID.SNOW);
-        canPassThrough.add(BlockID.REED);
-        canPassThrough.add(BlockID.PORTAL);
-        canPassThrough.add(BlockID.REDSTONE_REPEATER_OFF);
-        canPassThrough.add(BlockID.REDSTONE_REPEATER_ON);
-        canPassThrough.add(BlockID.PUMPKIN_STEM);
-        canPassThrough.add(BlockID.MELON_STEM);
-        canPassThrough.add(BlockID.VINE);
-        canPassThrough.add(BlockID.NETHER_WART);
-        canPassThrough.add(BlockID.END_PORTAL);
-        canPassThrough.add(BlockID.TRIPWIRE_HOOK);
-        canPassThrough.add(BlockID.TRIPWIRE);
-        canPassThrough.add(BlockID.FLOWER_POT);
-        canPassThrough.add(BlockID.CARROTS);
-        canPassThrough.add(BlockID.POTATOES);
-        canPassThrough.add(BlockID.WOODEN_BUTTON);
-        canPassThrough.add(BlockID.HEAD);
-        canPassThrough.add(BlockID.PRESSURE_PLATE_LIGHT);
-        canPassThrough.add(BlockID.PRESSURE_PLATE_HEAVY);
-        canPassThrough.add(BlockID.COMPARATOR_OFF);
-        canPassThrough.add(BlockID.COMPARATOR_ON);
-        canPassThrough.add(BlockID.ACTIVATOR_RAIL);
+        flags[BlockID.AIR] |= PASS_THROUGH;
+        flags[BlockID.WATER] |= PASS_THROUGH;
+        flags[BlockID.STATIONARY_WATER] |= PASS_THROUGH;
+        flags[BlockID.SAPLING] |= PASS_THROUGH;
+        flags[BlockID.POWERED_RAIL] |= PASS_THROUGH;
+        flags[BlockID.DETECTOR_RAIL] |= PASS_THROUGH;
+        flags[BlockID.WEB] |= PASS_THROUGH;
+        flags[BlockID.LONG_GRASS] |= PASS_THROUGH;
+        flags[BlockID.DEAD_BUSH] |= PASS_THROUGH;
+        flags[BlockID.YELLOW_FLOWER] |= PASS_THROUGH;
+        flags[BlockID.RED_FLOWER] |= PASS_THROUGH;
+        flags[BlockID.BROWN_MUSHROOM] |= PASS_THROUGH;
+        flags[BlockID.RED_MUSHROOM] |= PASS_THROUGH;
+        flags[BlockID.TORCH] |= PASS_THROUGH;
+        flags[BlockID.FIRE] |= PASS_THROUGH;
+        flags[BlockID.REDSTONE_WIRE] |= PASS_THROUGH;
+        flags[BlockID.CROPS] |= PASS_THROUGH;
+        flags[BlockID.SIGN_POST] |= PASS_THROUGH;
+        flags[BlockID.LADDER] |= PASS_THROUGH;
+        flags[BlockID.MINECART_TRACKS] |= PASS_THROUGH;
+        flags[BlockID.WALL_SIGN] |= PASS_THROUGH;
+        flags[BlockID.LEVER] |= PASS_THROUGH;
+        flags[BlockID.STONE_PRESSURE_PLATE] |= PASS_THROUGH;
+        flags[BlockID.WOODEN_PRESSURE_PLATE] |= PASS_THROUGH;
+        flags[BlockID.REDSTONE_TORCH_OFF] |= PASS_THROUGH;
+        flags[BlockID.REDSTONE_TORCH_ON] |= PASS_THROUGH;
+        flags[BlockID.STONE_BUTTON] |= PASS_THROUGH;
+        flags[BlockID.SNOW] |= PASS_THROUGH;
+        flags[BlockID.REED] |= PASS_THROUGH;
+        flags[BlockID.PORTAL] |= PASS_THROUGH;
+        flags[BlockID.REDSTONE_REPEATER_OFF] |= PASS_THROUGH;
+        flags[BlockID.REDSTONE_REPEATER_ON] |= PASS_THROUGH;
+        flags[BlockID.PUMPKIN_STEM] |= PASS_THROUGH;
+        flags[BlockID.MELON_STEM] |= PASS_THROUGH;
+        flags[BlockID.VINE] |= PASS_THROUGH;
+        flags[BlockID.NETHER_WART] |= PASS_THROUGH;
+        flags[BlockID.END_PORTAL] |= PASS_THROUGH;
+        flags[BlockID.TRIPWIRE_HOOK] |= PASS_THROUGH;
+        flags[BlockID.TRIPWIRE] |= PASS_THROUGH;
+        flags[BlockID.FLOWER_POT] |= PASS_THROUGH;
+        flags[BlockID.CARROTS] |= PASS_THROUGH;
+        flags[BlockID.POTATOES] |= PASS_THROUGH;
+        flags[BlockID.WOODEN_BUTTON] |= PASS_THROUGH;
+        flags[BlockID.HEAD] |= PASS_THROUGH;
+        flags[BlockID.PRESSURE_PLATE_LIGHT] |= PASS_THROUGH;
+        flags[BlockID.PRESSURE_PLATE_HEAVY] |= PASS_THROUGH;
+        flags[BlockID.COMPARATOR_OFF] |= PASS_THROUGH;
+        flags[BlockID.COMPARATOR_ON] |= PASS_THROUGH;
+        flags[BlockID.ACTIVATOR_RAIL] |= PASS_THROUGH;
     }
 
     /**
@@ -461,7 +484,7 @@ public enum BlockType {
      * @return
      */
     public static boolean canPassThrough(int id) {
-        return canPassThrough.contains(id);
+        return hasFlag(id, PASS_THROUGH);
     }
 
     /**
@@ -470,36 +493,50 @@ public enum BlockType {
      * @return
      */
     public boolean canPassThrough() {
-        return canPassThrough.contains(id);
+        return hasFlag(id, PASS_THROUGH);
     }
 
     /**
-     * HashSet for centralTopLimit.
+     * Central top limits by ID; NaN where the block has no special limit.
+     */
+    private static final double[] centralTopLimit = new double[MAX_ID];
+    /**
+     * Central top limits which depend on the block data, indexed by ID and then data.  Only
+     * allocated for those blocks which need it.
      */
-    private static final Map<Integer, Double> centralTopLimit = new HashMap<Integer, Double>();
+    private static final double[][] centralTopLimitByData = new double[MAX_ID][];
     static {
-        centralTopLimit.put(BlockID.BED, 0.5625);
-        centralTopLimit.put(BlockID.BREWING_STAND, 0.875);
-        centralTopLimit.put(BlockID.CAKE_BLOCK, 0.4375);
-        centralTopLimit.put(BlockID.CAULDRON, 0.3125);
-        centralTopLimit.put(BlockID.COCOA_PLANT, 0.750);
-        centralTopLimit.put(BlockID.ENCHANTMENT_TABLE, 0.75);
+        Arrays.fill(centralTopLimit, Double.NaN);
+        centralTopLimit[BlockID.BED] = 0.5625;
+        centralTopLimit[BlockID.BREWING_STAND] = 0.875;
+        centralTopLimit[BlockID.CAKE_BLOCK] = 0.4375;
+        centralTopLimit[BlockID.CAULDRON] = 0.3125;
+        centralTopLimit[BlockID.COCOA_PLANT] = 0.750;
+        centralTopLimit[BlockID.ENCHANTMENT_TABLE] = 0.75;
         for (int data = 0; data < 16; ++data) {
             if ((data & 4) != 0) {
-                centralTopLimit.put(BlockID.END_PORTAL_FRAME, 0.8125);
+                centralTopLimit[BlockID.END_PORTAL_FRAME] = 0.8125;
             }
         }
-        centralTopLimit.put(BlockID.FENCE, 1.5);
-        centralTopLimit.put(BlockID.FENCE_GATE, 1.5);
+        centralTopLimit[BlockID.FENCE] = 1.5;
+        centralTopLimit[BlockID.FENCE_GATE] = 1.5;
         for (int data = 0; data < 8; ++data) {
-            centralTopLimit.put(-16*BlockID.STEP-data, 0.5);
-            centralTopLimit.put(-16*BlockID.WOODEN_STEP-data, 0.5);
+            setCentralTopLimit(BlockID.STEP, data, 0.5);
+            setCentralTopLimit(BlockID.WOODEN_STEP, data, 0.5);
         }
-        centralTopLimit.put(BlockID.LILY_PAD, 0.015625);
-        centralTopLimit.put(BlockID.REDSTONE_REPEATER_ON, .125);
-        centralTopLimit.put(BlockID.REDSTONE_REPEATER_OFF, .125);
-        centralTopLimit.put(BlockID.TRAP_DOOR, 0.1875);
-        centralTopLimit.put(BlockID.SLOW_SAND, 0.875);
+        centralTopLimit[BlockID.LILY_PAD] = 0.015625;
+        centralTopLimit[BlockID.REDSTONE_REPEATER_ON] = .125;
+        centralTopLimit[BlockID.REDSTONE_REPEATER_OFF] = .125;
+        centralTopLimit[BlockID.TRAP_DOOR] = 0.1875;
+        centralTopLimit[BlockID.SLOW_SAND] = 0.875;
+    }
+
+    private static void setCentralTopLimit(int id, int data, double limit) {
+        if (centralTopLimitByData[id] == null) {
+            centralTopLimitByData[id] = new double[16];
+            Arrays.fill(centralTopLimitByData[id], Double.NaN);
+        }
+        centralTopLimitByData[id][data] = limit;
     }
 
     /**
@@ -510,11 +547,14 @@ public enum BlockType {
      * @return
      */
     public static double centralTopLimit(int id, int data) {
-        if (centralTopLimit.containsKey(id))
-            return centralTopLimit.get(id);
+        if (id >= 0 && id < MAX_ID) {
+            if (!Double.isNaN(centralTopLimit[id]))
+                return centralTopLimit[id];
 
-        if (centralTopLimit.containsKey(-16*id-data))
-            return centralTopLimit.get(-16*id-data);
+            double[] byData = centralTopLimitByData[id];
+            if (byData != null && data >= 0 && data < 16 && !Double.isNaN(byData[data]))
+                return byData[data];
+        }
 
         return canPassThrough(id) ? 0 : 1;
     }
@@ -525,109 +565,106 @@ public enum BlockType {
      * @return
      */
     public double centralTopLimit() {
-        if (centralTopLimit.containsKey(id))
-            return centralTopLimit.get(id);
+        if (!Double.isNaN(centralTopLimit[id]))
+            return centralTopLimit[id];
 
         return canPassThrough(id) ? 0 : 1;
     }
 
-    /**
-     * HashSet for usesData.
-     */
-    private static final Set<Integer> usesData = new HashSet<Integer>();
+    // flags for usesData()
     static {
-        usesData.add(BlockID.WOOD);
-        usesData.add(BlockID.SAPLING);
-        usesData.add(BlockID.WATER);
-        usesData.add(BlockID.STATIONARY_WATER);
-        usesData.add(BlockID.LAVA);
-        usesData.add(BlockID.STATIONARY_LAVA);
-        usesData.add(BlockID.LOG);
-        usesData.add(BlockID.LEAVES);
-        usesData.add(BlockID.DISPENSER);
-        usesData.add(BlockID.SANDSTONE);
-        usesData.add(BlockID.BED);
-        usesData.add(BlockID.POWERED_RAIL);
-        usesData.add(BlockID.DETECTOR_RAIL);
-        usesData.add(BlockID.PISTON_STICKY_BASE);
-        usesData.add(BlockID.LONG_GRASS);
-        usesData.add(BlockID.PISTON_BASE);
-        usesData.add(BlockID.PISTON_EXTENSION);
-        usesData.add(BlockID.CLOTH);
-        usesData.add(BlockID.DOUBLE_STEP);
-        usesData.add(BlockID.STEP);
-        usesData.add(BlockID.TORCH);
-        usesData.add(BlockID.FIRE);
-        usesData.add(BlockID.WOODEN_STAIRS);
-        usesData.add(BlockID.CHEST);
-        usesData.add(BlockID.REDSTONE_WIRE);
-        usesData.add(BlockID.CROPS);
-        usesData.add(BlockID.SOIL);
-        usesData.add(BlockID.FURNACE);
-        usesData.add(BlockID.BURNING_FURNACE);
-        usesData.add(BlockID.SIGN_POST);
-        usesData.add(BlockID.WOODEN_DOOR);
-        usesData.add(BlockID.LADDER);
-        usesData.add(BlockID.MINECART_TRACKS);
-        usesData.add(BlockID.COBBLESTONE_STAIRS);
-        usesData.add(BlockID.WALL_SIGN);
-        usesData.add(BlockID.LEVER);
-        usesData.add(BlockID.STONE_PRESSURE_PLATE);
-        usesData.add(BlockID.IRON_DOOR);
-        usesData.add(BlockID.WOODEN_PRESSURE_PLATE);
-        usesData.add(BlockID.REDSTONE_TORCH_OFF);
-        usesData.add(BlockID.REDSTONE_TORCH_ON);
-        usesData.add(BlockID.STONE_BUTTON);
-        usesData.add(BlockID.SNOW);
-        usesData.add(BlockID.CACTUS);
-        usesData.add(BlockID.REED);
-        usesData.add(BlockID.JUKEBOX);
-        usesData.add(BlockID.PUMPKIN);
-        usesData.add(BlockID.JACKOLANTERN);
-        usesData.add(BlockID.CAKE_BLOCK);
-        usesData.add(BlockID.REDSTONE_REPEATER_OFF);
-        usesData.add(BlockID.REDSTONE_REPEATER_ON);
-        usesData.add(BlockID.TRAP_DOOR);
-        usesData.add(BlockID.SILVERFISH_BLOCK);
-        usesData.add(BlockID.STONE_BRICK);
-        usesData.add(BlockID.RED_MUSHROOM_CAP);
-        usesData.add(BlockID.BROWN_MUSHROOM_CAP);
-        usesData.add(BlockID.PUMPKIN_STEM);
-        usesData.add(BlockID.MELON_STEM);
-        usesData.add(BlockID.VINE);
-        usesData.add(BlockID.FENCE_GATE);
-        usesData.add(BlockID.BRICK_STAIRS);
-        usesData.add(BlockID.STONE_BRICK_STAIRS);
-        usesData.add(BlockID.NETHER_BRICK_STAIRS);
-        usesData.add(BlockID.NETHER_WART);
-        usesData.add(BlockID.ENCHANTMENT_TABLE);
-        usesData.add(BlockID.BREWING_STAND);
-        usesData.add(BlockID.CAULDRON);
-        usesData.add(BlockID.END_PORTAL_FRAME);
-        usesData.add(BlockID.DOUBLE_WOODEN_STEP);
-        usesData.add(BlockID.WOODEN_STEP);
-        usesData.add(BlockID.COCOA_PLANT);
-        usesData.add(BlockID.SANDSTONE_STAIRS);
-        usesData.add(BlockID.ENDER_CHEST);
-        usesData.add(BlockID.TRIPWIRE_HOOK);
-        usesData.add(BlockID.TRIPWIRE);
-        usesData.add(BlockID.SPRUCE_WOOD_STAIRS);
-        usesData.add(BlockID.BIRCH_WOOD_STAIRS);
-        usesData.add(BlockID.JUNGLE_WOOD_STAIRS);
-        usesData.add(BlockID.COBBLESTONE_WALL);
-        usesData.add(BlockID.FLOWER_POT);
-        usesData.add(BlockID.CARROTS);
-        usesData.add(BlockID.POTATOES);
-        usesData.add(BlockID.WOODEN_BUTTON);
-        usesData.add(BlockID.HEAD);
-        usesData.add(BlockID.ANVIL);
-        usesData.add(BlockID.PRESSURE_PLATE_LIGHT);
-        usesData.add(BlockID.PRESSURE_PLATE_HEAVY);
-        usesData.add(BlockID.QUARTZ_BLOCK);
-        usesData.add(BlockID.QUARTZ_STAIRS);
-        usesData.add(BlockID.ACTIVATOR_RAIL);
-        usesData.add(BlockID.DROPPER);
-        usesData.add(BlockID.HOPPER);
+        flags[BlockID.WOOD] |= USES_DATA;
+        flags[BlockID.SAPLING] |= USES_DATA;
+        flags[BlockID.WATER] |= USES_DATA;
+        flags[BlockID.STATIONARY_WATER] |= USES_DATA;
+        flags[BlockID.LAVA] |= USES_DATA;
+        flags[BlockID.STATIONARY_LAVA] |= USES_DATA;
+        flags[BlockID.LOG] |= USES_DATA;
+        flags[BlockID.LEAVES] |= USES_DATA;
+        flags[BlockID.DISPENSER] |= USES_DATA;
+        flags[BlockID.SANDSTONE] |= USES_DATA;
+        flags[BlockID.BED] |= USES_DATA;
+        flags[BlockID.POWERED_RAIL] |= USES_DATA;
+        flags[BlockID.DETECTOR_RAIL] |= USES_DATA;
+        flags[BlockID.PISTON_STICKY_BASE] |= USES_DATA;
+        flags[BlockID.LONG_GRASS] |= USES_DATA;
+        flags[BlockID.PISTON_BASE] |= USES_DATA;
+        flags[BlockID.PISTON_EXTENSION] |= USES_DATA;
+        flags[BlockID.CLOTH] |= USES_DATA;
+        flags[BlockID.DOUBLE_STEP] |= USES_DATA;
+        flags[BlockID.STEP] |= USES_DATA;
+        flags[BlockID.TORCH] |= USES_DATA;
+        flags[BlockID.FIRE] |= USES_DATA;
+        flags[BlockID.WOODEN_STAIRS] |= USES_DATA;
+        flags[BlockID.CHEST] |= USES_DATA;
+        flags[BlockID.REDSTONE_WIRE] |= USES_DATA;
+        flags[BlockID.CROPS] |= USES_DATA;
+        flags[BlockID.SOIL] |= USES_DATA;
+        flags[BlockID.FURNACE] |= USES_DATA;
+        flags[BlockID.BURNING_FURNACE] |= USES_DATA;
+        flags[BlockID.SIGN_POST] |= USES_DATA;
+        flags[BlockID.WOODEN_DOOR] |= USES_DATA;
+        flags[BlockID.LADDER] |= USES_DATA;
+        flags[BlockID.MINECART_TRACKS] |= USES_DATA;
+        flags[BlockID.COBBLESTONE_STAIRS] |= USES_DATA;
+        flags[BlockID.WALL_SIGN] |= USES_DATA;
+        flags[BlockID.LEVER] |= USES_DATA;
+        flags[BlockID.STONE_PRESSURE_PLATE] |= USES_DATA;
+        flags[BlockID.IRON_DOOR] |= USES_DATA;
+        flags[BlockID.WOODEN_PRESSURE_PLATE] |= USES_DATA;
+        flags[BlockID.REDSTONE_TORCH_OFF] |= USES_DATA;
+        flags[BlockID.REDSTONE_TORCH_ON] |= USES_DATA;
+        flags[BlockID.STONE_BUTTON] |= USES_DATA;
+        flags[BlockID.SNOW] |= USES_DATA;
+        flags[BlockID.CACTUS] |= USES_DATA;
+        flags[BlockID.REED] |= USES_DATA;
+        flags[BlockID.JUKEBOX] |= USES_DATA;
+        flags[BlockID.PUMPKIN] |= USES_DATA;
+        flags[BlockID.JACKOLANTERN] |= USES_DATA;
+        flags[BlockID.CAKE_BLOCK] |= USES_DATA;
+        flags[BlockID.REDSTONE_REPEATER_OFF] |= USES_DATA;
+        flags[BlockID.REDSTONE_REPEATER_ON] |= USES_DATA;
+        flags[BlockID.TRAP_DOOR] |= USES_DATA;
+        flags[BlockID.SILVERFISH_BLOCK] |= USES_DATA;
+        flags[BlockID.STONE_BRICK] |= USES_DATA;
+        flags[BlockID.RED_MUSHROOM_CAP] |= USES_DATA;
+        flags[BlockID.BROWN_MUSHROOM_CAP] |= USES_DATA;
+        flags[BlockID.PUMPKIN_STEM] |= USES_DATA;
+        flags[BlockID.MELON_STEM] |= USES_DATA;
+        flags[BlockID.VINE] |= USES_DATA;
+        flags[BlockID.FENCE_GATE] |= USES_DATA;
+        flags[BlockID.BRICK_STAIRS] |= USES_DATA;
+        flags[BlockID.STONE_BRICK_STAIRS] |= USES_DATA;
+        flags[BlockID.NETHER_BRICK_STAIRS] |= USES_DATA;
+        flags[BlockID.NETHER_WART] |= USES_DATA;
+        flags[BlockID.ENCHANTMENT_TABLE] |= USES_DATA;
+        flags[BlockID.BREWING_STAND] |= USES_DATA;
+        flags[BlockID.CAULDRON] |= USES_DATA;
+        flags[BlockID.END_PORTAL_FRAME] |= USES_DATA;
+        flags[BlockID.DOUBLE_WOODEN_STEP] |= USES_DATA;
+        flags[BlockID.WOODEN_STEP] |= USES_DATA;
+        flags[BlockID.COCOA_PLANT] |= USES_DATA;
+        flags[BlockID.SANDSTONE_STAIRS] |= USES_DATA;
+        flags[BlockID.ENDER_CHEST] |= USES_DATA;
+        flags[BlockID.TRIPWIRE_HOOK] |= USES_DATA;
+        flags[BlockID.TRIPWIRE] |= USES_DATA;
+        flags[BlockID.SPRUCE_WOOD_STAIRS] |= USES_DATA;
+        flags[BlockID.BIRCH_WOOD_STAIRS] |= USES_DATA;
+        flags[BlockID.JUNGLE_WOOD_STAIRS] |= USES_DATA;
+        flags[BlockID.COBBLESTONE_WALL] |= USES_DATA;
+        flags[BlockID.FLOWER_POT] |= USES_DATA;
+        flags[BlockID.CARROTS] |= USES_DATA;
+        flags[BlockID.POTATOES] |= USES_DATA;
+        flags[BlockID.WOODEN_BUTTON] |= USES_DATA;
+        flags[BlockID.HEAD] |= USES_DATA;
+        flags[BlockID.ANVIL] |= USES_DATA;
+        flags[BlockID.PRESSURE_PLATE_LIGHT] |= USES_DATA;
+        flags[BlockID.PRESSURE_PLATE_HEAVY] |= USES_DATA;
+        flags[BlockID.QUARTZ_BLOCK] |= USES_DATA;
+        flags[BlockID.QUARTZ_STAIRS] |= USES_DATA;
+        flags[BlockID.ACTIVATOR_RAIL] |= USES_DATA;
+        flags[BlockID.DROPPER] |= USES_DATA;
+        flags[BlockID.HOPPER] |= USES_DATA;
     }
 
     /**
@@ -637,7 +674,7 @@ public enum BlockType {
      * @return
      */
     public static boolean usesData(int id) {
-        return usesData.contains(id);
+        return hasFlag(id, USES_DATA);
     }
 
     /**
@@ -646,23 +683,20 @@ public enum BlockType {
      * @return
      */
     public boolean usesData() {
-        return usesData.contains(id);
+        return hasFlag(id, USES_DATA);
     }
 
-    /**
-     * HashSet for isContainerBlock.
-     */
-    private static final Set<Integer> isContainerBlock = new HashSet<Integer>();
+    // flags for isContainerBlock()
     static {
-        isContainerBlock.add(BlockID.DISPENSER);
-        isContainerBlock.add(BlockID.FURNACE);
-        isContainerBlock.add(BlockID.BURNING_FURNACE);
-        isContainerBlock.add(BlockID.CHEST);
-        isContainerBlock.add(BlockID.BREWING_STAND);
-        isContainerBlock.add(BlockID.TRAPPED_CHEST);
-        isContainerBlock.add(BlockID.HOPPER);
-        isContainerBlock.add(BlockID.DROPPER);
-        //isContainerBlock.add(BlockID.ENDER_CHEST); // ender chest has no own inventory, don't add this here
+        flags[BlockID.DISPENSER] |= CONTAINER;
+        flags[BlockID.FURNACE] |= CONTAINER;
+        flags[BlockID.BURNING_FURNACE] |= CONTAINER;
+        flags[BlockID.CHEST] |= CONTAINER;
+        flags[BlockID.BREWING_STAND] |= CONTAINER;
+        flags[BlockID.TRAPPED_CHEST] |= CONTAINER;
+        flags[BlockID.HOPPER] |= CONTAINER;
+        flags[BlockID.DROPPER] |= CONTAINER;
+        //flags[BlockID.ENDER_CHEST] |= CONTAINER; // ender chest has no own inventory, don't add this here
     }
 
     /**
@@ -672,7 +706,7 @@ public enum BlockType {
      * @return
      */
     public static boolean isContainerBlock(int id) {
-        return isContainerBlock.contains(id);
+        return hasFlag(id, CONTAINER);
     }
 
     /**
@@ -681,45 +715,42 @@ public enum BlockType {
      * @return
      */
     public boolean isContainerBlock() {
-        return isContainerBlock.contains(id);
+        return hasFlag(id, CONTAINER);
     }
 
-    /**
-     * HashSet for isRedstoneBlock.
-     */
-    private static final Set<Integer> isRedstoneBlock = new HashSet<Integer>();
+    // flags for isRedstoneBlock()
     static {
-        isRedstoneBlock.add(BlockID.POWERED_RAIL);
-        isRedstoneBlock.add(BlockID.DETECTOR_RAIL);
-        isRedstoneBlock.add(BlockID.PISTON_STICKY_BASE);
-        isRedstoneBlock.add(BlockID.PISTON_BASE);
-        isRedstoneBlock.add(BlockID.LEVER);
-        isRedstoneBlock.add(BlockID.STONE_PRESSURE_PLATE);
-        isRedstoneBlock.add(BlockID.WOODEN_PRESSURE_PLATE);
-        isRedstoneBlock.add(BlockID.REDSTONE_TORCH_OFF);
-        isRedstoneBlock.add(BlockID.REDSTONE_TORCH_ON);
-        isRedstoneBlock.add(BlockID.STONE_BUTTON);
-        isRedstoneBlock.add(BlockID.REDSTONE_WIRE);
-        isRedstoneBlock.add(BlockID.WOODEN_DOOR);
-        isRedstoneBlock.add(BlockID.IRON_DOOR);
-        isRedstoneBlock.add(BlockID.TNT);
-        isRedstoneBlock.add(BlockID.DISPENSER);
-        isRedstoneBlock.add(BlockID.NOTE_BLOCK);
-        isRedstoneBlock.add(BlockID.REDSTONE_REPEATER_OFF);
-        isRedstoneBlock.add(BlockID.REDSTONE_REPEATER_ON);
-        isRedstoneBlock.add(BlockID.TRIPWIRE_HOOK);
-        isRedstoneBlock.add(BlockID.COMMAND_BLOCK);
-        isRedstoneBlock.add(BlockID.WOODEN_BUTTON);
-        isRedstoneBlock.add(BlockID.TRAPPED_CHEST);
-        isRedstoneBlock.add(BlockID.PRESSURE_PLATE_LIGHT);
-        isRedstoneBlock.add(BlockID.PRESSURE_PLATE_HEAVY);
-        isRedstoneBlock.add(BlockID.COMPARATOR_OFF);
-        isRedstoneBlock.add(BlockID.COMPARATOR_ON);
-        isRedstoneBlock.add(BlockID.DAYLIGHT_SENSOR);
-        isRedstoneBlock.add(BlockID.REDSTONE_BLOCK);
-        isRedstoneBlock.add(BlockID.HOPPER);
-        isRedstoneBlock.add(BlockID.ACTIVATOR_RAIL);
-        isRedstoneBlock.add(BlockID.DROPPER);
+        flags[BlockID.POWERED_RAIL] |= REDSTONE_BLOCK;
+        flags[BlockID.DETECTOR_RAIL] |= REDSTONE_BLOCK;
+        flags[BlockID.PISTON_STICKY_BASE] |= REDSTONE_BLOCK;
+        flags[BlockID.PISTON_BASE] |= REDSTONE_BLOCK;
+        flags[BlockID.LEVER] |= REDSTONE_BLOCK;
+        flags[BlockID.STONE_PRESSURE_PLATE] |= REDSTONE_BLOCK;
+        flags[BlockID.WOODEN_PRESSURE_PLATE] |= REDSTONE_BLOCK;
+        flags[BlockID.REDSTONE_TORCH_OFF] |= REDSTONE_BLOCK;
+        flags[BlockID.REDSTONE_TORCH_ON] |= REDSTONE_BLOCK;
+        flags[BlockID.STONE_BUTTON] |= REDSTONE_BLOCK;
+        flags[BlockID.REDSTONE_WIRE] |= REDSTONE_BLOCK;
+        flags[BlockID.WOODEN_DOOR] |= REDSTONE_BLOCK;
+        flags[BlockID.IRON_DOOR] |= REDSTONE_BLOCK;
+        flags[BlockID.TNT] |= REDSTONE_BLOCK;
+        flags[BlockID.DISPENSER] |= REDSTONE_BLOCK;
+        flags[BlockID.NOTE_BLOCK] |= REDSTONE_BLOCK;
+        flags[BlockID.REDSTONE_REPEATER_OFF] |= REDSTONE_BLOCK;
+        flags[BlockID.REDSTONE_REPEATER_ON] |= REDSTONE_BLOCK;
+        flags[BlockID.TRIPWIRE_HOOK] |= REDSTONE_BLOCK;
+        flags[BlockID.COMMAND_BLOCK] |= REDSTONE_BLOCK;
+        flags[BlockID.WOODEN_BUTTON] |= REDSTONE_BLOCK;
+        flags[BlockID.TRAPPED_CHEST] |= REDSTONE_BLOCK;
+        flags[BlockID.PRESSURE_PLATE_LIGHT] |= REDSTONE_BLOCK;
+        flags[BlockID.PRESSURE_PLATE_HEAVY] |= REDSTONE_BLOCK;
+        flags[BlockID.COMPARATOR_OFF] |= REDSTONE_BLOCK;
+        flags[BlockID.COMPARATOR_ON] |= REDSTONE_BLOCK;
+        flags[BlockID.DAYLIGHT_SENSOR] |= REDSTONE_BLOCK;
+        flags[BlockID.REDSTONE_BLOCK] |= REDSTONE_BLOCK;
+        flags[BlockID.HOPPER] |= REDSTONE_BLOCK;
+        flags[BlockID.ACTIVATOR_RAIL] |= REDSTONE_BLOCK;
+        flags[BlockID.DROPPER] |= REDSTONE_BLOCK;
     }
 
     /**
@@ -729,7 +760,7 @@ public enum BlockType {
      * @return
      */
     public static boolean isRedstoneBlock(int id) {
-        return isRedstoneBlock.contains(id);
+        return hasFlag(id, REDSTONE_BLOCK);
     }
 
     /**
@@ -738,21 +769,18 @@ public enum BlockType {
      * @return
      */
     public boolean isRedstoneBlock() {
-        return isRedstoneBlock.contains(id);
+        return hasFlag(id, REDSTONE_BLOCK);
     }
 
-    /**
-     * HashSet for canTransferRedstone.
-     */
-    private static final Set<Integer> canTransferRedstone = new HashSet<Integer>();
+    // flags for canTransferRedstone()
     static {
-        canTransferRedstone.add(BlockID.REDSTONE_TORCH_OFF);
-        canTransferRedstone.add(BlockID.REDSTONE_TORCH_ON);
-        canTransferRedstone.add(BlockID.REDSTONE_WIRE);
-        canTransferRedstone.add(BlockID.REDSTONE_REPEATER_OFF);
-        canTransferRedstone.add(BlockID.REDSTONE_REPEATER_ON);
-        canTransferRedstone.add(BlockID.COMPARATOR_OFF);
-        canTransferRedstone.add(BlockID.COMPARATOR_ON);
+        flags[BlockID.REDSTONE_TORCH_OFF] |= TRANSFERS_REDSTONE;
+        flags[BlockID.REDSTONE_TORCH_ON] |= TRANSFERS_REDSTONE;
+        flags[BlockID.REDSTONE_WIRE] |= TRANSFERS_REDSTONE;
+        flags[BlockID.REDSTONE_REPEATER_OFF] |= TRANSFERS_REDSTONE;
+        flags[BlockID.REDSTONE_REPEATER_ON] |= TRANSFERS_REDSTONE;
+        flags[BlockID.COMPARATOR_OFF] |= TRANSFERS_REDSTONE;
+        flags[BlockID.COMPARATOR_ON] |= TRANSFERS_REDSTONE;
     }
 
     /**
@@ -763,7 +791,7 @@ public enum BlockType {
      * @return
      */
     public static boolean canTransferRedstone(int id) {
-        return canTransferRedstone.contains(id);
+        return hasFlag(id, TRANSFERS_REDSTONE);
     }
 
     /**
@@ -773,27 +801,24 @@ public enum BlockType {
      * @return
      */
     public boolean canTransferRedstone() {
-        return canTransferRedstone.contains(id);
+        return hasFlag(id, TRANSFERS_REDSTONE);
     }
 
-    /**
-     * HashSet for isRedstoneSource.
-     */
-    private static final Set<Integer> isRedstoneSource = new HashSet<Integer>();
+    // flags for isRedstoneSource()
     static {
-        isRedstoneSource.add(BlockID.DETECTOR_RAIL);
-        isRedstoneSource.add(BlockID.REDSTONE_TORCH_OFF);
-        isRedstoneSource.add(BlockID.REDSTONE_TORCH_ON);
-        isRedstoneSource.add(BlockID.LEVER);
-        isRedstoneSource.add(BlockID.STONE_PRESSURE_PLATE);
-        isRedstoneSource.add(BlockID.WOODEN_PRESSURE_PLATE);
-        isRedstoneSource.add(BlockID.STONE_BUTTON);
-        isRedstoneSource.add(BlockID.TRIPWIRE_HOOK);
-        isRedstoneSource.add(BlockID.WOODEN_BUTTON);
-        isRedstoneSource.add(BlockID.PRESSURE_PLATE_LIGHT);
-        isRedstoneSource.add(BlockID.PRESSURE_PLATE_HEAVY);
-        isRedstoneSource.add(BlockID.DAYLIGHT_SENSOR);
-        isRedstoneSource.add(BlockID.REDSTONE_BLOCK);
+        flags[BlockID.DETECTOR_RAIL] |= REDSTONE_SOURCE;
+        flags[BlockID.REDSTONE_TORCH_OFF] |= REDSTONE_SOURCE;
+        flags[BlockID.REDSTONE_TORCH_ON] |= REDSTONE_SOURCE;
+        flags[BlockID.LEVER] |= REDSTONE_SOURCE;
+        flags[BlockID.STONE_PRESSURE_PLATE] |= REDSTONE_SOURCE;
+        flags[BlockID.WOODEN_PRESSURE_PLATE] |= REDSTONE_SOURCE;
+        flags[BlockID.STONE_BUTTON] |= REDSTONE_SOURCE;
+        flags[BlockID.TRIPWIRE_HOOK] |= REDSTONE_SOURCE;
+        flags[BlockID.WOODEN_BUTTON] |= REDSTONE_SOURCE;
+        flags[BlockID.PRESSURE_PLATE_LIGHT] |= REDSTONE_SOURCE;
+        flags[BlockID.PRESSURE_PLATE_HEAVY] |= REDSTONE_SOURCE;
+        flags[BlockID.DAYLIGHT_SENSOR] |= REDSTONE_SOURCE;
+        flags[BlockID.REDSTONE_BLOCK] |= REDSTONE_SOURCE;
     }
 
     /**
@@ -803,7 +828,7 @@ public enum BlockType {
      * @return
      */
     public static boolean isRedstoneSource(int id) {
-        return isRedstoneSource.contains(id);
+        return hasFlag(id, REDSTONE_SOURCE);
     }
 
     /**
@@ -812,18 +837,15 @@ public enum BlockType {
      * @return
      */
     public boolean isRedstoneSource() {
-        return isRedstoneSource.contains(id);
+        return hasFlag(id, REDSTONE_SOURCE);
     }
 
-    /**
-     * HashSet for isRailBlock.
-     */
-    private static final Set<Integer> isRailBlock = new HashSet<Integer>();
+    // flags for isRailBlock()
     static {
-        isRailBlock.add(BlockID.POWERED_RAIL);
-        isRailBlock.add(BlockID.DETECTOR_RAIL);
-        isRailBlock.add(BlockID.MINECART_TRACKS);
-        isRailBlock.add(BlockID.ACTIVATOR_RAIL);
+        flags[BlockID.POWERED_RAIL] |= RAIL;
+        flags[BlockID.DETECTOR_RAIL] |= RAIL;
+        flags[BlockID.MINECART_TRACKS] |= RAIL;
+        flags[BlockID.ACTIVATOR_RAIL] |= RAIL;
     }
 
     /**
@@ -833,7 +855,7 @@ public enum BlockType {
      * @return
      */
     public static boolean isRailBlock(int id) {
-        return isRailBlock.contains(id);
+        return hasFlag(id, RAIL);
     }
 
     /**
@@ -842,39 +864,36 @@ public enum BlockType {
      * @return
      */
     public boolean isRailBlock() {
-        return isRailBlock.contains(id);
+        return hasFlag(id, RAIL);
     }
 
-    /**
-     * HashSet for isNaturalBlock.
-     */
-    private static final Set<Integer> isNaturalTerrainBlock = new HashSet<Integer>();
+    // flags for isNaturalTerrainBlock()
     static {
-        isNaturalTerrainBlock.add(BlockID.STONE);
-        isNaturalTerrainBlock.add(BlockID.GRASS);
-        isNaturalTerrainBlock.add(BlockID.DIRT);
+        flags[BlockID.STONE] |= NATURAL_TERRAIN;
+        flags[BlockID.GRASS] |= NATURAL_TERRAIN;
+        flags[BlockID.DIRT] |= NATURAL_TERRAIN;
         // isNaturalBlock.add(BlockID.COBBLESTONE); // technically can occur next to water and lava
-        isNaturalTerrainBlock.add(BlockID.BEDROCK);
-        isNaturalTerrainBlock.add(BlockID.SAND);
-        isNaturalTerrainBlock.add(BlockID.GRAVEL);
-        isNaturalTerrainBlock.add(BlockID.CLAY);
-        isNaturalTerrainBlock.add(BlockID.MYCELIUM);
+        flags[BlockID.BEDROCK] |= NATURAL_TERRAIN;
+        flags[BlockID.SAND] |= NATURAL_TERRAIN;
+        flags[BlockID.GRAVEL] |= NATURAL_TERRAIN;
+        flags[BlockID.CLAY] |= NATURAL_TERRAIN;
+        flags[BlockID.MYCELIUM] |= NATURAL_TERRAIN;
 
         // hell
-        isNaturalTerrainBlock.add(BlockID.NETHERSTONE);
-        isNaturalTerrainBlock.add(BlockID.SLOW_SAND);
-        isNaturalTerrainBlock.add(BlockID.LIGHTSTONE);
-        isNaturalTerrainBlock.add(BlockID.QUARTZ_ORE);
+        flags[BlockID.NETHERSTONE] |= NATURAL_TERRAIN;
+        flags[BlockID.SLOW_SAND] |= NATURAL_TERRAIN;
+        flags[BlockID.LIGHTSTONE] |= NATURAL_TERRAIN;
+        flags[BlockID.QUARTZ_ORE] |= NATURAL_TERRAIN;
 
         // ores
-        isNaturalTerrainBlock.add(BlockID.COAL_ORE);
-        isNaturalTerrainBlock.add(BlockID.IRON_ORE);
-        isNaturalTerrainBlock.add(BlockID.GOLD_ORE);
-        isNaturalTerrainBlock.add(BlockID.LAPIS_LAZULI_ORE);
-        isNaturalTerrainBlock.add(BlockID.DIAMOND_ORE);
-        isNaturalTerrainBlock.add(BlockID.REDSTONE_ORE);
-        isNaturalTerrainBlock.add(BlockID.GLOWING_REDSTONE_ORE);
-        isNaturalTerrainBlock.add(BlockID.EMERALD_ORE);
+        flags[BlockID.COAL_ORE] |= NATURAL_TERRAIN;
+        flags[BlockID.IRON_ORE] |= NATURAL_TERRAIN;
+        flags[BlockID.GOLD_ORE] |= NATURAL_TERRAIN;
+        flags[BlockID.LAPIS_LAZULI_ORE] |= NATURAL_TERRAIN;
+        flags[BlockID.DIAMOND_ORE] |= NATURAL_TERRAIN;
+        flags[BlockID.REDSTONE_ORE] |= NATURAL_TERRAIN;
+        flags[BlockID.GLOWING_REDSTONE_ORE] |= NATURAL_TERRAIN;
+        flags[BlockID.EMERALD_ORE] |= NATURAL_TERRAIN;
     }
 
     /**
@@ -884,7 +903,7 @@ public enum BlockType {
      * @return
      */
     public static boolean isNaturalTerrainBlock(int id) {
-        return isNaturalTerrainBlock.contains(id);
+        return hasFlag(id, NATURAL_TERRAIN);
     }
 
     /**
@@ -893,35 +912,32 @@ public enum BlockType {
      * @return
      */
     public boolean isNaturalTerrainBlock() {
-        return isNaturalTerrainBlock.contains(id);
+        return hasFlag(id, NATURAL_TERRAIN);
     }
 
-    /**
-     * HashSet for emitsLight.
-     */
-    private static final Set<Integer> emitsLight = new HashSet<Integer>();
+    // flags for emitsLight()
     static {
-        emitsLight.add(BlockID.LAVA);
-        emitsLight.add(BlockID.STATIONARY_LAVA);
-        emitsLight.add(BlockID.BROWN_MUSHROOM);
-        emitsLight.add(BlockID.RED_MUSHROOM);
-        emitsLight.add(BlockID.TORCH);
-        emitsLight.add(BlockID.FIRE);
-        emitsLight.add(BlockID.BURNING_FURNACE);
-        emitsLight.add(BlockID.GLOWING_REDSTONE_ORE);
-        emitsLight.add(BlockID.REDSTONE_TORCH_ON);
-        emitsLight.add(BlockID.LIGHTSTONE);
-        emitsLight.add(BlockID.PORTAL);
-        emitsLight.add(BlockID.JACKOLANTERN);
-        emitsLight.add(BlockID.REDSTONE_REPEATER_ON);
-        emitsLight.add(BlockID.LOCKED_CHEST);
-        emitsLight.add(BlockID.BROWN_MUSHROOM_CAP);
-        emitsLight.add(BlockID.RED_MUSHROOM_CAP);
-        emitsLight.add(BlockID.END_PORTAL);
-        emitsLight.add(BlockID.REDSTONE_LAMP_ON);
-        emitsLight.add(BlockID.ENDER_CHEST);
-        emitsLight.add(BlockID.BEACON);
-        emitsLight.add(BlockID.REDSTONE_BLOCK);
+        flags[BlockID.LAVA] |= EMITS_LIGHT;
+        flags[BlockID.STATIONARY_LAVA] |= EMITS_LIGHT;
+        flags[BlockID.BROWN_MUSHROOM] |= EMITS_LIGHT;
+        flags[BlockID.RED_MUSHROOM] |= EMITS_LIGHT;
+        flags[BlockID.TORCH] |= EMITS_LIGHT;
+        flags[BlockID.FIRE] |= EMITS_LIGHT;
+        flags[BlockID.BURNING_FURNACE] |= EMITS_LIGHT;
+        flags[BlockID.GLOWING_REDSTONE_ORE] |= EMITS_LIGHT;
+        flags[BlockID.REDSTONE_TORCH_ON] |= EMITS_LIGHT;
+        flags[BlockID.LIGHTSTONE] |= EMITS_LIGHT;
+        flags[BlockID.PORTAL] |= EMITS_LIGHT;
+        flags[BlockID.JACKOLANTERN] |= EMITS_LIGHT;
+        flags[BlockID.REDSTONE_REPEATER_ON] |= EMITS_LIGHT;
+        flags[BlockID.LOCKED_CHEST] |= EMITS_LIGHT;
+        flags[BlockID.BROWN_MUSHROOM_CAP] |= EMITS_LIGHT;
+        flags[BlockID.RED_MUSHROOM_CAP] |= EMITS_LIGHT;
+        flags[BlockID.END_PORTAL] |= EMITS_LIGHT;
+        flags[BlockID.REDSTONE_LAMP_ON] |= EMITS_LIGHT;
+        flags[BlockID.ENDER_CHEST] |= EMITS_LIGHT;
+        flags[BlockID.BEACON] |= EMITS_LIGHT;
+        flags[BlockID.REDSTONE_BLOCK] |= EMITS_LIGHT;
     }
 
     /**
@@ -931,104 +947,101 @@ public enum BlockType {
      * @return
      */
     public static boolean emitsLight(int id) {
-        return emitsLight.contains(id);
+        return hasFlag(id, EMITS_LIGHT);
     }
 
-    /**
-     * HashSet for isTranslucent.
-     */
-    private static final Set<Integer> isTranslucent = new HashSet<Integer>();
+    // flags for isTranslucent()
     static {
-        isTranslucent.add(BlockID.AIR);
-        isTranslucent.add(BlockID.SAPLING);
-        isTranslucent.add(BlockID.WATER);
-        isTranslucent.add(BlockID.STATIONARY_WATER);
-        isTranslucent.add(BlockID.LEAVES);
-        isTranslucent.add(BlockID.GLASS);
-        isTranslucent.add(BlockID.BED);
-        isTranslucent.add(BlockID.POWERED_RAIL);
-        isTranslucent.add(BlockID.DETECTOR_RAIL);
-        //isTranslucent.add(BlockID.PISTON_STICKY_BASE);
-        isTranslucent.add(BlockID.WEB);
-        isTranslucent.add(BlockID.LONG_GRASS);
-        isTranslucent.add(BlockID.DEAD_BUSH);
-        //isTranslucent.add(BlockID.PISTON_BASE);
-        isTranslucent.add(BlockID.PISTON_EXTENSION);
-        //isTranslucent.add(BlockID.PISTON_MOVING_PIECE);
-        isTranslucent.add(BlockID.YELLOW_FLOWER);
-        isTranslucent.add(BlockID.RED_FLOWER);
-        isTranslucent.add(BlockID.BROWN_MUSHROOM);
-        isTranslucent.add(BlockID.RED_MUSHROOM);
-        isTranslucent.add(BlockID.TORCH);
-        isTranslucent.add(BlockID.FIRE);
-        isTranslucent.add(BlockID.MOB_SPAWNER);
-        isTranslucent.add(BlockID.WOODEN_STAIRS);
-        isTranslucent.add(BlockID.CHEST);
-        isTranslucent.add(BlockID.REDSTONE_WIRE);
-        isTranslucent.add(BlockID.CROPS);
-        isTranslucent.add(BlockID.SIGN_POST);
-        isTranslucent.add(BlockID.WOODEN_DOOR);
-        isTranslucent.add(BlockID.LADDER);
-        isTranslucent.add(BlockID.MINECART_TRACKS);
-        isTranslucent.add(BlockID.COBBLESTONE_STAIRS);
-        isTranslucent.add(BlockID.WALL_SIGN);
-        isTranslucent.add(BlockID.LEVER);
-        isTranslucent.add(BlockID.STONE_PRESSURE_PLATE);
-        isTranslucent.add(BlockID.IRON_DOOR);
-        isTranslucent.add(BlockID.WOODEN_PRESSURE_PLATE);
-        isTranslucent.add(BlockID.REDSTONE_TORCH_OFF);
-        isTranslucent.add(BlockID.REDSTONE_TORCH_ON);
-        isTranslucent.add(BlockID.STONE_BUTTON);
-        isTranslucent.add(BlockID.SNOW);
-        isTranslucent.add(BlockID.ICE);
-        isTranslucent.add(BlockID.CACTUS);
-        isTranslucent.add(BlockID.REED);
-        isTranslucent.add(BlockID.FENCE);
-        isTranslucent.add(BlockID.PORTAL);
-        isTranslucent.add(BlockID.CAKE_BLOCK);
-        isTranslucent.add(BlockID.REDSTONE_REPEATER_OFF);
-        isTranslucent.add(BlockID.REDSTONE_REPEATER_ON);
-        isTranslucent.add(BlockID.TRAP_DOOR);
-        isTranslucent.add(BlockID.IRON_BARS);
-        isTranslucent.add(BlockID.GLASS_PANE);
-        isTranslucent.add(BlockID.PUMPKIN_STEM);
-        isTranslucent.add(BlockID.MELON_STEM);
-        isTranslucent.add(BlockID.VINE);
-        isTranslucent.add(BlockID.FENCE_GATE);
-        isTranslucent.add(BlockID.BRICK_STAIRS);
-        isTranslucent.add(BlockID.STONE_BRICK_STAIRS);
-        isTranslucent.add(BlockID.LILY_PAD);
-        isTranslucent.add(BlockID.NETHER_BRICK_FENCE);
-        isTranslucent.add(BlockID.NETHER_BRICK_STAIRS);
-        isTranslucent.add(BlockID.NETHER_WART);
-        isTranslucent.add(BlockID.ENCHANTMENT_TABLE);
-        isTranslucent.add(BlockID.BREWING_STAND);
-        isTranslucent.add(BlockID.CAULDRON);
-        isTranslucent.add(BlockID.WOODEN_STEP);
-        isTranslucent.add(BlockID.COCOA_PLANT);
-        isTranslucent.add(BlockID.SANDSTONE_STAIRS);
-        isTranslucent.add(BlockID.ENDER_CHEST);
-        isTranslucent.add(BlockID.TRIPWIRE_HOOK);
-        isTranslucent.add(BlockID.TRIPWIRE);
-        isTranslucent.add(BlockID.SPRUCE_WOOD_STAIRS);
-        isTranslucent.add(BlockID.BIRCH_WOOD_STAIRS);
-        isTranslucent.add(BlockID.JUNGLE_WOOD_STAIRS);
-        isTranslucent.add(BlockID.COBBLESTONE_WALL);
-        isTranslucent.add(BlockID.FLOWER_POT);
-        isTranslucent.add(BlockID.CARROTS);
-        isTranslucent.add(BlockID.POTATOES);
-        isTranslucent.add(BlockID.WOODEN_BUTTON);
-        isTranslucent.add(BlockID.HEAD);
-        isTranslucent.add(BlockID.ANVIL);
-        isTranslucent.add(BlockID.TRAPPED_CHEST);
-        isTranslucent.add(BlockID.PRESSURE_PLATE_LIGHT);
-        isTranslucent.add(BlockID.PRESSURE_PLATE_HEAVY);
-        isTranslucent.add(BlockID.COMPARATOR_OFF);
-        isTranslucent.add(BlockID.COMPARATOR_ON);
-        isTranslucent.add(BlockID.DAYLIGHT_SENSOR);
-        isTranslucent.add(BlockID.HOPPER);
-        isTranslucent.add(BlockID.QUARTZ_STAIRS);
-        isTranslucent.add(BlockID.ACTIVATOR_RAIL);
+        flags[BlockID.AIR] |= TRANSLUCENT;
+        flags[BlockID.SAPLING] |= TRANSLUCENT;
+        flags[BlockID.WATER] |= TRANSLUCENT;
+        flags[BlockID.STATIONARY_WATER] |= TRANSLUCENT;
+        flags[BlockID.LEAVES] |= TRANSLUCENT;
+        flags[BlockID.GLASS] |= TRANSLUCENT;
+        flags[BlockID.BED] |= TRANSLUCENT;
+        flags[BlockID.POWERED_RAIL] |= TRANSLUCENT;
+        flags[BlockID.DETECTOR_RAIL] |= TRANSLUCENT;
+        //flags[BlockID.PISTON_STICKY_BASE] |= TRANSLUCENT;
+        flags[BlockID.WEB] |= TRANSLUCENT;
+        flags[BlockID.LONG_GRASS] |= TRANSLUCENT;
+        flags[BlockID.DEAD_BUSH] |= TRANSLUCENT;
+        //flags[BlockID.PISTON_BASE] |= TRANSLUCENT;
+        flags[BlockID.PISTON_EXTENSION] |= TRANSLUCENT;
+        //flags[BlockID.PISTON_MOVING_PIECE] |= TRANSLUCENT;
+        flags[BlockID.YELLOW_FLOWER] |= TRANSLUCENT;
+        flags[BlockID.RED_FLOWER] |= TRANSLUCENT;
+        flags[BlockID.BROWN_MUSHROOM] |= TRANSLUCENT;
+        flags[BlockID.RED_MUSHROOM] |= TRANSLUCENT;
+        flags[BlockID.TORCH] |= TRANSLUCENT;
+        flags[BlockID.FIRE] |= TRANSLUCENT;
+        flags[BlockID.MOB_SPAWNER] |= TRANSLUCENT;
+        flags[BlockID.WOODEN_STAIRS] |= TRANSLUCENT;
+        flags[BlockID.CHEST] |= TRANSLUCENT;
+        flags[BlockID.REDSTONE_WIRE] |= TRANSLUCENT;
+        flags[BlockID.CROPS] |= TRANSLUCENT;
+        flags[BlockID.SIGN_POST] |= TRANSLUCENT;
+        flags[BlockID.WOODEN_DOOR] |= TRANSLUCENT;
+        flags[BlockID.LADDER] |= TRANSLUCENT;
+        flags[BlockID.MINECART_TRACKS] |= TRANSLUCENT;
+        flags[BlockID.COBBLESTONE_STAIRS] |= TRANSLUCENT;
+        flags[BlockID.WALL_SIGN] |= TRANSLUCENT;
+        flags[BlockID.LEVER] |= TRANSLUCENT;
+        flags[BlockID.STONE_PRESSURE_PLATE] |= TRANSLUCENT;
+        flags[BlockID.IRON_DOOR] |= TRANSLUCENT;
+        flags[BlockID.WOODEN_PRESSURE_PLATE] |= TRANSLUCENT;
+        flags[BlockID.REDSTONE_TORCH_OFF] |= TRANSLUCENT;
+        flags[BlockID.REDSTONE_TORCH_ON] |= TRANSLUCENT;
+        flags[BlockID.STONE_BUTTON] |= TRANSLUCENT;
+        flags[BlockID.SNOW] |= TRANSLUCENT;
+        flags[BlockID.ICE] |= TRANSLUCENT;
+        flags[BlockID.CACTUS] |= TRANSLUCENT;
+        flags[BlockID.REED] |= TRANSLUCENT;
+        flags[BlockID.FENCE] |= TRANSLUCENT;
+        flags[BlockID.PORTAL] |= TRANSLUCENT;
+        flags[BlockID.CAKE_BLOCK] |= TRANSLUCENT;
+        flags[BlockID.REDSTONE_REPEATER_OFF] |= TRANSLUCENT;
+        flags[BlockID.REDSTONE_REPEATER_ON] |= TRANSLUCENT;
+        flags[BlockID.TRAP_DOOR] |= TRANSLUCENT;
+        flags[BlockID.IRON_BARS] |= TRANSLUCENT;
+        flags[BlockID.GLASS_PANE] |= TRANSLUCENT;
+        flags[BlockID.PUMPKIN_STEM] |= TRANSLUCENT;
+        flags[BlockID.MELON_STEM] |= TRANSLUCENT;
+        flags[BlockID.VINE] |= TRANSLUCENT;
+        flags[BlockID.FENCE_GATE] |= TRANSLUCENT;
+        flags[BlockID.BRICK_STAIRS] |= TRANSLUCENT;
+        flags[BlockID.STONE_BRICK_STAIRS] |= TRANSLUCENT;
+        flags[BlockID.LILY_PAD] |= TRANSLUCENT;
+        flags[BlockID.NETHER_BRICK_FENCE] |= TRANSLUCENT;
+        flags[BlockID.NETHER_BRICK_STAIRS] |= TRANSLUCENT;
+        flags[BlockID.NETHER_WART] |= TRANSLUCENT;
+        flags[BlockID.ENCHANTMENT_TABLE] |= TRANSLUCENT;
+        flags[BlockID.BREWING_STAND] |= TRANSLUCENT;
+        flags[BlockID.CAULDRON] |= TRANSLUCENT;
+        flags[BlockID.WOODEN_STEP] |= TRANSLUCENT;
+        flags[BlockID.COCOA_PLANT] |= TRANSLUCENT;
+        flags[BlockID.SANDSTONE_STAIRS] |= TRANSLUCENT;
+        flags[BlockID.ENDER_CHEST] |= TRANSLUCENT;
+        flags[BlockID.TRIPWIRE_HOOK] |= TRANSLUCENT;
+        flags[BlockID.TRIPWIRE] |= TRANSLUCENT;
+        flags[BlockID.SPRUCE_WOOD_STAIRS] |= TRANSLUCENT;
+        flags[BlockID.BIRCH_WOOD_STAIRS] |= TRANSLUCENT;
+        flags[BlockID.JUNGLE_WOOD_STAIRS] |= TRANSLUCENT;
+        flags[BlockID.COBBLESTONE_WALL] |= TRANSLUCENT;
+        flags[BlockID.FLOWER_POT] |= TRANSLUCENT;
+        flags[BlockID.CARROTS] |= TRANSLUCENT;
+        flags[BlockID.POTATOES] |= TRANSLUCENT;
+        flags[BlockID.WOODEN_BUTTON] |= TRANSLUCENT;
+        flags[BlockID.HEAD] |= TRANSLUCENT;
+        flags[BlockID.ANVIL] |= TRANSLUCENT;
+        flags[BlockID.TRAPPED_CHEST] |= TRANSLUCENT;
+        flags[BlockID.PRESSURE_PLATE_LIGHT] |= TRANSLUCENT;
+        flags[BlockID.PRESSURE_PLATE_HEAVY] |= TRANSLUCENT;
+        flags[BlockID.COMPARATOR_OFF] |= TRANSLUCENT;
+        flags[BlockID.COMPARATOR_ON] |= TRANSLUCENT;
+        flags[BlockID.DAYLIGHT_SENSOR] |= TRANSLUCENT;
+        flags[BlockID.HOPPER] |= TRANSLUCENT;
+        flags[BlockID.QUARTZ_STAIRS] |= TRANSLUCENT;
+        flags[BlockID.ACTIVATOR_RAIL] |= TRANSLUCENT;
     }
 
     /**
@@ -1038,7 +1051,7 @@ public enum BlockType {
      * @return
      */
     public static boolean isTranslucent(int id) {
-        return isTranslucent.contains(id);
+        return hasFlag(id, TRANSLUCENT);
     }
 
 //    /**
@@ -0,0 +1,429 @@
+package me.desht.dhutils.block;
+
+import me.desht.dhutils.DHUtilsException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A record of the block changes made by a {@link CraftMassBlockUpdate}, which allows them to be
+ * undone and redone.
+ * <p>
+ * Changes are collected per 16x16x16 chunk section.  When a section is closed (because too many
+ * sections are open, or because the journal is about to be replayed), its changes are encoded
+ * as a palette of the distinct (id, data) values involved, the changed positions as runs of
+ * consecutive section indices, and the old and new values as run-length encoded palette indices.
+ * Unchanged blocks cost nothing beyond the run boundaries which skip over them, so a typical
+ * section costs a few bytes per run of changed blocks, rather than a few bytes per block.
+ * <p>
+ * Encoded sections are kept in memory until they exceed a size limit, then written to a temporary
+ * file, which is memory-mapped for reading back when the journal is replayed.  Call
+ * {@link #close()} to delete the file when the journal is no longer needed.
+ * <p>
+ * Only block IDs and data are recorded; the contents of tile entities (chests, signs etc.) are not.
+ */
+public class ChangeJournal {
+	private static final int MAX_OPEN_SECTIONS = 64;
+	private static final long DEFAULT_MAX_MEMORY = 16L * 1024 * 1024;
+	private static final int NONE = -1;
+	// spilled data is mapped a window at a time, since a single mapping can't exceed 2GB
+	private static final long SPILL_WINDOW = 64L * 1024 * 1024;
+
+	private final long maxMemory;
+	// maps a packed (id, data) value to its index in the palette of the section being encoded
+	private final int[] paletteIndex = new int[65536];
+	private final Map<Long, OpenSection> openSections = new LinkedHashMap<Long, OpenSection>();
+	private OpenSection lastSection = null;
+	private final List<Record> records = new ArrayList<Record>();
+	private long memoryUsed = 0;
+	private int changeCount = 0;
+
+	private File spillFile = null;
+	private RandomAccessFile spillRaf = null;
+	private long spillSize = 0;
+	private MappedByteBuffer spillMap = null;
+	private long spillMapStart = 0;
+
+	/**
+	 * Create a new journal which holds up to 16MB of encoded changes in memory before
+	 * spilling to disk.
+	 */
+	public ChangeJournal() {
+		this(DEFAULT_MAX_MEMORY);
+	}
+
+	/**
+	 * Create a new journal.
+	 *
+	 * @param maxMemory the amount of encoded change data to hold in memory, in bytes, before
+	 *                  spilling to a temporary file
+	 */
+	public ChangeJournal(long maxMemory) {
+		this.maxMemory = maxMemory;
+		Arrays.fill(paletteIndex, NONE);
+	}
+
+	/**
+	 * Record a block change.  If the block has already been changed since its section was last
+	 * closed, only the new value is updated, so that undoing restores the earliest value.
+	 *
+	 * @param x world X co-ordinate
+	 * @param y world Y co-ordinate
+	 * @param z world Z co-ordinate
+	 * @param oldId the block's previous ID
+	 * @param oldData the block's previous data
+	 * @param newId the block's new ID
+	 * @param newData the block's new data
+	 */
+	void record(int x, int y, int z, int oldId, int oldData, int newId, int newData) {
+		int cx = x >> 4, sy = y >> 4, cz = z >> 4;
+		OpenSection section = lastSection;
+		if (section == null || section.cx != cx || section.sy != sy || section.cz != cz) {
+			Long key = PackedCoords.pack(cx, sy, cz);
+			section = openSections.get(key);
+			if (section == null) {
+				if (openSections.size() >= MAX_OPEN_SECTIONS) {
+					closeEldest();
+				}
+				section = new OpenSection(cx, sy, cz);
+				openSections.put(key, section);
+			}
+			lastSection = section;
+		}
+		int idx = SectionBuffer.index(x, y, z);
+		if (section.before[idx] == NONE) {
+			section.before[idx] = pack(oldId, oldData);
+			section.changed++;
+		}
+		section.after[idx] = pack(newId, newData);
+	}
+
+	/**
+	 * Close and encode all open sections.  This must be done before the journal is replayed.
+	 */
+	void seal() {
+		for (OpenSection section : openSections.values()) {
+			close(section);
+		}
+		openSections.clear();
+		lastSection = null;
+	}
+
+	/**
+	 * Get the number of encoded section records.  Records are numbered in the order they were
+	 * closed; for any given section, that's the order in which its changes were made.
+	 *
+	 * @return the number of records
+	 */
+	int getRecordCount() {
+		return records.size();
+	}
+
+	/**
+	 * Decode a section record into a SectionBuffer, ready to be written to the world.
+	 *
+	 * @param n the record number
+	 * @param undo true to get the blocks' old values, false to get their new values
+	 * @return a section buffer containing the record's changes
+	 */
+	SectionBuffer decode(int n, boolean undo) {
+		Record rec = records.get(n);
+		ByteBuffer buf = rec.data != null ? ByteBuffer.wrap(rec.data) : getSpilled(rec);
+
+		SectionBuffer sb = new SectionBuffer(buf.getInt(), buf.get(), buf.getInt());
+		int[] palette = new int[buf.getShort() & 0xffff];
+		for (int i = 0; i < palette.length; i++) {
+			palette[i] = buf.getChar();
+		}
+		int nRuns = buf.getShort() & 0xffff;
+		int[] runs = new int[nRuns * 2];
+		for (int i = 0; i < runs.length; i++) {
+			runs[i] = buf.getShort() & 0xffff;
+		}
+		if (!undo) {
+			// skip over the old values
+			readValues(buf, rec.changed);
+		}
+		int[] values = readValues(buf, rec.changed);
+
+		int v = 0;
+		for (int r = 0; r < runs.length; r += 2) {
+			for (int idx = runs[r]; idx <= runs[r + 1]; idx++) {
+				int value = palette[values[v++]];
+				sb.blockIds[idx] = (short) (value >> 4);
+				sb.data[idx] = (byte) (value & 0x0f);
+			}
+		}
+		return sb;
+	}
+
+	/**
+	 * Discard all recorded changes.
+	 */
+	public void clear() {
+		openSections.clear();
+		lastSection = null;
+		records.clear();
+		memoryUsed = 0;
+		changeCount = 0;
+		spillSize = 0;
+		spillMap = null;
+	}
+
+	/**
+	 * Discard all recorded changes, and delete the temporary file, if one was created.
+	 */
+	public void close() {
+		clear();
+		if (spillRaf != null) {
+			try {
+				spillRaf.close();
+			} catch (IOException e) {
+				// nothing useful we can do about it
+			}
+			spillRaf = null;
+		}
+		if (spillFile != null) {
+			spillFile.delete();
+			spillFile = null;
+		}
+	}
+
+	/**
+	 * Get the number of block changes recorded in closed sections.
+	 *
+	 * @return the number of block changes
+	 */
+	public int getChangeCount() {
+		return changeCount;
+	}
+
+	/**
+	 * Get the amount of memory used by encoded changes which have not been spilled to disk.
+	 * Sections which are still open are not included.
+	 *
+	 * @return the memory used, in bytes
+	 */
+	public long getMemoryUsage() {
+		return memoryUsed;
+	}
+
+	/**
+	 * Get the amount of encoded change data which has been spilled to disk.
+	 *
+	 * @return the size of the temporary file, in bytes
+	 */
+	public long getSpilledSize() {
+		return spillSize;
+	}
+
+	private static int pack(int blockId, int data) {
+		return (blockId & 0xfff) << 4 | (data & 0x0f);
+	}
+
+	private void closeEldest() {
+		Iterator<OpenSection> iter = openSections.values().iterator();
+		OpenSection eldest = iter.next();
+		iter.remove();
+		if (eldest == lastSection) {
+			lastSection = null;
+		}
+		close(eldest);
+	}
+
+	private void close(OpenSection section) {
+		if (section.changed == 0) {
+			return;
+		}
+		Record rec = new Record(section.changed, encode(section));
+		records.add(rec);
+		changeCount += section.changed;
+		memoryUsed += rec.data.length;
+		if (memoryUsed > maxMemory) {
+			spill();
+		}
+	}
+
+	private byte[] encode(OpenSection section) {
+		// build the palette of all old and new values
+		int[] palette = new int[section.changed * 2];
+		int paletteSize = 0;
+		for (int idx = 0; idx < SectionBuffer.SECTION_VOLUME; idx++) {
+			if (section.before[idx] != NONE) {
+				if (paletteIndex[section.before[idx]] == NONE) {
+					paletteIndex[section.before[idx]] = paletteSize;
+					palette[paletteSize++] = section.before[idx];
+				}
+				if (paletteIndex[section.after[idx]] == NONE) {
+					paletteIndex[section.after[idx]] = paletteSize;
+					palette[paletteSize++] = section.after[idx];
+				}
+			}
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(section.cx);
+			out.writeByte(section.sy);
+			out.writeInt(section.cz);
+			out.writeShort(paletteSize);
+			for (int i = 0; i < paletteSize; i++) {
+				out.writeChar(palette[i]);
+			}
+
+			// runs of consecutive changed positions, as (first, last) pairs
+			List<Integer> runs = new ArrayList<Integer>();
+			for (int idx = 0; idx < SectionBuffer.SECTION_VOLUME; idx++) {
+				if (section.before[idx] != NONE && (idx == 0 || section.before[idx - 1] == NONE)) {
+					int last = idx;
+					while (last + 1 < SectionBuffer.SECTION_VOLUME && section.before[last + 1] != NONE) {
+						last++;
+					}
+					runs.add(idx);
+					runs.add(last);
+				}
+			}
+			out.writeShort(runs.size() / 2);
+			for (int r : runs) {
+				out.writeShort(r);
+			}
+
+			writeValues(out, section.before, section.before, paletteIndex);
+			writeValues(out, section.after, section.before, paletteIndex);
+			out.flush();
+		} catch (IOException e) {
+			// can't happen with a ByteArrayOutputStream
+			throw new IllegalStateException(e);
+		} finally {
+			// leave the index clear for the next section
+			for (int i = 0; i < paletteSize; i++) {
+				paletteIndex[palette[i]] = NONE;
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Write the values of all changed positions as (count, palette index) pairs.
+	 */
+	private static void writeValues(DataOutputStream out, int[] values, int[] changed, int[] paletteIndex) throws IOException {
+		int runValue = NONE, runLength = 0;
+		for (int idx = 0; idx < SectionBuffer.SECTION_VOLUME; idx++) {
+			if (changed[idx] == NONE) {
+				continue;
+			}
+			int p = paletteIndex[values[idx]];
+			if (p == runValue && runLength < 0xffff) {
+				runLength++;
+			} else {
+				if (runLength > 0) {
+					out.writeShort(runLength);
+					out.writeShort(runValue);
+				}
+				runValue = p;
+				runLength = 1;
+			}
+		}
+		if (runLength > 0) {
+			out.writeShort(runLength);
+			out.writeShort(runValue);
+		}
+	}
+
+	private static int[] readValues(ByteBuffer buf, int count) {
+		int[] values = new int[count];
+		int n = 0;
+		while (n < count) {
+			int runLength = buf.getShort() & 0xffff;
+			int value = buf.getShort() & 0xffff;
+			Arrays.fill(values, n, n + runLength, value);
+			n += runLength;
+		}
+		return values;
+	}
+
+	private void spill() {
+		try {
+			if (spillRaf == null) {
+				spillFile = File.createTempFile("dhutils-journal", ".dat");
+				spillFile.deleteOnExit();
+				spillRaf = new RandomAccessFile(spillFile, "rw");
+			}
+			FileChannel channel = spillRaf.getChannel();
+			for (Record rec : records) {
+				if (rec.data != null) {
+					ByteBuffer buf = ByteBuffer.wrap(rec.data);
+					rec.offset = spillSize;
+					rec.length = rec.data.length;
+					while (buf.hasRemaining()) {
+						spillSize += channel.write(buf, spillSize);
+					}
+					rec.data = null;
+				}
+			}
+			spillMap = null;
+			memoryUsed = 0;
+		} catch (IOException e) {
+			throw new DHUtilsException("Can't write change journal to disk: " + e.getMessage());
+		}
+	}
+
+	private ByteBuffer getSpilled(Record rec) {
+		long start = rec.offset - rec.offset % SPILL_WINDOW;
+		if (spillMap == null || start != spillMapStart) {
+			try {
+				// map two windows' worth, so that a record which starts near the end of the
+				// window (records are only a section's worth of changes) is still covered
+				long size = Math.min(spillSize - start, SPILL_WINDOW * 2);
+				spillMap = spillRaf.getChannel().map(FileChannel.MapMode.READ_ONLY, start, size);
+				spillMapStart = start;
+			} catch (IOException e) {
+				throw new DHUtilsException("Can't read change journal from disk: " + e.getMessage());
+			}
+		}
+		ByteBuffer buf = spillMap.duplicate();
+		int pos = (int) (rec.offset - spillMapStart);
+		buf.position(pos);
+		buf.limit(pos + rec.length);
+		return buf.slice();
+	}
+
+	private static class OpenSection {
+		private final int cx, sy, cz;
+		private final int[] before = new int[SectionBuffer.SECTION_VOLUME];
+		private final int[] after = new int[SectionBuffer.SECTION_VOLUME];
+		private int changed = 0;
+
+		private OpenSection(int cx, int sy, int cz) {
+			this.cx = cx;
+			this.sy = sy;
+			this.cz = cz;
+			Arrays.fill(before, NONE);
+		}
+	}
+
+	private static class Record {
+		private final int changed;
+		private byte[] data;
+		private long offset;
+		private int length;
+
+		private Record(int changed, byte[] data) {
+			this.changed = changed;
+			this.data = data;
+		}
+	}
+}
@@ -1,37 +1,69 @@
 package me.desht.dhutils.block;
 
+import me.desht.dhutils.LongHashSet;
+import me.desht.dhutils.LongRingBuffer;
 import me.desht.dhutils.nms.NMSHelper;
+import me.desht.dhutils.nms.api.LightingProperties;
 import me.desht.dhutils.nms.api.NMSAbstraction;
+import me.desht.dhutils.nms.api.OcclusionMask;
 import org.bukkit.Bukkit;
+import org.bukkit.Location;
 import org.bukkit.World;
-import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
+import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.scheduler.BukkitTask;
 
-import java.util.ArrayDeque;
-import java.util.HashSet;
-import java.util.Queue;
-import java.util.Set;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 public class CraftMassBlockUpdate implements MassBlockUpdate, Runnable {
 	private final Plugin plugin;
 	private final World world;
 	private final NMSAbstraction nms;
+	private final LightingProperties lighting;
 
 	private RelightingStrategy relightingStrategy = RelightingStrategy.IMMEDIATE;
 
 	private static final int MAX_BLOCKS_PER_TIME_CHECK = 1000;
-	private Queue<DeferredBlock> deferredBlocks = new ArrayDeque<DeferredBlock>();
+	private static final BlockFace[] SECTION_FACES = {
+			BlockFace.EAST, BlockFace.WEST, BlockFace.SOUTH, BlockFace.NORTH, BlockFace.UP, BlockFace.DOWN
+	};
+	// deferred blocks are stored as packed co-ordinates (see PackedCoords), with a
+	// parallel set to avoid queueing the same block more than once
+	private LongRingBuffer deferredBlocks = new LongRingBuffer();
+	private LongHashSet deferredBlockSet = new LongHashSet();
 	private BukkitTask relightTask = null;
 	private long maxRelightTimePerTick = TimeUnit.NANOSECONDS.convert(1, TimeUnit.MILLISECONDS);
 
-	private int minX = Integer.MAX_VALUE;
-	private int minZ = Integer.MAX_VALUE;
-	private int maxX = Integer.MIN_VALUE;
-	private int maxZ = Integer.MIN_VALUE;
-	private int blocksModified = 0;
+	// chunks and sections touched by this update, as packed co-ordinates (see PackedCoords)
+	private final LongHashSet dirtyChunks = new LongHashSet();
+	private final LongHashSet dirtySections = new LongHashSet();
+	private long lastDirtySection = Long.MIN_VALUE;
+
+	// sections needing relighting with RelightingStrategy.BATCH, or filled with fillSection()
+	private final LongHashSet sectionsToRelight = new LongHashSet();
+
+	private final LongRingBuffer chunkResendQueue = new LongRingBuffer();
+	private BukkitTask resendTask = null;
+	private int maxChunksPerTick = 0;
+
+	private boolean batchMode = false;
+	private final Map<Long, SectionBuffer> sectionBuffers = new LinkedHashMap<Long, SectionBuffer>();
+	private short[] oldBlockIdBuffer = null;
+
+	// opaque blocks in and around the section most recently checked by canAffectLighting()
+	private final OcclusionMask occlusion = new OcclusionMask();
+	private long occlusionSection = Long.MIN_VALUE;
+	private short[] occlusionBlockIds = null;
+
+	private ChangeJournal journal = null;
+	private boolean replaying = false;
+	private boolean undone = false;
+	private short[] journalBlockIds = null;
+	private byte[] journalData = null;
 
 	public CraftMassBlockUpdate(Plugin plugin, org.bukkit.World world) {
 		this.plugin = plugin;
@@ -40,6 +72,7 @@ public class CraftMassBlockUpdate implements MassBlockUpdate, Runnable {
 		if (nms == null) {
 			throw new IllegalStateException("NMS abstraction API is not available");
 		}
+		this.lighting = NMSHelper.getLightingProperties();
 	}
 
 	public boolean setBlock(int x, int y, int z, int blockId) {
@@ -47,37 +80,276 @@ public class CraftMassBlockUpdate implements MassBlockUpdate, Runnable {
 	}
 
 	public boolean setBlock(int x, int y, int z, int blockId, int data) {
-		minX = Math.min(minX, x);
-		minZ = Math.min(minZ, z);
-		maxX = Math.max(maxX, x);
-		maxZ = Math.max(maxZ, z);
+		if (batchMode) {
+			getSectionBuffer(x >> 4, y >> 4, z >> 4).set(x, y, z, blockId, data);
+			return true;
+		}
+
+		markDirty(x >> 4, y >> 4, z >> 4);
 
-		blocksModified++;
 		int oldBlockId = world.getBlockTypeIdAt(x, y, z);
+		int oldData = isRecording() ? world.getBlockAt(x, y, z).getData() : 0;
 		boolean res = nms.setBlockFast(world, x, y, z, blockId, (byte)data);
 
+		if (res && isRecording()) {
+			record(x, y, z, oldBlockId, oldData, blockId, data);
+		}
+		checkRelight(x, y, z, oldBlockId, blockId);
+
+		return res;
+	}
+
+	public void setBatchMode(boolean batchMode) {
+		if (!batchMode) {
+			flush();
+		}
+		this.batchMode = batchMode;
+	}
+
+	public boolean isBatchMode() {
+		return batchMode;
+	}
+
+	public int flush() {
+		if (sectionBuffers.isEmpty()) {
+			return 0;
+		}
+		int changed = 0;
+		for (SectionBuffer buf : sectionBuffers.values()) {
+			changed += writeSection(buf);
+		}
+		sectionBuffers.clear();
+		return changed;
+	}
+
+	public int relight() {
+		int n = sectionsToRelight.size();
+		relightSections();
+		return n;
+	}
+
+	/**
+	 * Write a buffered section directly to the world, bypassing batch mode buffering.
+	 *
+	 * @param buf the section buffer
+	 * @return the number of blocks actually changed
+	 */
+	int writeSection(SectionBuffer buf) {
+		short[] oldBlockIds = getOldBlockIdBuffer();
+		int baseX = buf.cx << 4, baseY = buf.sy << 4, baseZ = buf.cz << 4;
+		boolean recording = isRecording();
+		if (recording) {
+			readSectionForJournal(buf.cx, buf.sy, buf.cz);
+		}
+		int changed = nms.setSectionFast(world, buf.cx, buf.sy, buf.cz, buf.blockIds, buf.data, oldBlockIds);
+		if (changed > 0) {
+			markDirty(buf.cx, buf.sy, buf.cz);
+			if (recording) {
+				for (int idx = 0; idx < SectionBuffer.SECTION_VOLUME; idx++) {
+					if (buf.blockIds[idx] >= 0 && (journalBlockIds[idx] != buf.blockIds[idx] || journalData[idx] != buf.data[idx])) {
+						record(baseX + (idx & 0x0f), baseY + (idx >> 8), baseZ + ((idx >> 4) & 0x0f),
+								journalBlockIds[idx], journalData[idx], buf.blockIds[idx], buf.data[idx]);
+					}
+				}
+			}
+			if (oldBlockIds != null) {
+				for (int idx = 0; idx < SectionBuffer.SECTION_VOLUME; idx++) {
+					if (oldBlockIds[idx] >= 0) {
+						checkRelight(baseX + (idx & 0x0f), baseY + (idx >> 8), baseZ + ((idx >> 4) & 0x0f), oldBlockIds[idx], buf.blockIds[idx]);
+					}
+				}
+			}
+		}
+		return changed;
+	}
+
+	public int fillSection(int cx, int sy, int cz, int blockId, int data) {
+		// the whole section is about to be overwritten, so any buffered changes are moot
+		sectionBuffers.remove(SectionBuffer.key(cx, sy, cz));
+
+		short[] oldBlockIds = getOldBlockIdBuffer();
+		boolean recording = isRecording();
+		if (recording) {
+			readSectionForJournal(cx, sy, cz);
+		}
+		int changed = nms.fillSection(world, cx, sy, cz, blockId, (byte) data, oldBlockIds);
+		if (changed > 0) {
+			markDirty(cx, sy, cz);
+			if (recording) {
+				int baseX = cx << 4, baseY = sy << 4, baseZ = cz << 4;
+				for (int idx = 0; idx < SectionBuffer.SECTION_VOLUME; idx++) {
+					if (journalBlockIds[idx] != blockId || journalData[idx] != data) {
+						record(baseX + (idx & 0x0f), baseY + (idx >> 8), baseZ + ((idx >> 4) & 0x0f),
+								journalBlockIds[idx], journalData[idx], blockId, data);
+					}
+				}
+			}
+			if (oldBlockIds != null) {
+				for (int idx = 0; idx < SectionBuffer.SECTION_VOLUME; idx++) {
+					if (oldBlockIds[idx] >= 0 && lighting.affectsLighting(oldBlockIds[idx], blockId)) {
+						relightSection(cx, sy, cz);
+						break;
+					}
+				}
+			}
+		}
+		return changed;
+	}
+
+	public void setJournalEnabled(boolean enabled) {
+		if (enabled && journal == null) {
+			journal = new ChangeJournal();
+		} else if (!enabled && journal != null) {
+			journal.close();
+			journal = null;
+			undone = false;
+		}
+	}
+
+	public boolean isJournalEnabled() {
+		return journal != null;
+	}
+
+	/**
+	 * Get the change journal for this update, which can be used to check how much memory and
+	 * disk space it is using.
+	 *
+	 * @return the change journal, or null if the journal is not enabled
+	 */
+	public ChangeJournal getJournal() {
+		return journal;
+	}
+
+	public int undo() {
+		if (journal == null) {
+			throw new IllegalStateException("undo() called when change journal not enabled");
+		}
+		flush();
+		if (undone) {
+			throw new IllegalStateException("undo() called when changes already undone");
+		}
+		int changed = replay(true);
+		undone = true;
+		return changed;
+	}
+
+	public int redo() {
+		if (journal == null) {
+			throw new IllegalStateException("redo() called when change journal not enabled");
+		}
+		// flushing may make new changes, which would discard the undone changes
+		flush();
+		if (!undone) {
+			throw new IllegalStateException("redo() called with no undone changes");
+		}
+		int changed = replay(false);
+		undone = false;
+		return changed;
+	}
+
+	private int replay(boolean undo) {
+		journal.seal();
+		int changed = 0;
+		replaying = true;
+		try {
+			int n = journal.getRecordCount();
+			for (int i = 0; i < n; i++) {
+				// undo in the reverse order that the changes were made
+				changed += writeSection(journal.decode(undo ? n - 1 - i : i, undo));
+			}
+		} finally {
+			replaying = false;
+		}
+		return changed;
+	}
+
+	private boolean isRecording() {
+		return journal != null && !replaying;
+	}
+
+	private void record(int x, int y, int z, int oldBlockId, int oldData, int blockId, int data) {
+		if (undone) {
+			// a new change after an undo discards the undone changes
+			journal.clear();
+			undone = false;
+		}
+		journal.record(x, y, z, oldBlockId, oldData, blockId, data);
+	}
+
+	private void readSectionForJournal(int cx, int sy, int cz) {
+		if (journalBlockIds == null) {
+			journalBlockIds = new short[SectionBuffer.SECTION_VOLUME];
+			journalData = new byte[SectionBuffer.SECTION_VOLUME];
+		}
+		nms.readSection(world, cx, sy, cz, journalBlockIds, journalData, null, null);
+	}
+
+	private short[] getOldBlockIdBuffer() {
+		if (relightingStrategy == RelightingStrategy.NEVER) {
+			return null;
+		}
+		if (oldBlockIdBuffer == null) {
+			oldBlockIdBuffer = new short[SectionBuffer.SECTION_VOLUME];
+		}
+		return oldBlockIdBuffer;
+	}
+
+	private void relightSection(int cx, int sy, int cz) {
+		if (relightingStrategy == RelightingStrategy.IMMEDIATE) {
+			nms.relightSections(world, new int[] { cx }, new int[] { sy }, new int[] { cz });
+		} else {
+			// relit in one pass along with any other sections when notifyClients() is called
+			sectionsToRelight.add(PackedCoords.pack(cx, sy, cz));
+		}
+	}
+
+	private void markDirty(int cx, int sy, int cz) {
+		long sectionKey = PackedCoords.pack(cx, sy, cz);
+		if (sectionKey != lastDirtySection) {
+			// consecutive changes very often hit the same section
+			lastDirtySection = sectionKey;
+			if (dirtySections.add(sectionKey)) {
+				dirtyChunks.add(PackedCoords.packChunk(cx, cz));
+			}
+		}
+	}
+
+	private SectionBuffer getSectionBuffer(int cx, int sy, int cz) {
+		Long key = SectionBuffer.key(cx, sy, cz);
+		SectionBuffer buf = sectionBuffers.get(key);
+		if (buf == null) {
+			buf = new SectionBuffer(cx, sy, cz);
+			sectionBuffers.put(key, buf);
+		}
+		return buf;
+	}
+
+	private void checkRelight(int x, int y, int z, int oldBlockId, int blockId) {
 		if (relightingStrategy != RelightingStrategy.NEVER) {
-			if (nms.getBlockLightBlocking(oldBlockId) != nms.getBlockLightBlocking(blockId)
-					|| nms.getBlockLightEmission(oldBlockId) != nms.getBlockLightEmission(blockId)) {
+			if (lighting.affectsLighting(oldBlockId, blockId)) {
 				// lighting or light blocking by this block has changed; force a recalculation
 				if (relightingStrategy == RelightingStrategy.IMMEDIATE) {
 					nms.recalculateBlockLighting(world, x, y, z);
 				} else if (relightingStrategy == RelightingStrategy.DEFERRED || relightingStrategy == RelightingStrategy.HYBRID) {
-					deferredBlocks.add(new DeferredBlock(x, y, z));
+					long packed = PackedCoords.pack(x, y, z);
+					if (deferredBlockSet.add(packed)) {
+						deferredBlocks.add(packed);
+					}
+				} else if (relightingStrategy == RelightingStrategy.BATCH) {
+					sectionsToRelight.add(PackedCoords.pack(x >> 4, y >> 4, z >> 4));
 				}
 			}
 		}
-		return res;
 	}
 
 	public void notifyClients() {
+		flush();
+		relightSections();
 		if (relightingStrategy == RelightingStrategy.DEFERRED || relightingStrategy == RelightingStrategy.HYBRID) {
 			relightTask = Bukkit.getScheduler().runTaskTimer(plugin, this, 1L, 1L);
 		}
         if (relightingStrategy != RelightingStrategy.DEFERRED) {
-			for (ChunkCoords cc : calculateChunks()) {
-				world.refreshChunk(cc.x, cc.z);
-			}
+			resendChunks();
 		}
 	}
 
@@ -85,11 +357,16 @@ public class CraftMassBlockUpdate implements MassBlockUpdate, Runnable {
 		long now = System.nanoTime();
 		int n = 1;
 
-		while (deferredBlocks.peek() != null) {
-			DeferredBlock db = deferredBlocks.poll();
+		// blocks may have changed since the last tick
+		occlusionSection = Long.MIN_VALUE;
+
+		while (!deferredBlocks.isEmpty()) {
+			long packed = deferredBlocks.poll();
+			deferredBlockSet.remove(packed);
+			int x = PackedCoords.unpackX(packed), y = PackedCoords.unpackY(packed), z = PackedCoords.unpackZ(packed);
             // Don't consider blocks that are completely surrounded by other non-transparent blocks
-            if (canAffectLighting(world, db.x, db.y, db.z)) {
-                nms.recalculateBlockLighting(world, db.x, db.y, db.z);
+            if (canAffectLighting(x, y, z)) {
+                nms.recalculateBlockLighting(world, x, y, z);
                 if (n++ % MAX_BLOCKS_PER_TIME_CHECK == 0) {
                     if (System.nanoTime() - now > maxRelightTimePerTick) {
                         break;
@@ -101,10 +378,7 @@ public class CraftMassBlockUpdate implements MassBlockUpdate, Runnable {
 		if (deferredBlocks.isEmpty()) {
 			relightTask.cancel();
 			relightTask = null;
-            Set<ChunkCoords> touched = calculateChunks();
-			for (ChunkCoords cc : touched) {
-				world.refreshChunk(cc.x, cc.z);
-			}
+			resendChunks();
 		}
 	}
 
@@ -116,6 +390,37 @@ public class CraftMassBlockUpdate implements MassBlockUpdate, Runnable {
 		maxRelightTimePerTick = timeUnit.toNanos(value);
 	}
 
+	public void setMaxChunksPerTick(int maxChunksPerTick) {
+		this.maxChunksPerTick = maxChunksPerTick;
+	}
+
+	public int getMaxChunksPerTick() {
+		return maxChunksPerTick;
+	}
+
+	public int getChunksToResend() {
+		return chunkResendQueue.size();
+	}
+
+	/**
+	 * Get the chunks which have been modified by this update.
+	 *
+	 * @return the modified chunks, as packed co-ordinates (see {@link PackedCoords#packChunk(int, int)})
+	 */
+	public long[] getDirtyChunks() {
+		return dirtyChunks.toArray();
+	}
+
+	/**
+	 * Get the chunk sections which have been modified by this update.
+	 *
+	 * @return the modified sections, as packed co-ordinates (see {@link PackedCoords#pack(int, int, int)},
+	 *         with chunk X, section index and chunk Z)
+	 */
+	public long[] getDirtySections() {
+		return dirtySections.toArray();
+	}
+
 	public int getBlocksToRelight() {
 		return deferredBlocks.size();
 	}
@@ -129,86 +434,122 @@ public class CraftMassBlockUpdate implements MassBlockUpdate, Runnable {
 			// reduce accidental memory wastage if called when not needed
 			throw new IllegalStateException("setDeferredBufferSize() called when relighting strategy not DEFERRED or HYBRID");
 		}
-		deferredBlocks = new ArrayDeque<CraftMassBlockUpdate.DeferredBlock>(size);
-	}
-
-    private boolean canAffectLighting(World world, int x, int y, int z) {
-        Block base  = world.getBlockAt(x, y, z);
-        Block east  = base.getRelative(BlockFace.EAST);
-        Block west  = base.getRelative(BlockFace.WEST);
-        Block up    = base.getRelative(BlockFace.UP);
-        Block down  = base.getRelative(BlockFace.DOWN);
-        Block south = base.getRelative(BlockFace.SOUTH);
-        Block north = base.getRelative(BlockFace.NORTH);
-
-        return east.getType().isTransparent() ||
-                west.getType().isTransparent() ||
-                up.getType().isTransparent() ||
-                down.getType().isTransparent() ||
-                south.getType().isTransparent() ||
-                north.getType().isTransparent();
-    }
-
-	private Set<ChunkCoords> calculateChunks() {
-		Set<ChunkCoords> res = new HashSet<ChunkCoords>();
-		if (blocksModified == 0) {
-			return res;
-		}
-		int x1 = minX >> 4; int x2 = maxX >> 4;
-		int z1 = minZ >> 4; int z2 = maxZ >> 4;
-		for (int x = x1; x <= x2; x++) {
-			for (int z = z1; z <= z2; z++) {
-				res.add(new ChunkCoords(x, z));
-			}
-		}
-		return res;
+		deferredBlocks = new LongRingBuffer(size);
+		deferredBlockSet = new LongHashSet(size);
+	}
+
+	public long getDeferredBufferMemory() {
+		return deferredBlocks.getMemoryUsage() + deferredBlockSet.getMemoryUsage();
 	}
 
 	/**
-	 * TODO: this should be a method in the Bukkit CraftWorld class, e.g world.createMassBlockUpdate()
+	 * Get the number of blocks the deferred relighting buffer can currently hold without
+	 * needing to grow.
 	 *
-	 * @param world
-	 * @return
+	 * @return the deferred buffer capacity, in blocks
 	 */
-	public static MassBlockUpdate createMassBlockUpdater(Plugin plugin, org.bukkit.World world) {
-		return new CraftMassBlockUpdate(plugin, world);
+	public int getDeferredBufferCapacity() {
+		return deferredBlocks.capacity();
 	}
 
-	private class ChunkCoords {
-		public final int x, z;
-		public ChunkCoords(int x, int z) {
-			this.x = x;
-			this.z = z;
+	private boolean canAffectLighting(int x, int y, int z) {
+		long sectionKey = PackedCoords.pack(x >> 4, y >> 4, z >> 4);
+		if (sectionKey != occlusionSection) {
+			loadOcclusionMask(x >> 4, y >> 4, z >> 4);
+			occlusionSection = sectionKey;
 		}
+		return !occlusion.isEnclosed(x & 0x0f, y & 0x0f, z & 0x0f);
+	}
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-
-            ChunkCoords that = (ChunkCoords) o;
+	private void loadOcclusionMask(int cx, int sy, int cz) {
+		if (occlusionBlockIds == null) {
+			occlusionBlockIds = new short[SectionBuffer.SECTION_VOLUME];
+		}
+		occlusion.clear();
+		nms.readSection(world, cx, sy, cz, occlusionBlockIds, null, null, null);
+		occlusion.setSection(occlusionBlockIds);
+		int maxSection = (world.getMaxHeight() >> 4) - 1;
+		for (BlockFace face : SECTION_FACES) {
+			int nsy = sy + face.getModY();
+			if (nsy < 0 || nsy > maxSection) {
+				// nothing but air outside the world
+				continue;
+			}
+			nms.readSection(world, cx + face.getModX(), nsy, cz + face.getModZ(), occlusionBlockIds, null, null, null);
+			occlusion.setFace(face, occlusionBlockIds);
+		}
+	}
 
-            if (x != that.x) return false;
-            if (z != that.z) return false;
+	private void relightSections() {
+		if (sectionsToRelight.isEmpty()) {
+			return;
+		}
+		long[] sections = sectionsToRelight.toArray();
+		int[] cx = new int[sections.length], sy = new int[sections.length], cz = new int[sections.length];
+		for (int i = 0; i < sections.length; i++) {
+			cx[i] = PackedCoords.unpackX(sections[i]);
+			sy[i] = PackedCoords.unpackY(sections[i]);
+			cz[i] = PackedCoords.unpackZ(sections[i]);
+		}
+		nms.relightSections(world, cx, sy, cz);
+		sectionsToRelight.clear();
+	}
 
-            return true;
-        }
+	private void resendChunks() {
+		List<Player> players = world.getPlayers();
+		if (players.isEmpty()) {
+			// nobody to send to; chunks will be sent fresh when players approach
+			return;
+		}
+		int viewDistance = Bukkit.getViewDistance();
+		int[] playerCX = new int[players.size()];
+		int[] playerCZ = new int[players.size()];
+		for (int i = 0; i < playerCX.length; i++) {
+			Location loc = players.get(i).getLocation();
+			playerCX[i] = loc.getBlockX() >> 4;
+			playerCZ[i] = loc.getBlockZ() >> 4;
+		}
 
-        @Override
-        public int hashCode() {
-            int result = x;
-            result = 31 * result + z;
-            return result;
-        }
-    }
+		for (long chunkKey : dirtyChunks.toArray()) {
+			int cx = PackedCoords.unpackX(chunkKey), cz = PackedCoords.unpackZ(chunkKey);
+			for (int i = 0; i < playerCX.length; i++) {
+				if (Math.abs(cx - playerCX[i]) <= viewDistance && Math.abs(cz - playerCZ[i]) <= viewDistance) {
+					chunkResendQueue.add(chunkKey);
+					break;
+				}
+			}
+		}
 
-	private class DeferredBlock {
-		public final int x, y, z;
+		if (maxChunksPerTick <= 0) {
+			sendQueuedChunks(Integer.MAX_VALUE);
+		} else if (resendTask == null && !chunkResendQueue.isEmpty()) {
+			resendTask = Bukkit.getScheduler().runTaskTimer(plugin, new Runnable() {
+				@Override
+				public void run() {
+					sendQueuedChunks(maxChunksPerTick);
+					if (chunkResendQueue.isEmpty()) {
+						resendTask.cancel();
+						resendTask = null;
+					}
+				}
+			}, 0L, 1L);
+		}
+	}
 
-		public DeferredBlock(int x, int y, int z) {
-			this.x = x;
-			this.y = y;
-			this.z = z;
+	private void sendQueuedChunks(int max) {
+		for (int n = 0; n < max && !chunkResendQueue.isEmpty(); n++) {
+			long chunkKey = chunkResendQueue.poll();
+			world.refreshChunk(PackedCoords.unpackX(chunkKey), PackedCoords.unpackZ(chunkKey));
 		}
 	}
+
+	/**
+	 * TODO: this should be a method in the Bukkit CraftWorld class, e.g world.createMassBlockUpdate()
+	 *
+	 * @param world
+	 * @return
+	 */
+	public static MassBlockUpdate createMassBlockUpdater(Plugin plugin, org.bukkit.World world) {
+		return new CraftMassBlockUpdate(plugin, world);
+	}
 }
\ No newline at end of file
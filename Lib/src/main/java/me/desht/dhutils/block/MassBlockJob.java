@@ -0,0 +1,251 @@
+package me.desht.dhutils.block;
+
+import me.desht.dhutils.cuboid.Cuboid;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * A large block update, split into units of roughly one chunk's worth of work, which is run
+ * over several ticks by a {@link MassBlockScheduler}.  All units write through the same
+ * {@link MassBlockUpdate}.  The update is flushed and relit after each unit, so that a
+ * batch-mode update writes each unit's changes to the world, and a
+ * {@link MassBlockUpdate.RelightingStrategy#BATCH} update relights them, within the
+ * scheduler's budget for the tick, rather than leaving the whole job's work for the end.
+ * Once the last unit has run (or the job is cancelled),
+ * {@link MassBlockUpdate#notifyClients()} is called, which then only has the modified chunks
+ * left to resend.  If the update has no limit on the number of chunks resent per tick, it is
+ * given one of {@value #DEFAULT_MAX_CHUNKS_PER_TICK}, so that the resends are spread over
+ * several ticks too.
+ */
+public class MassBlockJob {
+	public static final int DEFAULT_MAX_CHUNKS_PER_TICK = 20;
+
+	public enum Priority {
+		LOW, NORMAL, HIGH
+	}
+
+	/**
+	 * Receives notification of a job's progress.  Methods are called from the main thread.
+	 */
+	public interface Listener {
+		/**
+		 * Called at the end of each tick in which some units of the job were run.
+		 *
+		 * @param job the job
+		 */
+		public void onProgress(MassBlockJob job);
+
+		/**
+		 * Called when the job has finished, either because all its units have run, or
+		 * because it was cancelled.
+		 *
+		 * @param job the job
+		 */
+		public void onFinished(MassBlockJob job);
+	}
+
+	private final Plugin plugin;
+	private final MassBlockUpdate mbu;
+	private final Priority priority;
+	private final Queue<Runnable> units = new ArrayDeque<Runnable>();
+	private Listener listener = null;
+	private int unitsDone = 0;
+	private int unitsTotal = 0;
+	private boolean cancelled = false;
+	private boolean finished = false;
+
+	/**
+	 * Create a new job with normal priority.
+	 *
+	 * @param plugin the plugin which owns the job
+	 * @param mbu the mass block update which the job's units write through
+	 */
+	public MassBlockJob(Plugin plugin, MassBlockUpdate mbu) {
+		this(plugin, mbu, Priority.NORMAL);
+	}
+
+	/**
+	 * Create a new job.
+	 *
+	 * @param plugin the plugin which owns the job
+	 * @param mbu the mass block update which the job's units write through
+	 * @param priority the job's priority
+	 */
+	public MassBlockJob(Plugin plugin, MassBlockUpdate mbu, Priority priority) {
+		this.plugin = plugin;
+		this.mbu = mbu;
+		this.priority = priority;
+	}
+
+	/**
+	 * Add a unit of work to the job.  A unit should do no more than about a chunk's worth of
+	 * block updates, since it can't be interrupted part-way through.
+	 *
+	 * @param unit the unit of work
+	 * @return this job, for chaining
+	 */
+	public MassBlockJob addUnit(Runnable unit) {
+		units.add(unit);
+		unitsTotal++;
+		return this;
+	}
+
+	/**
+	 * Add units to fill the given Cuboid with the given block ID and data, one unit per
+	 * chunk column.
+	 *
+	 * @param cuboid the region to fill
+	 * @param blockId the block ID
+	 * @param data the block data
+	 * @return this job, for chaining
+	 */
+	public MassBlockJob addFill(Cuboid cuboid, final int blockId, final int data) {
+		for (final Cuboid column : splitIntoColumns(cuboid)) {
+			addUnit(new Runnable() {
+				@SuppressWarnings("deprecation")
+				@Override
+				public void run() {
+					column.fill(blockId, (byte) data, mbu);
+				}
+			});
+		}
+		return this;
+	}
+
+	/**
+	 * Add units to set every block in the given Cuboid as computed by the given pattern, one
+	 * unit per chunk column.  The pattern is called from the main thread.
+	 *
+	 * @param cuboid the region to update
+	 * @param pattern the pattern which computes each block
+	 * @return this job, for chaining
+	 */
+	public MassBlockJob addPattern(Cuboid cuboid, final BlockPattern pattern) {
+		for (final Cuboid column : splitIntoColumns(cuboid)) {
+			addUnit(new Runnable() {
+				@Override
+				public void run() {
+					for (int y = column.getLowerY(); y <= column.getUpperY(); y++) {
+						for (int z = column.getLowerZ(); z <= column.getUpperZ(); z++) {
+							for (int x = column.getLowerX(); x <= column.getUpperX(); x++) {
+								int id = pattern.getBlockId(x, y, z);
+								if (id >= 0) {
+									mbu.setBlock(x, y, z, id, pattern.getData(x, y, z));
+								}
+							}
+						}
+					}
+				}
+			});
+		}
+		return this;
+	}
+
+	public Plugin getPlugin() {
+		return plugin;
+	}
+
+	public MassBlockUpdate getMassBlockUpdate() {
+		return mbu;
+	}
+
+	public Priority getPriority() {
+		return priority;
+	}
+
+	public void setListener(Listener listener) {
+		this.listener = listener;
+	}
+
+	public int getUnitsDone() {
+		return unitsDone;
+	}
+
+	public int getUnitsTotal() {
+		return unitsTotal;
+	}
+
+	/**
+	 * Get the proportion of the job's units which have been run.
+	 *
+	 * @return the job's progress, from 0.0 to 1.0
+	 */
+	public double getProgress() {
+		return unitsTotal == 0 ? 1.0 : (double) unitsDone / unitsTotal;
+	}
+
+	/**
+	 * Cancel the job.  Units which have already run are not reverted, but clients are
+	 * notified of the changes they made.  The job is removed from its scheduler on the
+	 * next tick.
+	 */
+	public void cancel() {
+		cancelled = true;
+		units.clear();
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * Check if the job has any units left to run.  A job whose plugin has been disabled has
+	 * nothing left to run.
+	 *
+	 * @return true if there is more work to do
+	 */
+	boolean hasMoreUnits() {
+		return !units.isEmpty() && plugin.isEnabled();
+	}
+
+	void runNextUnit() {
+		units.poll().run();
+		// write and relight the unit's buffered changes now, so their cost is counted against this tick
+		mbu.flush();
+		mbu.relight();
+		unitsDone++;
+	}
+
+	void notifyProgress() {
+		if (listener != null) {
+			listener.onProgress(this);
+		}
+	}
+
+	void finish() {
+		finished = true;
+		units.clear();
+		if (plugin.isEnabled()) {
+			if (mbu.getMaxChunksPerTick() <= 0) {
+				mbu.setMaxChunksPerTick(DEFAULT_MAX_CHUNKS_PER_TICK);
+			}
+			mbu.notifyClients();
+		}
+		if (listener != null) {
+			listener.onFinished(this);
+		}
+	}
+
+	private static Cuboid[] splitIntoColumns(Cuboid cuboid) {
+		World w = cuboid.getWorld();
+		int x1 = cuboid.getLowerX(), y1 = cuboid.getLowerY(), z1 = cuboid.getLowerZ();
+		int x2 = cuboid.getUpperX(), y2 = cuboid.getUpperY(), z2 = cuboid.getUpperZ();
+		int nx = (x2 >> 4) - (x1 >> 4) + 1, nz = (z2 >> 4) - (z1 >> 4) + 1;
+		Cuboid[] res = new Cuboid[nx * nz];
+		int n = 0;
+		for (int cx = x1 >> 4; cx <= x2 >> 4; cx++) {
+			for (int cz = z1 >> 4; cz <= z2 >> 4; cz++) {
+				res[n++] = new Cuboid(w, Math.max(x1, cx << 4), y1, Math.max(z1, cz << 4),
+						Math.min(x2, (cx << 4) + 15), y2, Math.min(z2, (cz << 4) + 15));
+			}
+		}
+		return res;
+	}
+}
@@ -0,0 +1,197 @@
+package me.desht.dhutils.block;
+
+import me.desht.dhutils.LogUtils;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link MassBlockJob}s on the main thread, a few units at a time, so that large block
+ * updates don't stall the server.
+ * <p>
+ * The time spent per tick is adjusted according to how long server ticks are actually taking:
+ * while ticks keep to their nominal 50ms, the budget is gradually increased, up to a maximum;
+ * as soon as ticks start running long, the budget is halved, down to a minimum.  The tick time
+ * is measured as the (smoothed) interval between successive runs of the scheduler's task.
+ * <p>
+ * Jobs with a higher priority are always run before jobs with a lower priority.  Jobs of the
+ * same priority take turns, one unit at a time, so that one plugin's large job doesn't hold up
+ * another plugin's jobs indefinitely.  Jobs belonging to a plugin which has been disabled are
+ * dropped.
+ */
+public class MassBlockScheduler implements Runnable {
+	private static final long NOMINAL_TICK = TimeUnit.MILLISECONDS.toNanos(50);
+	// ticks longer than this are taken to mean the server is struggling
+	private static final long LAG_THRESHOLD = TimeUnit.MILLISECONDS.toNanos(52);
+	private static final long BUDGET_STEP = TimeUnit.MICROSECONDS.toNanos(500);
+
+	private final Plugin plugin;
+	private final Map<MassBlockJob.Priority, LinkedList<MassBlockJob>> jobs =
+			new EnumMap<MassBlockJob.Priority, LinkedList<MassBlockJob>>(MassBlockJob.Priority.class);
+	private BukkitTask task = null;
+
+	private long minBudget = TimeUnit.MILLISECONDS.toNanos(1);
+	private long maxBudget = TimeUnit.MILLISECONDS.toNanos(20);
+	private long budget = TimeUnit.MILLISECONDS.toNanos(5);
+	private long lastTick = 0;
+	private double smoothedTickTime = NOMINAL_TICK;
+
+	/**
+	 * Create a new scheduler.
+	 *
+	 * @param plugin the plugin which runs the scheduler's task
+	 */
+	public MassBlockScheduler(Plugin plugin) {
+		this.plugin = plugin;
+		for (MassBlockJob.Priority p : MassBlockJob.Priority.values()) {
+			jobs.put(p, new LinkedList<MassBlockJob>());
+		}
+	}
+
+	/**
+	 * Submit a job to be run.  This must be called from the main thread.
+	 *
+	 * @param job the job
+	 */
+	public void submit(MassBlockJob job) {
+		if (job.isFinished() || job.isCancelled()) {
+			throw new IllegalStateException("can't submit a job which has already finished");
+		}
+		jobs.get(job.getPriority()).add(job);
+		if (task == null) {
+			lastTick = 0;
+			task = Bukkit.getScheduler().runTaskTimer(plugin, this, 1L, 1L);
+		}
+	}
+
+	/**
+	 * Set the range within which the per-tick time budget is adjusted.  The defaults are 1ms
+	 * and 20ms.  At least one unit of work is always run per tick, whatever the budget.
+	 *
+	 * @param min the minimum budget
+	 * @param max the maximum budget
+	 * @param timeUnit the time unit
+	 */
+	public void setBudgetLimits(long min, long max, TimeUnit timeUnit) {
+		minBudget = timeUnit.toNanos(min);
+		maxBudget = timeUnit.toNanos(max);
+		budget = Math.max(minBudget, Math.min(maxBudget, budget));
+	}
+
+	/**
+	 * Get the time which will be spent on jobs in the next tick.
+	 *
+	 * @param timeUnit the time unit for the result
+	 * @return the current per-tick time budget
+	 */
+	public long getBudget(TimeUnit timeUnit) {
+		return timeUnit.convert(budget, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Get the smoothed server tick time, as measured while jobs are running.
+	 *
+	 * @return the tick time, in milliseconds
+	 */
+	public double getTickTime() {
+		return smoothedTickTime / 1000000.0;
+	}
+
+	/**
+	 * Get all jobs which have not yet finished, highest priority first.
+	 *
+	 * @return a list of jobs
+	 */
+	public List<MassBlockJob> getJobs() {
+		List<MassBlockJob> res = new ArrayList<MassBlockJob>();
+		for (int i = MassBlockJob.Priority.values().length - 1; i >= 0; i--) {
+			res.addAll(jobs.get(MassBlockJob.Priority.values()[i]));
+		}
+		return res;
+	}
+
+	@Override
+	public void run() {
+		long start = System.nanoTime();
+		adjustBudget(start);
+
+		List<MassBlockJob> progressed = new ArrayList<MassBlockJob>();
+		boolean first = true;
+		MassBlockJob job;
+		while ((job = nextJob()) != null) {
+			if (!first && System.nanoTime() - start > budget) {
+				break;
+			}
+			try {
+				job.runNextUnit();
+			} catch (RuntimeException e) {
+				LogUtils.severe("Mass block job for " + job.getPlugin().getName() + " failed, cancelling it", e);
+				job.cancel();
+			}
+			if (!progressed.contains(job)) {
+				progressed.add(job);
+			}
+			first = false;
+		}
+
+		for (MassBlockJob j : progressed) {
+			j.notifyProgress();
+		}
+		removeFinishedJobs();
+
+		if (getJobs().isEmpty()) {
+			task.cancel();
+			task = null;
+		}
+	}
+
+	private void adjustBudget(long now) {
+		if (lastTick != 0) {
+			smoothedTickTime = smoothedTickTime * 0.8 + (now - lastTick) * 0.2;
+			if (smoothedTickTime > LAG_THRESHOLD) {
+				budget = Math.max(minBudget, budget / 2);
+			} else {
+				budget = Math.min(maxBudget, budget + BUDGET_STEP);
+			}
+		}
+		lastTick = now;
+	}
+
+	/**
+	 * Get the next job to run a unit from: the first runnable job of the highest priority,
+	 * which is then moved to the back of its queue.
+	 */
+	private MassBlockJob nextJob() {
+		for (int i = MassBlockJob.Priority.values().length - 1; i >= 0; i--) {
+			LinkedList<MassBlockJob> queue = jobs.get(MassBlockJob.Priority.values()[i]);
+			for (int n = 0; n < queue.size(); n++) {
+				MassBlockJob job = queue.removeFirst();
+				queue.addLast(job);
+				if (job.hasMoreUnits()) {
+					return job;
+				}
+			}
+		}
+		return null;
+	}
+
+	private void removeFinishedJobs() {
+		for (LinkedList<MassBlockJob> queue : jobs.values()) {
+			for (Iterator<MassBlockJob> iter = queue.iterator(); iter.hasNext(); ) {
+				MassBlockJob job = iter.next();
+				if (!job.hasMoreUnits()) {
+					iter.remove();
+					job.finish();
+				}
+			}
+		}
+	}
+}
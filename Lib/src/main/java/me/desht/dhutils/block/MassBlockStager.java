@@ -0,0 +1,304 @@
+package me.desht.dhutils.block;
+
+import me.desht.dhutils.LogUtils;
+import me.desht.dhutils.cuboid.Cuboid;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Two-phase builder for large block changes.  In the staging phase, worker threads work out
+ * what each block should become (typically using a {@link BlockPattern}) and fill a primitive
+ * buffer per chunk.  In the commit phase, the main thread writes each finished chunk to the
+ * world via a {@link MassBlockUpdate}, spending no more than a fixed time per tick.  Once all
+ * staged chunks have been committed, {@link MassBlockUpdate#notifyClients()} is called.
+ * <p>
+ * If a staging task fails (e.g. the pattern throws an exception), staging is abandoned: no
+ * more chunks are committed, clients are notified of the chunks which already were, and the
+ * failure is logged and passed to the failure handler, if any, instead of running the
+ * completion task.  A stager which won't be committed should be {@link #cancel() cancelled}.
+ */
+public class MassBlockStager implements Runnable {
+	private final Plugin plugin;
+	private final MassBlockUpdate mbu;
+	private final ExecutorService executor;
+	private final boolean ownExecutor;
+
+	private final Queue<StagedChunk> completed = new ConcurrentLinkedQueue<StagedChunk>();
+	private final AtomicInteger chunksStaging = new AtomicInteger(0);
+	private long maxCommitTimePerTick = TimeUnit.NANOSECONDS.convert(5, TimeUnit.MILLISECONDS);
+	private BukkitTask commitTask = null;
+	private Runnable onComplete = null;
+	private FailureHandler onFailure = null;
+	private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+	private int chunksCommitted = 0;
+
+	/**
+	 * Receives notification that staging failed.  Called from the main thread.
+	 */
+	public interface FailureHandler {
+		/**
+		 * Called when staging has been abandoned because a staging task failed.
+		 *
+		 * @param failure the first failure
+		 */
+		public void onFailure(Throwable failure);
+	}
+
+	/**
+	 * Create a new stager which uses a private thread pool with one thread per spare processor.
+	 * The thread pool is shut down once the commit phase has finished, or the stager is
+	 * cancelled; its threads also exit when they've been idle for a while, so an abandoned
+	 * stager doesn't hold on to them.
+	 *
+	 * @param plugin the plugin
+	 * @param mbu the mass block update which will be used to commit changes
+	 */
+	public MassBlockStager(Plugin plugin, MassBlockUpdate mbu) {
+		this(plugin, mbu, newStagingPool(), true);
+	}
+
+	/**
+	 * Create a new stager which uses the given executor for the staging phase.
+	 *
+	 * @param plugin the plugin
+	 * @param mbu the mass block update which will be used to commit changes
+	 * @param executor the executor for staging work
+	 */
+	public MassBlockStager(Plugin plugin, MassBlockUpdate mbu, ExecutorService executor) {
+		this(plugin, mbu, executor, false);
+	}
+
+	private MassBlockStager(Plugin plugin, MassBlockUpdate mbu, ExecutorService executor, boolean ownExecutor) {
+		this.plugin = plugin;
+		this.mbu = mbu;
+		this.executor = executor;
+		this.ownExecutor = ownExecutor;
+	}
+
+	private static ExecutorService newStagingPool() {
+		int nThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(nThreads, nThreads, 30L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "dhutils block stager");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+	/**
+	 * Stage changes for every block in the given Cuboid, as computed by the given pattern.
+	 * One staging task is submitted per chunk column which intersects the Cuboid.  This
+	 * method may be called several times before {@link #commit()}.
+	 *
+	 * @param cuboid the region to stage
+	 * @param pattern the pattern which computes each block; called from worker threads
+	 */
+	public void stage(Cuboid cuboid, final BlockPattern pattern) {
+		final int x1 = cuboid.getLowerX(), y1 = cuboid.getLowerY(), z1 = cuboid.getLowerZ();
+		final int x2 = cuboid.getUpperX(), y2 = cuboid.getUpperY(), z2 = cuboid.getUpperZ();
+
+		for (int cx = x1 >> 4; cx <= x2 >> 4; cx++) {
+			for (int cz = z1 >> 4; cz <= z2 >> 4; cz++) {
+				final StagedChunk staged = new StagedChunk(cx, cz);
+				chunksStaging.incrementAndGet();
+				Runnable task = new Runnable() {
+					@Override
+					public void run() {
+						try {
+							if (failure.get() != null) {
+								// staging has been abandoned
+								return;
+							}
+							int minX = Math.max(x1, staged.cx << 4), maxX = Math.min(x2, (staged.cx << 4) + 15);
+							int minZ = Math.max(z1, staged.cz << 4), maxZ = Math.min(z2, (staged.cz << 4) + 15);
+							for (int y = y1; y <= y2; y++) {
+								for (int z = minZ; z <= maxZ; z++) {
+									for (int x = minX; x <= maxX; x++) {
+										int id = pattern.getBlockId(x, y, z);
+										if (id >= 0) {
+											staged.set(x, y, z, id, pattern.getData(x, y, z));
+										}
+									}
+								}
+							}
+							completed.add(staged);
+						} catch (Throwable t) {
+							failure.compareAndSet(null, t);
+						} finally {
+							chunksStaging.decrementAndGet();
+						}
+					}
+				};
+				try {
+					executor.execute(task);
+				} catch (RejectedExecutionException e) {
+					chunksStaging.decrementAndGet();
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Start the commit phase.  Staged chunks are written to the world as they become ready,
+	 * over as many ticks as needed.  This must be called from the main thread.
+	 */
+	public void commit() {
+		if (commitTask == null) {
+			commitTask = Bukkit.getScheduler().runTaskTimer(plugin, this, 1L, 1L);
+		}
+	}
+
+	/**
+	 * Specify the maximum time to spend writing staged chunks per server tick.  The default
+	 * is 5ms (a server tick is 50ms).  At least one chunk is always written per tick.
+	 *
+	 * @param value the value in units of the given time unit
+	 * @param timeUnit the time unit
+	 */
+	public void setMaxCommitTimePerTick(long value, TimeUnit timeUnit) {
+		maxCommitTimePerTick = timeUnit.toNanos(value);
+	}
+
+	/**
+	 * Set a task to be run on the main thread once all staged chunks have been committed.
+	 *
+	 * @param onComplete the task to run
+	 */
+	public void setOnComplete(Runnable onComplete) {
+		this.onComplete = onComplete;
+	}
+
+	/**
+	 * Set a handler to be called on the main thread if staging fails.
+	 *
+	 * @param onFailure the failure handler
+	 */
+	public void setOnFailure(FailureHandler onFailure) {
+		this.onFailure = onFailure;
+	}
+
+	/**
+	 * Get the first failure of a staging task, if any.
+	 *
+	 * @return the failure, or null if no staging task has failed
+	 */
+	public Throwable getFailure() {
+		return failure.get();
+	}
+
+	/**
+	 * Abandon staging and committing.  Chunks which have already been committed stay changed,
+	 * and clients are not notified of them.  If the stager has its own thread pool, it is shut
+	 * down.  This must be called from the main thread.
+	 */
+	public void cancel() {
+		if (commitTask != null) {
+			commitTask.cancel();
+			commitTask = null;
+		}
+		if (ownExecutor) {
+			executor.shutdownNow();
+		}
+		completed.clear();
+	}
+
+	/**
+	 * Get the number of chunks which are staged or still being staged, but not yet committed.
+	 *
+	 * @return the number of outstanding chunks
+	 */
+	public int getChunksRemaining() {
+		return chunksStaging.get() + completed.size();
+	}
+
+	/**
+	 * Get the number of chunks which have been committed so far.
+	 *
+	 * @return the number of committed chunks
+	 */
+	public int getChunksCommitted() {
+		return chunksCommitted;
+	}
+
+	@Override
+	public void run() {
+		long start = System.nanoTime();
+
+		Throwable t = failure.get();
+		if (t != null) {
+			abort(t);
+			return;
+		}
+
+		StagedChunk staged;
+		while ((staged = completed.poll()) != null) {
+			commitChunk(staged);
+			chunksCommitted++;
+			if (System.nanoTime() - start > maxCommitTimePerTick) {
+				break;
+			}
+		}
+
+		if (chunksStaging.get() == 0 && completed.isEmpty()) {
+			if (failure.get() != null) {
+				// a task may have failed since the check above
+				abort(failure.get());
+				return;
+			}
+			commitTask.cancel();
+			commitTask = null;
+			if (ownExecutor) {
+				executor.shutdown();
+			}
+			mbu.notifyClients();
+			if (onComplete != null) {
+				onComplete.run();
+			}
+		}
+	}
+
+	private void abort(Throwable t) {
+		cancel();
+		mbu.notifyClients();
+		LogUtils.severe("Staging block changes for " + plugin.getName() + " failed; " + chunksCommitted + " chunks were committed: " + t);
+		if (onFailure != null) {
+			onFailure.onFailure(t);
+		}
+	}
+
+	private void commitChunk(StagedChunk staged) {
+		for (SectionBuffer buf : staged.getSections()) {
+			if (buf == null) {
+				continue;
+			}
+			if (mbu instanceof CraftMassBlockUpdate) {
+				((CraftMassBlockUpdate) mbu).writeSection(buf);
+			} else {
+				int baseX = buf.cx << 4, baseY = buf.sy << 4, baseZ = buf.cz << 4;
+				for (int idx = 0; idx < SectionBuffer.SECTION_VOLUME; idx++) {
+					if (buf.blockIds[idx] >= 0) {
+						mbu.setBlock(baseX + (idx & 0x0f), baseY + (idx >> 8), baseZ + ((idx >> 4) & 0x0f), buf.blockIds[idx], buf.data[idx]);
+					}
+				}
+			}
+		}
+	}
+}
@@ -35,6 +35,16 @@ public interface MassBlockUpdate {
          * Recalculate relighting in the background like DEFERRED mode.
          */
         HYBRID,
+
+		/**
+		 * Relight all affected chunk sections in one pass when
+		 * {@link MassBlockUpdate#notifyClients()} or
+		 * {@link MassBlockUpdate#relight()} is called, using a
+		 * flood fill over each whole section rather than relighting
+		 * each changed block separately.  This is much faster than
+		 * IMMEDIATE for large changes, such as filling big regions.
+		 */
+		BATCH,
 	};
 
 	/**
@@ -45,7 +55,7 @@ public interface MassBlockUpdate {
 	 * @param y Y-coordinate of the block
 	 * @param z Z-coordinate of the block
 	 * @param materialId the new material ID for the block
-	 * @return whether the block was actually changed
+	 * @return whether the block was actually changed (always true in batch mode)
 	 */
 	public boolean setBlock(int x, int y, int z, int materialId);
 
@@ -58,10 +68,28 @@ public interface MassBlockUpdate {
 	 * @param z Z-coordinate of the block
 	 * @param materialId the new material ID for the block
 	 * @param data the new block data
-	 * @return whether the block was actually changed
+	 * @return whether the block was actually changed (always true in batch mode)
 	 */
 	public boolean setBlock(int x, int y, int z, int materialId, int data);
 
+	/**
+	 * Set every block in a 16x16x16 chunk section to the given material and
+	 * data, in one pass.  This is much faster than calling
+	 * {@link #setBlock(int, int, int, int, int)} for each block, and unless the
+	 * relighting strategy is NEVER, lighting is recalculated once for the whole
+	 * section rather than once per block.  Any changes for the section which are
+	 * buffered in batch mode are discarded.  Clients will not see this change
+	 * until {@link #notifyClients()} is called.
+	 *
+	 * @param cx X-coordinate of the chunk
+	 * @param sy index of the section within the chunk (block Y-coordinate &gt;&gt; 4)
+	 * @param cz Z-coordinate of the chunk
+	 * @param materialId the new material ID for the blocks
+	 * @param data the new block data
+	 * @return the number of blocks which were actually changed
+	 */
+	public int fillSection(int cx, int sy, int cz, int materialId, int data);
+
 	/**
 	 * Recalculate lighting on all chunks affected by this mass block
 	 * update, and resend any altered chunks to all players within
@@ -95,4 +123,125 @@ public interface MassBlockUpdate {
 	 * @return the number of blocks the need re-lighting
 	 */
 	public int getBlocksToRelight();
+
+	/**
+	 * For relighting with RelightingStrategy.DEFERRED or HYBRID, get the
+	 * approximate amount of memory used to hold blocks which are waiting
+	 * for relighting.  This can be used to choose a suitable initial size
+	 * for the deferred buffer.
+	 *
+	 * @return the memory used by the deferred relighting buffer, in bytes
+	 */
+	public long getDeferredBufferMemory();
+
+	/**
+	 * Limit the number of modified chunks which are resent to clients per
+	 * server tick.  If the limit is exceeded, the remaining chunks are sent
+	 * over the following ticks.  Only chunks within view distance of at
+	 * least one player in the world are resent.  The default is 0, meaning
+	 * no limit.
+	 *
+	 * @param maxChunksPerTick the maximum number of chunks to send per tick,
+	 *                         or 0 for no limit
+	 */
+	public void setMaxChunksPerTick(int maxChunksPerTick);
+
+	/**
+	 * Get the limit on the number of modified chunks resent to clients per
+	 * server tick.
+	 *
+	 * @return the maximum number of chunks to send per tick, or 0 for no limit
+	 * @see #setMaxChunksPerTick(int)
+	 */
+	public int getMaxChunksPerTick();
+
+	/**
+	 * Get the number of modified chunks still waiting to be resent to
+	 * clients, when a limit has been set with {@link #setMaxChunksPerTick(int)}.
+	 *
+	 * @return the number of chunks waiting to be resent
+	 */
+	public int getChunksToResend();
+
+	/**
+	 * Enable or disable batch mode.  In batch mode, calls to
+	 * {@link #setBlock(int, int, int, int, int)} only record the change;
+	 * the changes are buffered per 16x16x16 chunk section and written to
+	 * the world a whole section at a time when {@link #flush()} or
+	 * {@link #notifyClients()} is called.  This is much faster for large
+	 * updates, but block placement logic is only run for blocks which
+	 * have a tile entity.  Batch mode is off by default.
+	 *
+	 * @param batchMode true to enable batch mode, false to disable it
+	 */
+	public void setBatchMode(boolean batchMode);
+
+	/**
+	 * Check if batch mode is enabled.
+	 *
+	 * @return true if batch mode is enabled
+	 */
+	public boolean isBatchMode();
+
+	/**
+	 * Write any block changes buffered in batch mode to the world.  Clients
+	 * will not see the changes until {@link #notifyClients()} is called
+	 * (which also calls this method).
+	 *
+	 * @return the number of blocks which were actually changed
+	 */
+	public int flush();
+
+	/**
+	 * Relight the chunk sections which are waiting to be relit, now rather
+	 * than when {@link #notifyClients()} is called.  With
+	 * RelightingStrategy.BATCH, this lets a large update be relit a piece
+	 * at a time, e.g. after each {@link #flush()}.  Any changes still
+	 * buffered in batch mode are not relit until they have been flushed.
+	 *
+	 * @return the number of sections which were relit
+	 */
+	public int relight();
+
+	/**
+	 * Enable or disable the change journal.  While the journal is enabled,
+	 * the previous state of every block changed by this update is recorded,
+	 * so that the changes can later be reverted with {@link #undo()}.
+	 * Disabling the journal discards anything recorded so far.  The journal
+	 * is off by default.
+	 *
+	 * @param enabled true to enable the journal, false to disable it
+	 */
+	public void setJournalEnabled(boolean enabled);
+
+	/**
+	 * Check if the change journal is enabled.
+	 *
+	 * @return true if the journal is enabled
+	 */
+	public boolean isJournalEnabled();
+
+	/**
+	 * Revert every block change recorded in the journal, restoring the
+	 * previous block IDs and data.  The contents of tile entities are not
+	 * restored.  Clients will not see the changes until
+	 * {@link #notifyClients()} is called.
+	 *
+	 * @return the number of blocks which were changed
+	 * @throws IllegalStateException if the journal is not enabled, or the
+	 *         changes have already been undone
+	 */
+	public int undo();
+
+	/**
+	 * Re-apply every block change reverted by {@link #undo()}.  Making any
+	 * other block change after an undo discards the reverted changes, so
+	 * they can no longer be redone.  Clients will not see the changes until
+	 * {@link #notifyClients()} is called.
+	 *
+	 * @return the number of blocks which were changed
+	 * @throws IllegalStateException if the journal is not enabled, or there
+	 *         are no undone changes to redo
+	 */
+	public int redo();
 }
@@ -12,12 +12,23 @@ import org.bukkit.block.Skull;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.material.MaterialData;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class MaterialWithData implements Cloneable {
 
-	private static final Map<String, MaterialWithData> materialCache = new HashMap<String, MaterialWithData>();
+	private static final int MAX_CACHED_SPECS = 1024;
+
+	// canonical instances for plain ID/data pairs, indexed by (id << 4) | data
+	private static final MaterialWithData[] plainCache = new MaterialWithData[4096 << 4];
+
+	// recently parsed specification strings, least recently used first
+	private static final Map<String, MaterialWithData> specCache = new LinkedHashMap<String, MaterialWithData>(64, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, MaterialWithData> eldest) {
+			return size() > MAX_CACHED_SPECS;
+		}
+	};
 
 	private final int matId;
 	private final short data;
@@ -91,6 +102,10 @@ public class MaterialWithData implements Cloneable {
 	/**
 	 * Get a MaterialData object from a String specification. The specification is a string or numeric Material name,
 	 * optionally followed by a colon (:) and a numeric data byte.
+	 * <p>
+	 * Instances are immutable and shared: the most recently used specifications are cached, and
+	 * any specification without extra data (e.g. sign text) gives the same instance as
+	 * {@link #get(int, short)} for the same ID and data.
 	 *
 	 * @param spec the specification
 	 * @return The MaterialWithData object
@@ -99,13 +114,45 @@ public class MaterialWithData implements Cloneable {
 	@FactoryMethod
 	public static MaterialWithData get(String spec) {
 		String key = spec.toLowerCase();
-		if (materialCache.containsKey(key)) {
-			return materialCache.get(key);
-		} else {
-			MaterialWithData mat = new MaterialWithData(spec);
-			materialCache.put(key, mat);
-			return mat;
+		MaterialWithData mat;
+		synchronized (specCache) {
+			mat = specCache.get(key);
+		}
+		if (mat == null) {
+			mat = new MaterialWithData(spec);
+			if (mat.metadata == null) {
+				// so that e.g. "stone" and "1:0" give the same instance
+				mat = getPlain(mat.matId, mat.data, mat);
+			}
+			synchronized (specCache) {
+				specCache.put(key, mat);
+			}
+		}
+		return mat;
+	}
+
+	/**
+	 * Get the canonical instance for a plain ID/data pair (i.e. one without any extra data).
+	 *
+	 * @param id the material ID
+	 * @param data the material data
+	 * @param mat an existing instance to use as the canonical one if there isn't one yet,
+	 *            or null to create one as needed
+	 * @return the canonical instance
+	 */
+	private static MaterialWithData getPlain(int id, short data, MaterialWithData mat) {
+		if (id < 0 || id >= 4096 || data < 0 || data >= 16) {
+			// not covered by the cache, but then these shouldn't be common
+			return mat == null ? new MaterialWithData(id, data) : mat;
 		}
+		int idx = id << 4 | data;
+		MaterialWithData res = plainCache[idx];
+		if (res == null) {
+			// no need to synchronize; at worst, two equal instances are created, and either is fine
+			res = mat == null ? new MaterialWithData(id, data) : mat;
+			plainCache[idx] = res;
+		}
+		return res;
 	}
 
 
@@ -124,8 +171,10 @@ public class MaterialWithData implements Cloneable {
 	 * @return the MaterialWithData object
 	 */
 	public static MaterialWithData get(int id, short data, String[] metadata) {
-		String key = metadata == null ? String.format("%d:%d", id, data) : String.format("%d:%d=%s", id, data, Joiner.on(";").join(metadata));
-		return get(key);
+		if (metadata == null) {
+			return getPlain(id, data, null);
+		}
+		return get(String.format("%d:%d=%s", id, data, Joiner.on(";").join(metadata)));
 	}
 
 	/**
@@ -137,15 +186,15 @@ public class MaterialWithData implements Cloneable {
 	 */
 	@Deprecated
 	public static MaterialWithData get(int id, byte data) {
-		return get(String.format("%d:%d", id, data));
+		return getPlain(id, data, null);
 	}
 
 	public static MaterialWithData get(int id, short data) {
-		return get(String.format("%d:%d", id, data));
+		return getPlain(id, data, null);
 	}
 
 	public static MaterialWithData get(Block b) {
-		return get(String.format("%d:%d", b.getTypeId(), (short)b.getData()));
+		return getPlain(b.getTypeId(), b.getData(), null);
 	}
 
 	/**
@@ -155,7 +204,7 @@ public class MaterialWithData implements Cloneable {
 	 * @return the MaterialWithData object
 	 */
 	public static MaterialWithData get(int id) {
-		return get(String.format("%d:%d", id, 0));
+		return getPlain(id, (short) 0, null);
 	}
 
 	/**
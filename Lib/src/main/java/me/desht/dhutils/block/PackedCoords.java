@@ -0,0 +1,46 @@
+package me.desht.dhutils.block;
+
+/**
+ * Packs block, section and chunk co-ordinates into a single long, so that positions can be
+ * stored in primitive collections.  X and Z get 26 bits each (enough for the full range of
+ * a Minecraft world) and Y gets 12 bits.
+ */
+public class PackedCoords {
+	private PackedCoords() {
+	}
+
+	/**
+	 * Pack the given co-ordinates.
+	 *
+	 * @param x X co-ordinate
+	 * @param y Y co-ordinate
+	 * @param z Z co-ordinate
+	 * @return the packed co-ordinates
+	 */
+	public static long pack(int x, int y, int z) {
+		return ((long) x & 0x3ffffffL) << 38 | ((long) z & 0x3ffffffL) << 12 | (y & 0xfffL);
+	}
+
+	/**
+	 * Pack the given chunk co-ordinates.
+	 *
+	 * @param cx chunk X co-ordinate
+	 * @param cz chunk Z co-ordinate
+	 * @return the packed co-ordinates
+	 */
+	public static long packChunk(int cx, int cz) {
+		return pack(cx, 0, cz);
+	}
+
+	public static int unpackX(long packed) {
+		return (int) (packed >> 38);
+	}
+
+	public static int unpackY(long packed) {
+		return (int) (packed << 52 >> 52);
+	}
+
+	public static int unpackZ(long packed) {
+		return (int) (packed << 26 >> 38);
+	}
+}
@@ -0,0 +1,54 @@
+package me.desht.dhutils.block;
+
+import java.util.Arrays;
+
+/**
+ * Pending block changes for a single 16x16x16 chunk section, stored in primitive arrays
+ * laid out as expected by {@link me.desht.dhutils.nms.api.NMSAbstraction#setSectionFast}.
+ */
+class SectionBuffer {
+	static final int SECTION_VOLUME = 4096;
+
+	final int cx, sy, cz;
+	final short[] blockIds = new short[SECTION_VOLUME];
+	final byte[] data = new byte[SECTION_VOLUME];
+	private int pending = 0;
+
+	SectionBuffer(int cx, int sy, int cz) {
+		this.cx = cx;
+		this.sy = sy;
+		this.cz = cz;
+		Arrays.fill(blockIds, (short) -1);
+	}
+
+	/**
+	 * Record a change at the given world co-ordinates, which must lie within this section.
+	 * A later change to the same block replaces any earlier one.
+	 *
+	 * @param x world X co-ordinate
+	 * @param y world Y co-ordinate
+	 * @param z world Z co-ordinate
+	 * @param blockId the new block ID
+	 * @param blockData the new block data
+	 */
+	void set(int x, int y, int z, int blockId, int blockData) {
+		int idx = index(x, y, z);
+		if (blockIds[idx] < 0) {
+			pending++;
+		}
+		blockIds[idx] = (short) blockId;
+		data[idx] = (byte) blockData;
+	}
+
+	int getPending() {
+		return pending;
+	}
+
+	static int index(int x, int y, int z) {
+		return (y & 0x0f) << 8 | (z & 0x0f) << 4 | (x & 0x0f);
+	}
+
+	static long key(int cx, int sy, int cz) {
+		return PackedCoords.pack(cx, sy, cz);
+	}
+}
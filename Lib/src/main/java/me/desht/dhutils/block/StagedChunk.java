@@ -0,0 +1,39 @@
+package me.desht.dhutils.block;
+
+/**
+ * The staged block changes for one chunk column, held as a set of per-section primitive
+ * buffers.  A StagedChunk is filled by a single (possibly non-main) thread, and handed
+ * over to the main thread once complete.
+ */
+class StagedChunk {
+	private static final int MAX_SECTIONS = 16;
+
+	final int cx, cz;
+	private final SectionBuffer[] sections = new SectionBuffer[MAX_SECTIONS];
+	private int nChanges = 0;
+
+	StagedChunk(int cx, int cz) {
+		this.cx = cx;
+		this.cz = cz;
+	}
+
+	void set(int x, int y, int z, int blockId, int data) {
+		int sy = y >> 4;
+		if (sy < 0 || sy >= MAX_SECTIONS) {
+			return;
+		}
+		if (sections[sy] == null) {
+			sections[sy] = new SectionBuffer(cx, sy, cz);
+		}
+		sections[sy].set(x, y, z, blockId, data);
+		nChanges++;
+	}
+
+	SectionBuffer[] getSections() {
+		return sections;
+	}
+
+	int getChangeCount() {
+		return nChanges;
+	}
+}
@@ -10,6 +10,7 @@ import java.util.regex.Pattern;
 
 import me.desht.dhutils.DHUtilsException;
 import me.desht.dhutils.Debugger;
+import me.desht.dhutils.FuzzyIndex;
 import me.desht.dhutils.LogUtils;
 import me.desht.dhutils.MiscUtil;
 
@@ -399,11 +400,7 @@ public abstract class AbstractCommand implements Comparable<AbstractCommand> {
 	}
 
 	protected List<String> getEnumCompletions(CommandSender sender, Class<? extends Enum<?>> c, String prefix) {
-		List<String> res = new ArrayList<String>();
-		for (Object o1 : c.getEnumConstants()) {
-			res.add(o1.toString());
-		}
-		return filterPrefix(sender, res, prefix);
+		return getResult(FuzzyIndex.forEnum(c).getKeysWithPrefix(prefix), sender, true);
 	}
 
 	protected List<String> getConfigCompletions(CommandSender sender, ConfigurationSection config, String prefix) {
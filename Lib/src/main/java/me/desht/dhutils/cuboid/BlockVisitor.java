@@ -0,0 +1,15 @@
+package me.desht.dhutils.cuboid;
+
+/**
+ * Receives the co-ordinates of each block visited by {@link Cuboid#forEachBlock(BlockVisitor)}.
+ */
+public interface BlockVisitor {
+	/**
+	 * Visit one block.
+	 *
+	 * @param x the block's X co-ordinate
+	 * @param y the block's Y co-ordinate
+	 * @param z the block's Z co-ordinate
+	 */
+	public void visit(int x, int y, int z);
+}
@@ -10,6 +10,8 @@ import org.bukkit.configuration.serialization.ConfigurationSerializable;
 import org.bukkit.material.MaterialData;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 public class Cuboid implements Iterable<Block>, Cloneable, ConfigurationSerializable {
 	protected final String worldName;
@@ -391,15 +393,67 @@ public class Cuboid implements Iterable<Block>, Cloneable, ConfigurationSerializ
 	 * @return	the average light level of this Cuboid
 	 */
 	public byte averageLightLevel() {
-		long total = 0;
-		int n = 0;
-		for (Block b : this) {
-			if (b.isEmpty()) {
-				total += b.getLightLevel();
-				++n;
+		final int skyDarkening = getSkyDarkening(getWorld());
+		if (skyDarkening < 0) {
+			long total = 0;
+			int n = 0;
+			for (Block b : this) {
+				if (b.isEmpty()) {
+					total += b.getLightLevel();
+					++n;
+				}
 			}
+			return n > 0 ? (byte) (total / n) : 0;
+		}
+
+		final long[] totals = new long[2];
+		forEachChunkSection(new SectionVisitor() {
+			@Override
+			public boolean visit(CuboidSection section) {
+				for (int y = section.getMinY(); y <= section.getMaxY(); y++) {
+					for (int z = section.getMinZ(); z <= section.getMaxZ(); z++) {
+						for (int x = section.getMinX(); x <= section.getMaxX(); x++) {
+							if (section.getBlockId(x, y, z) == 0) {
+								totals[0] += Math.max(section.getSkyLight(x, y, z) - skyDarkening, section.getBlockLight(x, y, z));
+								totals[1]++;
+							}
+						}
+					}
+				}
+				return true;
+			}
+		});
+		return totals[1] > 0 ? (byte) (totals[0] / totals[1]) : 0;
+	}
+
+	/**
+	 * Work out how much sky light is currently lost due to the time of day and weather.  This
+	 * isn't available through the Bukkit API, but can be inferred from a block at the top of
+	 * the world which gets full sky light and no block light.
+	 *
+	 * @param w the world
+	 * @return the sky light reduction, or -1 if it couldn't be determined
+	 */
+	int getSkyDarkening(World w) {
+		if (w.getEnvironment() != World.Environment.NORMAL) {
+			// no sky light at all
+			return 15;
 		}
-		return n > 0 ? (byte) (total / n) : 0;
+		return getSkyDarkening(w.getBlockAt(x1, w.getMaxHeight() - 1, z1));
+	}
+
+	/**
+	 * Work out the sky darkening from the given block at the top of the world.
+	 *
+	 * @param top the block
+	 * @return the sky light reduction, or -1 if the block doesn't get full sky light and no
+	 *         block light
+	 */
+	static int getSkyDarkening(Block top) {
+		if (top.getLightFromSky() == 15 && top.getLightFromBlocks() == 0) {
+			return 15 - top.getLightLevel();
+		}
+		return -1;
 	}
 
 	/**
@@ -496,12 +550,25 @@ public class Cuboid implements Iterable<Block>, Cloneable, ConfigurationSerializ
 	 * @return true if this Cuboid contains only blocks of the given type
 	 */
 	public boolean containsOnly(Material material) {
-		for (Block b : this) {
-			if (b.getType() != material) {
-				return false;
+		final int blockId = material.getId();
+		final boolean[] res = new boolean[] { true };
+		forEachChunkSection(new SectionVisitor() {
+			@Override
+			public boolean visit(CuboidSection section) {
+				for (int y = section.getMinY(); y <= section.getMaxY(); y++) {
+					for (int z = section.getMinZ(); z <= section.getMaxZ(); z++) {
+						for (int x = section.getMinX(); x <= section.getMaxX(); x++) {
+							if (section.getBlockId(x, y, z) != blockId) {
+								res[0] = false;
+								return false;
+							}
+						}
+					}
+				}
+				return true;
 			}
-		}
-		return true;
+		});
+		return res[0];
 	}
 
 	/**
@@ -600,7 +667,9 @@ public class Cuboid implements Iterable<Block>, Cloneable, ConfigurationSerializ
 
 	/**
 	 * Set all the blocks in this cuboid to the given block ID and data byte, using
-	 * a MassBlockUpdate object for fast updates.
+	 * a MassBlockUpdate object for fast updates.  Chunk sections which lie entirely
+	 * inside the Cuboid are filled in one go; only the sections around the edges
+	 * are updated block by block.
 	 *
 	 * @param blockId the block ID
 	 * @param data the block data
@@ -609,9 +678,31 @@ public class Cuboid implements Iterable<Block>, Cloneable, ConfigurationSerializ
 	 */
     @Deprecated
 	public void fill(int blockId, byte data, MassBlockUpdate mbu) {
-		for (Block b : this) {
-			mbu.setBlock(b.getX(), b.getY(), b.getZ(), blockId, data);
+		long start = System.nanoTime();
+		int minY = Math.max(y1, 0), maxY = Math.min(y2, getWorld().getMaxHeight() - 1);
+
+		for (int cx = x1 >> 4; cx <= x2 >> 4; cx++) {
+			int minX = Math.max(x1, cx << 4), maxX = Math.min(x2, (cx << 4) + 15);
+			for (int cz = z1 >> 4; cz <= z2 >> 4; cz++) {
+				int minZ = Math.max(z1, cz << 4), maxZ = Math.min(z2, (cz << 4) + 15);
+				for (int sy = minY >> 4; sy <= maxY >> 4; sy++) {
+					int sMinY = Math.max(minY, sy << 4), sMaxY = Math.min(maxY, (sy << 4) + 15);
+					if (maxX - minX == 15 && sMaxY - sMinY == 15 && maxZ - minZ == 15) {
+						mbu.fillSection(cx, sy, cz, blockId, data);
+					} else {
+						for (int y = sMinY; y <= sMaxY; y++) {
+							for (int z = minZ; z <= maxZ; z++) {
+								for (int x = minX; x <= maxX; x++) {
+									mbu.setBlock(x, y, z, blockId, data);
+								}
+							}
+						}
+					}
+				}
+			}
 		}
+
+		Debugger.getInstance().debug(2, "Cuboid: " + this + ": fill " + blockId + "/" + data + ": " + (System.nanoTime() - start) + "ns");
 	}
 
     /**
@@ -667,6 +758,76 @@ public class Cuboid implements Iterable<Block>, Cloneable, ConfigurationSerializ
 		Debugger.getInstance().debug(2, "Cuboid: resetLightLevel: " + this + " in " + (System.nanoTime() - start) + " ns");
 	}
 
+	/**
+	 * Visit the co-ordinates of every block in this Cuboid.  Unlike iterating over the Cuboid,
+	 * no Block objects are created.  Blocks are visited in the same order as by
+	 * {@link #iterator()}.
+	 *
+	 * @param visitor the visitor
+	 */
+	public void forEachBlock(BlockVisitor visitor) {
+		for (int z = z1; z <= z2; z++) {
+			for (int y = y1; y <= y2; y++) {
+				for (int x = x1; x <= x2; x++) {
+					visitor.visit(x, y, z);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Visit every chunk section which intersects this Cuboid, a chunk at a time.  The visitor
+	 * gets bulk access to the block IDs, data and light levels of each section, which is much
+	 * cheaper than getting a Block object for each position.  Sections outside the world's
+	 * height range are skipped.
+	 *
+	 * @param visitor the visitor
+	 */
+	public void forEachChunkSection(SectionVisitor visitor) {
+		World w = getWorld();
+		NMSAbstraction nms = NMSHelper.getNMS();
+		CuboidSection section = new CuboidSection(w, nms);
+		int minY = Math.max(y1, 0), maxY = Math.min(y2, w.getMaxHeight() - 1);
+
+		for (int cx = x1 >> 4; cx <= x2 >> 4; cx++) {
+			for (int cz = z1 >> 4; cz <= z2 >> 4; cz++) {
+				ChunkSnapshot snapshot = nms == null ? w.getChunkAt(cx, cz).getChunkSnapshot() : null;
+				for (int sy = minY >> 4; sy <= maxY >> 4; sy++) {
+					section.reset(snapshot, cx, sy, cz,
+							Math.max(x1, cx << 4), Math.max(minY, sy << 4), Math.max(z1, cz << 4),
+							Math.min(x2, (cx << 4) + 15), Math.min(maxY, (sy << 4) + 15), Math.min(z2, (cz << 4) + 15));
+					if (!visitor.visit(section)) {
+						return;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Take a snapshot of the blocks in this Cuboid, which can be restored later.  This must be
+	 * called from the main thread.  For a large Cuboid, {@link #snapshot(ExecutorService)}
+	 * keeps most of the work off the main thread.
+	 *
+	 * @return the snapshot
+	 */
+	public RegionSnapshot snapshot() {
+		return new RegionSnapshot.Capture(this).call();
+	}
+
+	/**
+	 * Take a snapshot of the blocks in this Cuboid, which can be restored later.  This must be
+	 * called from the main thread, since it takes a snapshot of each chunk in the Cuboid; the
+	 * chunk snapshots are then encoded on the given executor.  The snapshot reflects the state
+	 * of the world when this method was called.
+	 *
+	 * @param executor the executor to encode the snapshot on
+	 * @return a Future for the snapshot
+	 */
+	public Future<RegionSnapshot> snapshot(ExecutorService executor) {
+		return executor.submit(new RegionSnapshot.Capture(this));
+	}
+
 	/* (non-Javadoc)
 	 * @see java.lang.Iterable#iterator()
 	 */
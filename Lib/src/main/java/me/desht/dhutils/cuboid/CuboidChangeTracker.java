@@ -0,0 +1,340 @@
+package me.desht.dhutils.cuboid;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.BlockState;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockBurnEvent;
+import org.bukkit.event.block.BlockFadeEvent;
+import org.bukkit.event.block.BlockFormEvent;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockGrowEvent;
+import org.bukkit.event.block.BlockPhysicsEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.block.LeavesDecayEvent;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.player.PlayerBucketEmptyEvent;
+import org.bukkit.event.player.PlayerBucketFillEvent;
+import org.bukkit.event.world.StructureGrowEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records which blocks have changed inside a set of tracked Cuboids, by listening for block
+ * events, so that a region can be reset or saved incrementally without rescanning all of it.
+ * Changed positions are held in a bitset per chunk, one bit per block.
+ * <p>
+ * Block place, break, physics, explosion, burn, fade, form, spread, grow, flow, leaf decay,
+ * bucket, structure (tree and mushroom) growth, piston and entity block change events are
+ * recorded.  Changes which don't fire events, such as
+ * those made through a {@link me.desht.dhutils.block.MassBlockUpdate}, are not seen, but can
+ * be recorded with {@link #markDirty(World, int, int, int)}.  A position is recorded as
+ * dirty if an event says it may have changed, even if it ends up unchanged.
+ * <p>
+ * A tracker must only be used from the main thread.
+ */
+public class CuboidChangeTracker implements Listener {
+	// tracked Cuboids, by world name
+	private final Map<String, List<Cuboid>> tracked = new HashMap<String, List<Cuboid>>();
+	// dirty positions by world name, then by chunk; bits are indexed (y << 8 | z << 4 | x)
+	private final Map<String, Map<Long, BitSet>> dirty = new HashMap<String, Map<Long, BitSet>>();
+
+	/**
+	 * Create a new tracker, and register it to receive block events.
+	 *
+	 * @param plugin the plugin which owns the tracker
+	 */
+	public CuboidChangeTracker(Plugin plugin) {
+		plugin.getServer().getPluginManager().registerEvents(this, plugin);
+	}
+
+	/**
+	 * Start recording changes inside the given Cuboid.
+	 *
+	 * @param cuboid the Cuboid
+	 */
+	public void track(Cuboid cuboid) {
+		List<Cuboid> list = tracked.get(cuboid.worldName);
+		if (list == null) {
+			list = new ArrayList<Cuboid>();
+			tracked.put(cuboid.worldName, list);
+		}
+		list.add(cuboid);
+	}
+
+	/**
+	 * Stop recording changes inside the given Cuboid.  Changes already recorded are kept.
+	 *
+	 * @param cuboid the Cuboid
+	 */
+	public void untrack(Cuboid cuboid) {
+		List<Cuboid> list = tracked.get(cuboid.worldName);
+		if (list != null) {
+			list.remove(cuboid);
+			if (list.isEmpty()) {
+				tracked.remove(cuboid.worldName);
+			}
+		}
+	}
+
+	public List<Cuboid> getTrackedCuboids() {
+		List<Cuboid> res = new ArrayList<Cuboid>();
+		for (List<Cuboid> list : tracked.values()) {
+			res.addAll(list);
+		}
+		return res;
+	}
+
+	/**
+	 * Record a change at the given position, if it's inside a tracked Cuboid.
+	 *
+	 * @param world the world
+	 * @param x the X co-ordinate
+	 * @param y the Y co-ordinate
+	 * @param z the Z co-ordinate
+	 */
+	public void markDirty(World world, int x, int y, int z) {
+		markDirty(world.getName(), x, y, z);
+	}
+
+	public boolean isDirty() {
+		return !dirty.isEmpty();
+	}
+
+	/**
+	 * Get the number of positions which have been recorded as changed.
+	 *
+	 * @return the number of dirty positions
+	 */
+	public int getDirtyCount() {
+		int count = 0;
+		for (Map<Long, BitSet> chunks : dirty.values()) {
+			for (BitSet bits : chunks.values()) {
+				count += bits.cardinality();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Get the positions which have been recorded as changed.  Positions in worlds which are
+	 * no longer loaded are left out.
+	 *
+	 * @return a list of block locations
+	 */
+	public List<Location> getDirtyPositions() {
+		List<Location> res = new ArrayList<Location>();
+		for (Map.Entry<String, Map<Long, BitSet>> e : dirty.entrySet()) {
+			World w = Bukkit.getWorld(e.getKey());
+			if (w == null) {
+				continue;
+			}
+			for (Map.Entry<Long, BitSet> chunk : e.getValue().entrySet()) {
+				int bx = chunkX(chunk.getKey()) << 4, bz = chunkZ(chunk.getKey()) << 4;
+				BitSet bits = chunk.getValue();
+				for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+					res.add(new Location(w, bx + (i & 0x0f), i >> 8, bz + ((i >> 4) & 0x0f)));
+				}
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Get the 16x16x16 chunk sections which contain at least one changed position, e.g. for
+	 * passing to {@link RegionSnapshot#load(java.io.File, Cuboid)} to restore just those
+	 * sections.  Sections in worlds which are no longer loaded are left out.
+	 *
+	 * @return a list of Cuboids, one per section
+	 */
+	public List<Cuboid> getDirtySections() {
+		List<Cuboid> res = new ArrayList<Cuboid>();
+		for (Map.Entry<String, Map<Long, BitSet>> e : dirty.entrySet()) {
+			World w = Bukkit.getWorld(e.getKey());
+			if (w == null) {
+				continue;
+			}
+			for (Map.Entry<Long, BitSet> chunk : e.getValue().entrySet()) {
+				int bx = chunkX(chunk.getKey()) << 4, bz = chunkZ(chunk.getKey()) << 4;
+				BitSet bits = chunk.getValue();
+				// each section is 4096 consecutive bits; skip to the next section after a hit
+				for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(((i >> 12) + 1) << 12)) {
+					int by = (i >> 12) << 4;
+					res.add(new Cuboid(w, bx, by, bz, bx + 15, by + 15, bz + 15));
+				}
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Forget all recorded changes, e.g. after the tracked Cuboids have been reset or saved.
+	 */
+	public void clear() {
+		dirty.clear();
+	}
+
+	/**
+	 * Unregister this tracker's event listeners, and forget all tracked Cuboids and changes.
+	 */
+	public void destroy() {
+		HandlerList.unregisterAll(this);
+		tracked.clear();
+		dirty.clear();
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockPlace(BlockPlaceEvent event) {
+		markDirty(event.getBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockBreak(BlockBreakEvent event) {
+		markDirty(event.getBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockPhysics(BlockPhysicsEvent event) {
+		markDirty(event.getBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onEntityExplode(EntityExplodeEvent event) {
+		for (Block b : event.blockList()) {
+			markDirty(b);
+		}
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockBurn(BlockBurnEvent event) {
+		markDirty(event.getBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockFade(BlockFadeEvent event) {
+		markDirty(event.getBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockForm(BlockFormEvent event) {
+		// also covers BlockSpreadEvent, which is a subclass
+		markDirty(event.getBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockGrow(BlockGrowEvent event) {
+		markDirty(event.getBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onStructureGrow(StructureGrowEvent event) {
+		Location loc = event.getLocation();
+		markDirty(loc.getWorld().getName(), loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
+		for (BlockState state : event.getBlocks()) {
+			markDirty(state.getWorld().getName(), state.getX(), state.getY(), state.getZ());
+		}
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBucketEmpty(PlayerBucketEmptyEvent event) {
+		// no BlockPlaceEvent is fired for the liquid placed
+		markDirty(event.getBlockClicked().getRelative(event.getBlockFace()));
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBucketFill(PlayerBucketFillEvent event) {
+		// the clicked block is normally the liquid taken, but mark the face too in case it isn't
+		markDirty(event.getBlockClicked());
+		markDirty(event.getBlockClicked().getRelative(event.getBlockFace()));
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockFromTo(BlockFromToEvent event) {
+		markDirty(event.getToBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onLeavesDecay(LeavesDecayEvent event) {
+		markDirty(event.getBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onEntityChangeBlock(EntityChangeBlockEvent event) {
+		markDirty(event.getBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onPistonExtend(BlockPistonExtendEvent event) {
+		BlockFace dir = event.getDirection();
+		markDirty(event.getBlock());
+		markDirty(event.getBlock().getRelative(dir));
+		for (Block b : event.getBlocks()) {
+			markDirty(b.getRelative(dir));
+		}
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onPistonRetract(BlockPistonRetractEvent event) {
+		markDirty(event.getBlock());
+		markDirty(event.getBlock().getRelative(event.getDirection()));
+		if (event.isSticky()) {
+			Location loc = event.getRetractLocation();
+			markDirty(loc.getWorld().getName(), loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
+		}
+	}
+
+	private void markDirty(Block b) {
+		markDirty(b.getWorld().getName(), b.getX(), b.getY(), b.getZ());
+	}
+
+	private void markDirty(String worldName, int x, int y, int z) {
+		List<Cuboid> list = tracked.get(worldName);
+		if (list == null || y < 0) {
+			return;
+		}
+		for (Cuboid cuboid : list) {
+			if (cuboid.contains(x, y, z)) {
+				Map<Long, BitSet> chunks = dirty.get(worldName);
+				if (chunks == null) {
+					chunks = new HashMap<Long, BitSet>();
+					dirty.put(worldName, chunks);
+				}
+				Long key = chunkKey(x >> 4, z >> 4);
+				BitSet bits = chunks.get(key);
+				if (bits == null) {
+					bits = new BitSet();
+					chunks.put(key, bits);
+				}
+				bits.set(y << 8 | (z & 0x0f) << 4 | (x & 0x0f));
+				return;
+			}
+		}
+	}
+
+	private static long chunkKey(int cx, int cz) {
+		return (long) cx << 32 | (cz & 0xffffffffL);
+	}
+
+	private static int chunkX(long key) {
+		return (int) (key >> 32);
+	}
+
+	private static int chunkZ(long key) {
+		return (int) key;
+	}
+}
@@ -0,0 +1,418 @@
+package me.desht.dhutils.cuboid;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs queries over a Cuboid in parallel, without touching the world off the main thread.
+ * The constructor takes a snapshot of every chunk in the Cuboid, and so must be called from
+ * the main thread; queries then run against those snapshots on the given executor, and
+ * their results are returned as Futures.  Since the snapshots are taken up front, query
+ * results reflect the state of the world when the scanner was created.
+ */
+public class CuboidScanner {
+	private final String worldName;
+	private final int x1, y1, z1, x2, y2, z2;
+	private final ChunkSnapshot[] snapshots;
+	private final int skyDarkening;
+	private final ExecutorService executor;
+	private final int parallelism;
+
+	/**
+	 * Create a new scanner for the given Cuboid.  This must be called from the main thread.
+	 *
+	 * @param cuboid the Cuboid to scan
+	 * @param executor the executor to run queries on
+	 */
+	public CuboidScanner(Cuboid cuboid, ExecutorService executor) {
+		World w = cuboid.getWorld();
+		this.worldName = w.getName();
+		this.x1 = cuboid.getLowerX();
+		this.y1 = Math.max(0, cuboid.getLowerY());
+		this.z1 = cuboid.getLowerZ();
+		this.x2 = cuboid.getUpperX();
+		this.y2 = Math.min(w.getMaxHeight() - 1, cuboid.getUpperY());
+		this.z2 = cuboid.getUpperZ();
+		this.executor = executor;
+		this.parallelism = Runtime.getRuntime().availableProcessors();
+
+		List<ChunkSnapshot> list = new ArrayList<ChunkSnapshot>();
+		for (int cx = x1 >> 4; cx <= x2 >> 4; cx++) {
+			for (int cz = z1 >> 4; cz <= z2 >> 4; cz++) {
+				list.add(w.getChunkAt(cx, cz).getChunkSnapshot());
+			}
+		}
+		this.snapshots = list.toArray(new ChunkSnapshot[list.size()]);
+		this.skyDarkening = getSkyDarkening(cuboid, w);
+	}
+
+	/**
+	 * Work out how much sky light is currently lost due to the time of day and weather; this
+	 * can't be done from the snapshots, so it's done here on the main thread.  As with
+	 * {@link Cuboid#averageLightLevel()}, it's inferred from a block at the top of the world
+	 * which gets full sky light and no block light, trying the top of each chunk column in the
+	 * Cuboid until one is found.  If there is none (e.g. every column is roofed over at the
+	 * build limit), it's calculated from the world's time and weather as the server does.
+	 */
+	private int getSkyDarkening(Cuboid cuboid, World w) {
+		int darkening = cuboid.getSkyDarkening(w);
+		for (int i = 0; darkening < 0 && i < snapshots.length; i++) {
+			darkening = Cuboid.getSkyDarkening(w.getBlockAt(snapshots[i].getX() << 4, w.getMaxHeight() - 1, snapshots[i].getZ() << 4));
+		}
+		return darkening >= 0 ? darkening : calculateSkyDarkening(w);
+	}
+
+	private static int calculateSkyDarkening(World w) {
+		// the sun's angle, as a fraction of a full turn from noon
+		float f = (w.getTime() % 24000L + 1.0F) / 24000.0F - 0.25F;
+		if (f < 0.0F) {
+			f += 1.0F;
+		}
+		if (f > 1.0F) {
+			f -= 1.0F;
+		}
+		float angle = f + ((1.0F - (float) ((Math.cos(f * Math.PI) + 1.0) / 2.0)) - f) / 3.0F;
+
+		float light = 1.0F - ((float) Math.cos(angle * Math.PI * 2.0) * 2.0F + 0.5F);
+		light = 1.0F - Math.max(0.0F, Math.min(1.0F, light));
+		if (w.hasStorm()) {
+			light *= 1.0F - 5.0F / 16.0F;
+			if (w.isThundering()) {
+				light *= 1.0F - 5.0F / 16.0F;
+			}
+		}
+		return (int) ((1.0F - light) * 11.0F);
+	}
+
+	/**
+	 * Run a query over every chunk in the Cuboid.  The chunks are divided into batches, one
+	 * per available processor, and each batch is scanned as a separate task.
+	 *
+	 * @param query the query to run
+	 * @param <T> the type of the query's partial results
+	 * @param <R> the type of the query's final result
+	 * @return a Future for the query's result
+	 */
+	public <T, R> Future<R> run(final SnapshotQuery<T, R> query) {
+		int nBatches = Math.max(1, Math.min(parallelism, snapshots.length));
+		List<Future<T>> partials = new ArrayList<Future<T>>(nBatches);
+		for (int b = 0; b < nBatches; b++) {
+			final int from = b * snapshots.length / nBatches;
+			final int to = (b + 1) * snapshots.length / nBatches;
+			partials.add(executor.submit(new Callable<T>() {
+				@Override
+				public T call() throws Exception {
+					T res = null;
+					for (int i = from; i < to; i++) {
+						T partial = scanChunk(query, snapshots[i]);
+						res = res == null ? partial : query.combine(res, partial);
+					}
+					return res;
+				}
+			}));
+		}
+		return new CombinedFuture<T, R>(query, partials);
+	}
+
+	private <T, R> T scanChunk(SnapshotQuery<T, R> query, ChunkSnapshot snapshot) {
+		int baseX = snapshot.getX() << 4, baseZ = snapshot.getZ() << 4;
+		return query.scan(snapshot,
+				Math.max(x1, baseX) - baseX, y1, Math.max(z1, baseZ) - baseZ,
+				Math.min(x2, baseX + 15) - baseX, y2, Math.min(z2, baseZ + 15) - baseZ);
+	}
+
+	/**
+	 * Count the blocks of each material in the Cuboid.
+	 *
+	 * @return a Future for a map of material to block count
+	 */
+	public Future<Map<Material, Integer>> countMaterials() {
+		return run(new SnapshotQuery<int[], Map<Material, Integer>>() {
+			@Override
+			protected int[] scan(ChunkSnapshot snapshot, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+				int[] counts = new int[4096];
+				for (int y = minY; y <= maxY; y++) {
+					for (int z = minZ; z <= maxZ; z++) {
+						for (int x = minX; x <= maxX; x++) {
+							counts[snapshot.getBlockTypeId(x, y, z) & 0xfff]++;
+						}
+					}
+				}
+				return counts;
+			}
+
+			@Override
+			protected int[] combine(int[] a, int[] b) {
+				for (int i = 0; i < a.length; i++) {
+					a[i] += b[i];
+				}
+				return a;
+			}
+
+			@Override
+			protected Map<Material, Integer> finish(int[] counts) {
+				Map<Material, Integer> res = new EnumMap<Material, Integer>(Material.class);
+				if (counts != null) {
+					for (int id = 0; id < counts.length; id++) {
+						Material mat = Material.getMaterial(id);
+						if (counts[id] > 0 && mat != null) {
+							res.put(mat, counts[id]);
+						}
+					}
+				}
+				return res;
+			}
+		});
+	}
+
+	/**
+	 * Get a histogram of the light levels of all empty (air) blocks in the Cuboid.  Sky light
+	 * is darkened as for {@link #averageLightLevel()}.
+	 *
+	 * @return a Future for a 16-element array; element <em>n</em> is the number of air
+	 *         blocks with light level <em>n</em>
+	 */
+	public Future<int[]> lightHistogram() {
+		return run(new LightHistogramQuery<int[]>() {
+			@Override
+			protected int[] finish(int[] combined) {
+				return combined == null ? new int[16] : combined;
+			}
+		});
+	}
+
+	/**
+	 * Get the average light level of all empty (air) blocks in the Cuboid, as
+	 * {@link Cuboid#averageLightLevel()} does.  Sky light is darkened as it was when the
+	 * scanner was created; if that couldn't be read from the world, it's calculated from the
+	 * time and weather, which may be slightly off while the weather is changing.
+	 *
+	 * @return a Future for the average light level, which is 0 if there are no empty blocks
+	 */
+	public Future<Byte> averageLightLevel() {
+		return run(new LightHistogramQuery<Byte>() {
+			@Override
+			protected Byte finish(int[] combined) {
+				long total = 0;
+				int n = 0;
+				if (combined != null) {
+					for (int level = 0; level < combined.length; level++) {
+						total += (long) level * combined[level];
+						n += combined[level];
+					}
+				}
+				return n > 0 ? (byte) (total / n) : 0;
+			}
+		});
+	}
+
+	/**
+	 * Check if the Cuboid contains only blocks of the given type.
+	 *
+	 * @param material the material to check for
+	 * @return a Future for the result
+	 */
+	public Future<Boolean> containsOnly(Material material) {
+		final int blockId = material.getId();
+		return run(new SnapshotQuery<Boolean, Boolean>() {
+			@Override
+			protected Boolean scan(ChunkSnapshot snapshot, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+				for (int y = minY; y <= maxY; y++) {
+					for (int z = minZ; z <= maxZ; z++) {
+						for (int x = minX; x <= maxX; x++) {
+							if (snapshot.getBlockTypeId(x, y, z) != blockId) {
+								return false;
+							}
+						}
+					}
+				}
+				return true;
+			}
+
+			@Override
+			protected Boolean combine(Boolean a, Boolean b) {
+				return a && b;
+			}
+
+			@Override
+			protected Boolean finish(Boolean combined) {
+				return combined == null || combined;
+			}
+		});
+	}
+
+	/**
+	 * Get the smallest Cuboid which contains all the non-air blocks in this Cuboid, as
+	 * {@link Cuboid#contract()} does.
+	 *
+	 * @return a Future for the contracted Cuboid, or for null if the Cuboid contains only air
+	 */
+	public Future<Cuboid> nonAirBounds() {
+		return run(new SnapshotQuery<int[], Cuboid>() {
+			@Override
+			protected int[] scan(ChunkSnapshot snapshot, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+				int baseX = snapshot.getX() << 4, baseZ = snapshot.getZ() << 4;
+				int[] bounds = null;
+				for (int y = minY; y <= maxY; y++) {
+					for (int z = minZ; z <= maxZ; z++) {
+						for (int x = minX; x <= maxX; x++) {
+							if (snapshot.getBlockTypeId(x, y, z) != 0) {
+								bounds = expand(bounds, baseX + x, y, baseZ + z);
+							}
+						}
+					}
+				}
+				return bounds;
+			}
+
+			@Override
+			protected int[] combine(int[] a, int[] b) {
+				if (a == null || b == null) {
+					return a == null ? b : a;
+				}
+				return expand(expand(a, b[0], b[1], b[2]), b[3], b[4], b[5]);
+			}
+
+			@Override
+			protected Cuboid finish(int[] bounds) {
+				return bounds == null ? null : new Cuboid(worldName, bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5]);
+			}
+
+			private int[] expand(int[] bounds, int x, int y, int z) {
+				if (bounds == null) {
+					return new int[] { x, y, z, x, y, z };
+				}
+				bounds[0] = Math.min(bounds[0], x);
+				bounds[1] = Math.min(bounds[1], y);
+				bounds[2] = Math.min(bounds[2], z);
+				bounds[3] = Math.max(bounds[3], x);
+				bounds[4] = Math.max(bounds[4], y);
+				bounds[5] = Math.max(bounds[5], z);
+				return bounds;
+			}
+		});
+	}
+
+	private abstract class LightHistogramQuery<R> extends SnapshotQuery<int[], R> {
+		@Override
+		protected int[] scan(ChunkSnapshot snapshot, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+			int[] histogram = new int[16];
+			for (int y = minY; y <= maxY; y++) {
+				for (int z = minZ; z <= maxZ; z++) {
+					for (int x = minX; x <= maxX; x++) {
+						if (snapshot.getBlockTypeId(x, y, z) == 0) {
+							int sky = snapshot.getBlockSkyLight(x, y, z) - skyDarkening;
+							histogram[Math.max(sky, snapshot.getBlockEmittedLight(x, y, z))]++;
+						}
+					}
+				}
+			}
+			return histogram;
+		}
+
+		@Override
+		protected int[] combine(int[] a, int[] b) {
+			for (int i = 0; i < a.length; i++) {
+				a[i] += b[i];
+			}
+			return a;
+		}
+	}
+
+	/**
+	 * A Future which combines the partial results of several tasks when its result is first
+	 * requested.  Since combining may modify the partial results in place, it's only done
+	 * once, and the result is kept for later calls.
+	 */
+	private static class CombinedFuture<T, R> implements Future<R> {
+		private final SnapshotQuery<T, R> query;
+		private final List<Future<T>> partials;
+		private R result = null;
+		private boolean combined = false;
+
+		private CombinedFuture(SnapshotQuery<T, R> query, List<Future<T>> partials) {
+			this.query = query;
+			this.partials = partials;
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean res = false;
+			for (Future<T> f : partials) {
+				res |= f.cancel(mayInterruptIfRunning);
+			}
+			return res;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			for (Future<T> f : partials) {
+				if (f.isCancelled()) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public boolean isDone() {
+			for (Future<T> f : partials) {
+				if (!f.isDone()) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public R get() throws InterruptedException, ExecutionException {
+			for (Future<T> f : partials) {
+				f.get();
+			}
+			return getResult();
+		}
+
+		@Override
+		public R get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+			long deadline = System.nanoTime() + unit.toNanos(timeout);
+			for (Future<T> f : partials) {
+				f.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+			}
+			return getResult();
+		}
+
+		/**
+		 * Combine the partial results, which must all be available, if that hasn't been done yet.
+		 */
+		private synchronized R getResult() throws InterruptedException, ExecutionException {
+			if (!combined) {
+				T res = null;
+				for (Future<T> f : partials) {
+					res = combine(res, f.get());
+				}
+				result = query.finish(res);
+				combined = true;
+			}
+			return result;
+		}
+
+		private T combine(T res, T partial) {
+			if (partial == null) {
+				return res;
+			}
+			return res == null ? partial : query.combine(res, partial);
+		}
+	}
+}
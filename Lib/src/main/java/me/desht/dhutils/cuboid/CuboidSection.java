@@ -0,0 +1,152 @@
+package me.desht.dhutils.cuboid;
+
+import me.desht.dhutils.nms.api.NMSAbstraction;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.World;
+
+/**
+ * The part of a 16x16x16 chunk section which lies inside a Cuboid, as passed to a
+ * {@link SectionVisitor}.  Block and light data is read from the world in bulk the first
+ * time it's asked for, via the NMS abstraction if available, or a ChunkSnapshot if not.
+ * All co-ordinates are world co-ordinates.
+ */
+public class CuboidSection {
+	private static final int SECTION_VOLUME = 4096;
+
+	private final World world;
+	private final NMSAbstraction nms;
+	private ChunkSnapshot snapshot;
+
+	private int cx, sy, cz;
+	private int minX, minY, minZ, maxX, maxY, maxZ;
+
+	private final short[] blockIds = new short[SECTION_VOLUME];
+	private final byte[] data = new byte[SECTION_VOLUME];
+	private final byte[] blockLight = new byte[SECTION_VOLUME];
+	private final byte[] skyLight = new byte[SECTION_VOLUME];
+	private boolean blocksLoaded, lightLoaded;
+
+	CuboidSection(World world, NMSAbstraction nms) {
+		this.world = world;
+		this.nms = nms;
+	}
+
+	void reset(ChunkSnapshot snapshot, int cx, int sy, int cz, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+		this.snapshot = snapshot;
+		this.cx = cx;
+		this.sy = sy;
+		this.cz = cz;
+		this.minX = minX;
+		this.minY = minY;
+		this.minZ = minZ;
+		this.maxX = maxX;
+		this.maxY = maxY;
+		this.maxZ = maxZ;
+		blocksLoaded = lightLoaded = false;
+	}
+
+	public World getWorld() {
+		return world;
+	}
+
+	public int getChunkX() {
+		return cx;
+	}
+
+	public int getSectionY() {
+		return sy;
+	}
+
+	public int getChunkZ() {
+		return cz;
+	}
+
+	public int getMinX() {
+		return minX;
+	}
+
+	public int getMinY() {
+		return minY;
+	}
+
+	public int getMinZ() {
+		return minZ;
+	}
+
+	public int getMaxX() {
+		return maxX;
+	}
+
+	public int getMaxY() {
+		return maxY;
+	}
+
+	public int getMaxZ() {
+		return maxZ;
+	}
+
+	/**
+	 * Check if the whole 16x16x16 section lies inside the Cuboid.
+	 *
+	 * @return true if the section is completely covered by the Cuboid
+	 */
+	public boolean isFull() {
+		return maxX - minX == 15 && maxY - minY == 15 && maxZ - minZ == 15;
+	}
+
+	public int getBlockId(int x, int y, int z) {
+		loadBlocks();
+		return blockIds[index(x, y, z)];
+	}
+
+	public int getData(int x, int y, int z) {
+		loadBlocks();
+		return data[index(x, y, z)];
+	}
+
+	public int getBlockLight(int x, int y, int z) {
+		loadLight();
+		return blockLight[index(x, y, z)];
+	}
+
+	public int getSkyLight(int x, int y, int z) {
+		loadLight();
+		return skyLight[index(x, y, z)];
+	}
+
+	private void loadBlocks() {
+		if (blocksLoaded) {
+			return;
+		}
+		if (nms != null) {
+			nms.readSection(world, cx, sy, cz, blockIds, data, null, null);
+		} else {
+			for (int idx = 0; idx < SECTION_VOLUME; idx++) {
+				int x = idx & 0x0f, y = (sy << 4) + (idx >> 8), z = (idx >> 4) & 0x0f;
+				blockIds[idx] = (short) snapshot.getBlockTypeId(x, y, z);
+				data[idx] = (byte) snapshot.getBlockData(x, y, z);
+			}
+		}
+		blocksLoaded = true;
+	}
+
+	private void loadLight() {
+		if (lightLoaded) {
+			return;
+		}
+		if (nms != null) {
+			nms.readSection(world, cx, sy, cz, null, null, blockLight, skyLight);
+		} else {
+			for (int idx = 0; idx < SECTION_VOLUME; idx++) {
+				int x = idx & 0x0f, y = (sy << 4) + (idx >> 8), z = (idx >> 4) & 0x0f;
+				blockLight[idx] = (byte) snapshot.getBlockEmittedLight(x, y, z);
+				skyLight[idx] = (byte) snapshot.getBlockSkyLight(x, y, z);
+			}
+		}
+		lightLoaded = true;
+	}
+
+	private static int index(int x, int y, int z) {
+		return (y & 0x0f) << 8 | (z & 0x0f) << 4 | (x & 0x0f);
+	}
+}
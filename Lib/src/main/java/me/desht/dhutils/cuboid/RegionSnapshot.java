@@ -0,0 +1,697 @@
+package me.desht.dhutils.cuboid;
+
+import me.desht.dhutils.block.MassBlockJob;
+import me.desht.dhutils.block.MassBlockUpdate;
+import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.World;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * An immutable copy of the blocks in a Cuboid, which can be restored to the world later, e.g.
+ * to reset a minigame arena.  Snapshots are taken with {@link Cuboid#snapshot()} or
+ * {@link Cuboid#snapshot(java.util.concurrent.ExecutorService)}.
+ * <p>
+ * Blocks are held a chunk section at a time.  Each section is encoded as a palette of the
+ * distinct block ID/data values it contains, plus an index into the palette for each block,
+ * packed into as few bits as the palette size needs; the result is deflate-compressed.  A
+ * section of a single material takes a handful of bytes, and a typical section of terrain a
+ * few hundred.  Blocks outside the Cuboid are stored as air, and never restored.
+ * <p>
+ * A hash of each section's contents is kept alongside it, so that
+ * {@link #restoreChanges(MassBlockUpdate)} can compare the world against the snapshot without
+ * decoding sections which haven't changed, and only write the blocks which differ.
+ * <p>
+ * Saved snapshot files have a section index after the header, so {@link #load(File, Cuboid)}
+ * can read just the sections covering part of the region.  The file format is:
+ * <pre>
+ * int magic ("DHRS"), short version
+ * UTF world name, int x1, y1, z1, x2, y2, z2 (inclusive bounds)
+ * int section count, then per section: int chunk X, byte section Y, int chunk Z, long hash, int length
+ * the encoded sections, in index order
+ * </pre>
+ */
+public class RegionSnapshot {
+	private static final int MAGIC = 0x44485253;
+	private static final int VERSION = 2;
+	private static final int SECTION_VOLUME = 4096;
+	private static final int INDEX_ENTRY_SIZE = 21;
+	// palette size, palette, bits per index, and indices of up to 12 bits each
+	private static final int MAX_RAW_SIZE = 2 + 2 * SECTION_VOLUME + 1 + SECTION_VOLUME * 12 / 8;
+
+	private final String worldName;
+	private final int x1, y1, z1, x2, y2, z2;
+	private final Section[] sections;
+
+	private RegionSnapshot(String worldName, int x1, int y1, int z1, int x2, int y2, int z2, Section[] sections) {
+		this.worldName = worldName;
+		this.x1 = x1;
+		this.y1 = y1;
+		this.z1 = z1;
+		this.x2 = x2;
+		this.y2 = y2;
+		this.z2 = z2;
+		this.sections = sections;
+	}
+
+	public String getWorldName() {
+		return worldName;
+	}
+
+	public int getLowerX() {
+		return x1;
+	}
+
+	public int getLowerY() {
+		return y1;
+	}
+
+	public int getLowerZ() {
+		return z1;
+	}
+
+	public int getUpperX() {
+		return x2;
+	}
+
+	public int getUpperY() {
+		return y2;
+	}
+
+	public int getUpperZ() {
+		return z2;
+	}
+
+	public int getSectionCount() {
+		return sections.length;
+	}
+
+	/**
+	 * Get the total size of the encoded sections; roughly the memory used by this snapshot,
+	 * and the size of its file.
+	 *
+	 * @return the size in bytes
+	 */
+	public long getEncodedSize() {
+		long size = 0;
+		for (Section section : sections) {
+			size += section.blob.length;
+		}
+		return size;
+	}
+
+	/**
+	 * Write the blocks in this snapshot back to the world.  Sections which are entirely inside
+	 * the snapshot's bounds and contain a single material are written with
+	 * {@link MassBlockUpdate#fillSection(int, int, int, int, int)}.  Clients will not see the
+	 * changes until {@link MassBlockUpdate#notifyClients()} is called.
+	 *
+	 * @param mbu the mass block update to write through, which must be for this snapshot's world
+	 */
+	public void restore(MassBlockUpdate mbu) {
+		Codec codec = new Codec();
+		try {
+			for (Section section : sections) {
+				restoreSection(codec, section, mbu);
+			}
+		} finally {
+			codec.end();
+		}
+	}
+
+	/**
+	 * Add units to the given job to restore this snapshot, one unit per chunk column, so that
+	 * the restore can be spread over several ticks by a
+	 * {@link me.desht.dhutils.block.MassBlockScheduler}.  Otherwise, this behaves like
+	 * {@link #restore(MassBlockUpdate)}.
+	 *
+	 * @param job the job, whose mass block update must be for this snapshot's world
+	 */
+	public void restore(final MassBlockJob job) {
+		int start = 0;
+		while (start < sections.length) {
+			int end = start + 1;
+			while (end < sections.length && sections[end].sameColumn(sections[start])) {
+				end++;
+			}
+			final int from = start, to = end;
+			job.addUnit(new Runnable() {
+				@Override
+				public void run() {
+					Codec codec = new Codec();
+					try {
+						for (int i = from; i < to; i++) {
+							restoreSection(codec, sections[i], job.getMassBlockUpdate());
+						}
+					} finally {
+						codec.end();
+					}
+				}
+			});
+			start = end;
+		}
+	}
+
+	/**
+	 * Write back those blocks in the world which differ from this snapshot, leaving the rest
+	 * alone.  Each section of the world is hashed and compared with the snapshot's hash for
+	 * the section; only sections whose hashes differ are decoded and compared block by block.
+	 * When only a small part of the region has changed since the snapshot was taken, this
+	 * makes far fewer block changes, relights and chunk resends than
+	 * {@link #restore(MassBlockUpdate)}.  This must be called from the main thread.
+	 *
+	 * @param mbu the mass block update to write through, which must be for this snapshot's world
+	 * @return the number of blocks written
+	 * @throws IllegalStateException if this snapshot's world is not loaded
+	 */
+	public int restoreChanges(MassBlockUpdate mbu) {
+		return restoreChanges(mbu, getCuboid(), getSectionMap());
+	}
+
+	/**
+	 * Add units to the given job to write back those blocks in the world which differ from
+	 * this snapshot, one unit per chunk column, so that the work can be spread over several
+	 * ticks by a {@link me.desht.dhutils.block.MassBlockScheduler}.  Each column is compared
+	 * with the snapshot when its unit runs.  Otherwise, this behaves like
+	 * {@link #restoreChanges(MassBlockUpdate)}.
+	 *
+	 * @param job the job, whose mass block update must be for this snapshot's world
+	 * @throws IllegalStateException if this snapshot's world is not loaded
+	 */
+	public void restoreChanges(final MassBlockJob job) {
+		Cuboid cuboid = getCuboid();
+		final World w = cuboid.getWorld();
+		final Map<Long, Section> sectionMap = getSectionMap();
+		for (int cx = x1 >> 4; cx <= x2 >> 4; cx++) {
+			for (int cz = z1 >> 4; cz <= z2 >> 4; cz++) {
+				final Cuboid column = new Cuboid(w, Math.max(x1, cx << 4), y1, Math.max(z1, cz << 4),
+						Math.min(x2, (cx << 4) + 15), y2, Math.min(z2, (cz << 4) + 15));
+				job.addUnit(new Runnable() {
+					@Override
+					public void run() {
+						restoreChanges(job.getMassBlockUpdate(), column, sectionMap);
+					}
+				});
+			}
+		}
+	}
+
+	/**
+	 * Save this snapshot to a file.
+	 *
+	 * @param file the file
+	 * @throws IOException if the file can't be written
+	 */
+	public void save(File file) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
+		try {
+			out.writeInt(MAGIC);
+			out.writeShort(VERSION);
+			out.writeUTF(worldName);
+			out.writeInt(x1);
+			out.writeInt(y1);
+			out.writeInt(z1);
+			out.writeInt(x2);
+			out.writeInt(y2);
+			out.writeInt(z2);
+			out.writeInt(sections.length);
+			for (Section section : sections) {
+				out.writeInt(section.cx);
+				out.writeByte(section.sy);
+				out.writeInt(section.cz);
+				out.writeLong(section.hash);
+				out.writeInt(section.blob.length);
+			}
+			for (Section section : sections) {
+				out.write(section.blob);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Load a snapshot from a file.
+	 *
+	 * @param file the file
+	 * @return the snapshot
+	 * @throws IOException if the file can't be read, or is not a valid snapshot
+	 */
+	public static RegionSnapshot load(File file) throws IOException {
+		return load(file, null);
+	}
+
+	/**
+	 * Load part of a snapshot from a file.  Only the sections which intersect the given area
+	 * are read, and the loaded snapshot's bounds are the intersection of the saved bounds and
+	 * the area, so restoring it only changes blocks in the area.  Section hashes are
+	 * recalculated to cover just the area.
+	 *
+	 * @param file the file
+	 * @param area the area to load, or null to load the whole snapshot
+	 * @return the snapshot
+	 * @throws IOException if the file can't be read, or is not a valid snapshot
+	 * @throws IllegalArgumentException if the area doesn't intersect the saved snapshot
+	 */
+	public static RegionSnapshot load(File file, Cuboid area) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			if (in.readInt() != MAGIC) {
+				throw new IOException(file + ": not a region snapshot");
+			}
+			int version = in.readShort();
+			if (version != VERSION) {
+				throw new IOException(file + ": unsupported region snapshot version " + version);
+			}
+			String worldName = in.readUTF();
+			int x1 = in.readInt(), y1 = in.readInt(), z1 = in.readInt();
+			int x2 = in.readInt(), y2 = in.readInt(), z2 = in.readInt();
+			if (area != null) {
+				x1 = Math.max(x1, area.getLowerX());
+				y1 = Math.max(y1, area.getLowerY());
+				z1 = Math.max(z1, area.getLowerZ());
+				x2 = Math.min(x2, area.getUpperX());
+				y2 = Math.min(y2, area.getUpperY());
+				z2 = Math.min(z2, area.getUpperZ());
+				if (x1 > x2 || y1 > y2 || z1 > z2) {
+					throw new IllegalArgumentException("area " + area + " is outside the snapshot in " + file);
+				}
+			}
+			int count = in.readInt();
+			if (count < 0 || (long) count * INDEX_ENTRY_SIZE > in.length()) {
+				throw new IOException(file + ": bad section count " + count);
+			}
+			byte[] indexBytes = new byte[count * INDEX_ENTRY_SIZE];
+			in.readFully(indexBytes);
+			ByteBuffer index = ByteBuffer.wrap(indexBytes);
+
+			List<Section> sections = new ArrayList<Section>();
+			long offset = in.getFilePointer();
+			for (int i = 0; i < count; i++) {
+				int cx = index.getInt(), sy = index.get(), cz = index.getInt();
+				long hash = index.getLong();
+				int len = index.getInt();
+				if (len < 0 || offset + len > in.length()) {
+					throw new IOException(file + ": bad length for section " + i);
+				}
+				if (cx << 4 <= x2 && (cx << 4) + 15 >= x1 && sy << 4 <= y2 && (sy << 4) + 15 >= y1 && cz << 4 <= z2 && (cz << 4) + 15 >= z1) {
+					byte[] blob = new byte[len];
+					in.seek(offset);
+					in.readFully(blob);
+					sections.add(new Section(cx, sy, cz, hash, blob));
+				}
+				offset += len;
+			}
+			RegionSnapshot snapshot = new RegionSnapshot(worldName, x1, y1, z1, x2, y2, z2, sections.toArray(new Section[sections.size()]));
+			return area == null ? snapshot : snapshot.rehash();
+		} finally {
+			in.close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "RegionSnapshot: " + worldName + "," + x1 + "," + y1 + "," + z1 + "=>" + x2 + "," + y2 + "," + z2;
+	}
+
+	/**
+	 * Get a copy of this snapshot with the section hashes recalculated for its bounds.
+	 */
+	private RegionSnapshot rehash() {
+		Section[] rehashed = new Section[sections.length];
+		Codec codec = new Codec();
+		try {
+			for (int i = 0; i < sections.length; i++) {
+				Section section = sections[i];
+				codec.decode(section);
+				long hash = codec.hash(Math.max(x1, section.cx << 4), Math.max(y1, section.sy << 4), Math.max(z1, section.cz << 4),
+						Math.min(x2, (section.cx << 4) + 15), Math.min(y2, (section.sy << 4) + 15), Math.min(z2, (section.cz << 4) + 15));
+				rehashed[i] = new Section(section.cx, section.sy, section.cz, hash, section.blob);
+			}
+		} finally {
+			codec.end();
+		}
+		return new RegionSnapshot(worldName, x1, y1, z1, x2, y2, z2, rehashed);
+	}
+
+	private Cuboid getCuboid() {
+		World w = Bukkit.getWorld(worldName);
+		if (w == null) {
+			throw new IllegalStateException("world '" + worldName + "' is not loaded");
+		}
+		return new Cuboid(w, x1, y1, z1, x2, y2, z2);
+	}
+
+	private Map<Long, Section> getSectionMap() {
+		Map<Long, Section> map = new HashMap<Long, Section>(sections.length * 2);
+		for (Section section : sections) {
+			map.put(sectionKey(section.cx, section.sy, section.cz), section);
+		}
+		return map;
+	}
+
+	private static long sectionKey(int cx, int sy, int cz) {
+		return (long) cx << 36 ^ (long) (cz & 0x0fffffff) << 8 ^ sy;
+	}
+
+	private static int restoreChanges(final MassBlockUpdate mbu, Cuboid cuboid, final Map<Long, Section> sectionMap) {
+		final Codec current = new Codec();
+		final Codec baseline = new Codec();
+		final int[] written = new int[1];
+		try {
+			cuboid.forEachChunkSection(new SectionVisitor() {
+				@Override
+				public boolean visit(CuboidSection cs) {
+					Section section = sectionMap.get(sectionKey(cs.getChunkX(), cs.getSectionY(), cs.getChunkZ()));
+					if (section == null) {
+						return true;
+					}
+					int minX = cs.getMinX(), minY = cs.getMinY(), minZ = cs.getMinZ();
+					int maxX = cs.getMaxX(), maxY = cs.getMaxY(), maxZ = cs.getMaxZ();
+					for (int y = minY; y <= maxY; y++) {
+						for (int z = minZ; z <= maxZ; z++) {
+							for (int x = minX; x <= maxX; x++) {
+								int idx = index(x, y, z);
+								current.blockIds[idx] = (short) cs.getBlockId(x, y, z);
+								current.data[idx] = (byte) cs.getData(x, y, z);
+							}
+						}
+					}
+					if (current.hash(minX, minY, minZ, maxX, maxY, maxZ) == section.hash) {
+						return true;
+					}
+					baseline.decode(section);
+					for (int y = minY; y <= maxY; y++) {
+						for (int z = minZ; z <= maxZ; z++) {
+							for (int x = minX; x <= maxX; x++) {
+								int idx = index(x, y, z);
+								int id = baseline.blockIds[idx], data = baseline.data[idx];
+								if (current.blockIds[idx] != id || (current.data[idx] & 0x0f) != data) {
+									mbu.setBlock(x, y, z, id, data);
+									written[0]++;
+								}
+							}
+						}
+					}
+					return true;
+				}
+			});
+		} finally {
+			current.end();
+			baseline.end();
+		}
+		return written[0];
+	}
+
+	private void restoreSection(Codec codec, Section section, MassBlockUpdate mbu) {
+		int paletteSize = codec.decode(section);
+		int minX = Math.max(x1, section.cx << 4), maxX = Math.min(x2, (section.cx << 4) + 15);
+		int minY = Math.max(y1, section.sy << 4), maxY = Math.min(y2, (section.sy << 4) + 15);
+		int minZ = Math.max(z1, section.cz << 4), maxZ = Math.min(z2, (section.cz << 4) + 15);
+
+		if (paletteSize == 1 && maxX - minX == 15 && maxY - minY == 15 && maxZ - minZ == 15) {
+			mbu.fillSection(section.cx, section.sy, section.cz, codec.blockIds[0], codec.data[0]);
+			return;
+		}
+		for (int y = minY; y <= maxY; y++) {
+			for (int z = minZ; z <= maxZ; z++) {
+				for (int x = minX; x <= maxX; x++) {
+					int idx = index(x, y, z);
+					mbu.setBlock(x, y, z, codec.blockIds[idx], codec.data[idx]);
+				}
+			}
+		}
+	}
+
+	private static int index(int x, int y, int z) {
+		return (y & 0x0f) << 8 | (z & 0x0f) << 4 | (x & 0x0f);
+	}
+
+	/**
+	 * Takes the chunk snapshots for a new region snapshot when constructed, which must be on
+	 * the main thread, and encodes them when called, which may be on any thread.
+	 */
+	static class Capture implements Callable<RegionSnapshot> {
+		private final String worldName;
+		private final int x1, y1, z1, x2, y2, z2;
+		private final ChunkSnapshot[] snapshots;
+
+		Capture(Cuboid cuboid) {
+			World w = cuboid.getWorld();
+			this.worldName = w.getName();
+			this.x1 = cuboid.getLowerX();
+			this.y1 = Math.max(0, cuboid.getLowerY());
+			this.z1 = cuboid.getLowerZ();
+			this.x2 = cuboid.getUpperX();
+			this.y2 = Math.min(w.getMaxHeight() - 1, cuboid.getUpperY());
+			this.z2 = cuboid.getUpperZ();
+
+			List<ChunkSnapshot> list = new ArrayList<ChunkSnapshot>();
+			for (int cx = x1 >> 4; cx <= x2 >> 4; cx++) {
+				for (int cz = z1 >> 4; cz <= z2 >> 4; cz++) {
+					list.add(w.getChunkAt(cx, cz).getChunkSnapshot());
+				}
+			}
+			this.snapshots = list.toArray(new ChunkSnapshot[list.size()]);
+		}
+
+		@Override
+		public RegionSnapshot call() {
+			List<Section> sections = new ArrayList<Section>();
+			Codec codec = new Codec();
+			try {
+				for (int i = 0; i < snapshots.length; i++) {
+					ChunkSnapshot snapshot = snapshots[i];
+					// let the chunk snapshot be collected once it's been encoded
+					snapshots[i] = null;
+					for (int sy = y1 >> 4; sy <= y2 >> 4; sy++) {
+						sections.add(encodeSection(codec, snapshot, sy));
+					}
+				}
+			} finally {
+				codec.end();
+			}
+			return new RegionSnapshot(worldName, x1, y1, z1, x2, y2, z2, sections.toArray(new Section[sections.size()]));
+		}
+
+		private Section encodeSection(Codec codec, ChunkSnapshot snapshot, int sy) {
+			int cx = snapshot.getX(), cz = snapshot.getZ();
+			int minX = Math.max(x1, cx << 4) & 0x0f, maxX = Math.min(x2, (cx << 4) + 15) & 0x0f;
+			int minY = Math.max(y1, sy << 4), maxY = Math.min(y2, (sy << 4) + 15);
+			int minZ = Math.max(z1, cz << 4) & 0x0f, maxZ = Math.min(z2, (cz << 4) + 15) & 0x0f;
+
+			codec.clear();
+			if (!snapshot.isSectionEmpty(sy)) {
+				for (int y = minY; y <= maxY; y++) {
+					for (int z = minZ; z <= maxZ; z++) {
+						for (int x = minX; x <= maxX; x++) {
+							int idx = index(x, y, z);
+							codec.blockIds[idx] = (short) snapshot.getBlockTypeId(x, y, z);
+							codec.data[idx] = (byte) snapshot.getBlockData(x, y, z);
+						}
+					}
+				}
+			}
+			long hash = codec.hash(minX, minY, minZ, maxX, maxY, maxZ);
+			return new Section(cx, sy, cz, hash, codec.encode());
+		}
+	}
+
+	private static class Section {
+		private final int cx, sy, cz;
+		// hash of the blocks inside the snapshot's bounds; see Codec.hash()
+		private final long hash;
+		private final byte[] blob;
+
+		private Section(int cx, int sy, int cz, long hash, byte[] blob) {
+			this.cx = cx;
+			this.sy = sy;
+			this.cz = cz;
+			this.hash = hash;
+			this.blob = blob;
+		}
+
+		private boolean sameColumn(Section other) {
+			return cx == other.cx && cz == other.cz;
+		}
+	}
+
+	/**
+	 * Encodes and decodes sections, holding the work buffers for one thread.  The section being
+	 * encoded or decoded is held in {@link #blockIds} and {@link #data}, indexed by
+	 * {@link RegionSnapshot#index(int, int, int)}.
+	 */
+	private static class Codec {
+		private final short[] blockIds = new short[SECTION_VOLUME];
+		private final byte[] data = new byte[SECTION_VOLUME];
+		private final char[] palette = new char[SECTION_VOLUME];
+		private final byte[] raw = new byte[MAX_RAW_SIZE];
+		private int[] paletteSlots = null;
+		private Deflater deflater = null;
+		private Inflater inflater = null;
+
+		private void clear() {
+			for (int i = 0; i < SECTION_VOLUME; i++) {
+				blockIds[i] = 0;
+				data[i] = 0;
+			}
+		}
+
+		private byte[] encode() {
+			if (paletteSlots == null) {
+				// one more than the palette index of each ID/data value, or 0 if not in the palette
+				paletteSlots = new int[65536];
+			}
+			short[] indices = new short[SECTION_VOLUME];
+			int paletteSize = 0;
+			for (int i = 0; i < SECTION_VOLUME; i++) {
+				int value = (blockIds[i] & 0x0fff) << 4 | (data[i] & 0x0f);
+				int slot = paletteSlots[value];
+				if (slot == 0) {
+					palette[paletteSize] = (char) value;
+					slot = paletteSlots[value] = ++paletteSize;
+				}
+				indices[i] = (short) (slot - 1);
+			}
+			for (int i = 0; i < paletteSize; i++) {
+				paletteSlots[palette[i]] = 0;
+			}
+
+			ByteBuffer buf = ByteBuffer.wrap(raw);
+			buf.putShort((short) paletteSize);
+			for (int i = 0; i < paletteSize; i++) {
+				buf.putChar(palette[i]);
+			}
+			int bits = bitsFor(paletteSize);
+			buf.put((byte) bits);
+			if (bits > 0) {
+				long[] words = new long[SECTION_VOLUME * bits / 64];
+				for (int i = 0; i < SECTION_VOLUME; i++) {
+					int pos = i * bits, word = pos >> 6, off = pos & 63;
+					words[word] |= (long) indices[i] << off;
+					if (off + bits > 64) {
+						words[word + 1] |= (long) indices[i] >>> (64 - off);
+					}
+				}
+				for (long word : words) {
+					buf.putLong(word);
+				}
+			}
+
+			if (deflater == null) {
+				deflater = new Deflater();
+			}
+			deflater.reset();
+			deflater.setInput(raw, 0, buf.position());
+			deflater.finish();
+			ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+			byte[] chunk = new byte[1024];
+			while (!deflater.finished()) {
+				int n = deflater.deflate(chunk);
+				out.write(chunk, 0, n);
+			}
+			return out.toByteArray();
+		}
+
+		/**
+		 * Decode a section into {@link #blockIds} and {@link #data}.
+		 *
+		 * @param section the section
+		 * @return the number of distinct ID/data values in the section
+		 */
+		private int decode(Section section) {
+			if (inflater == null) {
+				inflater = new Inflater();
+			}
+			inflater.reset();
+			inflater.setInput(section.blob);
+			int len;
+			try {
+				len = inflater.inflate(raw);
+			} catch (DataFormatException e) {
+				throw new IllegalStateException("corrupt snapshot section at " + section.cx + "," + section.sy + "," + section.cz, e);
+			}
+			ByteBuffer buf = ByteBuffer.wrap(raw, 0, len);
+			int paletteSize = buf.getShort();
+			for (int i = 0; i < paletteSize; i++) {
+				palette[i] = buf.getChar();
+			}
+			int bits = buf.get();
+			if (bits == 0) {
+				short id = (short) (palette[0] >> 4);
+				byte d = (byte) (palette[0] & 0x0f);
+				for (int i = 0; i < SECTION_VOLUME; i++) {
+					blockIds[i] = id;
+					data[i] = d;
+				}
+				return paletteSize;
+			}
+			long mask = (1L << bits) - 1;
+			long word = 0;
+			int wordIdx = -1;
+			long next = buf.getLong();
+			for (int i = 0; i < SECTION_VOLUME; i++) {
+				int pos = i * bits, off = pos & 63;
+				if (pos >> 6 != wordIdx) {
+					word = next;
+					wordIdx = pos >> 6;
+					next = buf.hasRemaining() ? buf.getLong() : 0;
+				}
+				long idx = word >>> off;
+				if (off + bits > 64) {
+					idx |= next << (64 - off);
+				}
+				char value = palette[(int) (idx & mask)];
+				blockIds[i] = (short) (value >> 4);
+				data[i] = (byte) (value & 0x0f);
+			}
+			return paletteSize;
+		}
+
+		/**
+		 * Hash the blocks in the given part of the section (FNV-1a over the ID/data values).
+		 * Co-ordinates may be world or section-relative.
+		 */
+		private long hash(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+			long h = 0xcbf29ce484222325L;
+			for (int y = minY; y <= maxY; y++) {
+				for (int z = minZ; z <= maxZ; z++) {
+					for (int x = minX; x <= maxX; x++) {
+						int idx = index(x, y, z);
+						h = (h ^ ((blockIds[idx] & 0x0fff) << 4 | (data[idx] & 0x0f))) * 0x100000001b3L;
+					}
+				}
+			}
+			return h;
+		}
+
+		private static int bitsFor(int paletteSize) {
+			return paletteSize <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(paletteSize - 1);
+		}
+
+		private void end() {
+			if (deflater != null) {
+				deflater.end();
+			}
+			if (inflater != null) {
+				inflater.end();
+			}
+		}
+	}
+}
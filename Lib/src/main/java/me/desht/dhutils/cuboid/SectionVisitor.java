@@ -0,0 +1,15 @@
+package me.desht.dhutils.cuboid;
+
+/**
+ * Receives each chunk section visited by {@link Cuboid#forEachChunkSection(SectionVisitor)}.
+ */
+public interface SectionVisitor {
+	/**
+	 * Visit one chunk section.  The section object is reused for the next visit, so it
+	 * must not be retained after this method returns.
+	 *
+	 * @param section the part of the chunk section which lies inside the Cuboid
+	 * @return true to continue visiting sections, false to stop
+	 */
+	public boolean visit(CuboidSection section);
+}
@@ -0,0 +1,47 @@
+package me.desht.dhutils.cuboid;
+
+import org.bukkit.ChunkSnapshot;
+
+/**
+ * A reduction over the chunk snapshots of a Cuboid, run by a {@link CuboidScanner}.  Each
+ * chunk is scanned independently (possibly on different threads) to produce a partial result,
+ * the partial results are combined, and the combined result is converted to the final result.
+ * Implementations must be thread-safe; in particular, {@link #scan} must not modify any
+ * shared state.
+ *
+ * @param <T> the type of the partial results
+ * @param <R> the type of the final result
+ */
+public abstract class SnapshotQuery<T, R> {
+	/**
+	 * Scan part of one chunk.  The bounds are in chunk-local co-ordinates (0-15 for X and Z),
+	 * and are inclusive.
+	 *
+	 * @param snapshot the chunk snapshot
+	 * @param minX minimum local X co-ordinate
+	 * @param minY minimum Y co-ordinate
+	 * @param minZ minimum local Z co-ordinate
+	 * @param maxX maximum local X co-ordinate
+	 * @param maxY maximum Y co-ordinate
+	 * @param maxZ maximum local Z co-ordinate
+	 * @return the partial result for this chunk
+	 */
+	protected abstract T scan(ChunkSnapshot snapshot, int minX, int minY, int minZ, int maxX, int maxY, int maxZ);
+
+	/**
+	 * Combine two partial results.  Either argument may be modified and returned.
+	 *
+	 * @param a a partial result
+	 * @param b another partial result
+	 * @return the combined result
+	 */
+	protected abstract T combine(T a, T b);
+
+	/**
+	 * Convert the fully-combined partial result into the final result.
+	 *
+	 * @param combined the combined result of scanning every chunk, or null if there were no chunks
+	 * @return the final result
+	 */
+	protected abstract R finish(T combined);
+}
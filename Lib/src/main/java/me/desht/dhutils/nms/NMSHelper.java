@@ -2,33 +2,42 @@ package me.desht.dhutils.nms;
 
 import java.lang.reflect.InvocationTargetException;
 
+import me.desht.dhutils.Debugger;
+import me.desht.dhutils.nms.api.LightingProperties;
 import me.desht.dhutils.nms.api.NMSAbstraction;
 
 import org.bukkit.plugin.Plugin;
 
 public class NMSHelper {
 	private static NMSAbstraction nms = null;
-
-	// This little hack ensures that these classes won't be excluded by Maven if the JAR
-	// is minimised.
-	@SuppressWarnings({"unused", "MismatchedReadAndWriteOfArray"})
-	private static final Class<?>[] classes = new Class<?>[] {
-			me.desht.dhutils.nms.fallback.NMSHandler.class,
-			me.desht.dhutils.nms.pre.NMSHandler.class,
-			me.desht.dhutils.nms.v1_4_5.NMSHandler.class,
-			me.desht.dhutils.nms.v1_4_6.NMSHandler.class,
-			me.desht.dhutils.nms.v1_4_R1.NMSHandler.class,
-			me.desht.dhutils.nms.v1_5_R1.NMSHandler.class,
-			me.desht.dhutils.nms.v1_5_R2.NMSHandler.class,
-			me.desht.dhutils.nms.v1_5_R3.NMSHandler.class,
-			me.desht.dhutils.nms.v1_6_R1.NMSHandler.class,
-			me.desht.dhutils.nms.v1_6_R2.NMSHandler.class,
-			me.desht.dhutils.nms.v1_6_R3.NMSHandler.class,
-			me.desht.dhutils.nms.v1_7_R1.NMSHandler.class,
-			me.desht.dhutils.nms.v1_7_R2.NMSHandler.class,
-			me.desht.dhutils.nms.v1_7_R3.NMSHandler.class,
-            me.desht.dhutils.nms.v1_7_R4.NMSHandler.class,
-	};
+	private static LightingProperties lightingProperties = null;
+	private static NMSMetrics metrics = null;
+
+	// Referring to the holder class (but never initialising it) ensures that the handler
+	// classes won't be excluded by Maven if the JAR is minimised, without loading them all.
+	@SuppressWarnings("unused")
+	private static final Class<?> keepHandlers = HandlerClasses.class;
+
+	private static class HandlerClasses {
+		@SuppressWarnings({"unused", "MismatchedReadAndWriteOfArray"})
+		private static final Class<?>[] classes = new Class<?>[] {
+				me.desht.dhutils.nms.fallback.NMSHandler.class,
+				me.desht.dhutils.nms.pre.NMSHandler.class,
+				me.desht.dhutils.nms.v1_4_5.NMSHandler.class,
+				me.desht.dhutils.nms.v1_4_6.NMSHandler.class,
+				me.desht.dhutils.nms.v1_4_R1.NMSHandler.class,
+				me.desht.dhutils.nms.v1_5_R1.NMSHandler.class,
+				me.desht.dhutils.nms.v1_5_R2.NMSHandler.class,
+				me.desht.dhutils.nms.v1_5_R3.NMSHandler.class,
+				me.desht.dhutils.nms.v1_6_R1.NMSHandler.class,
+				me.desht.dhutils.nms.v1_6_R2.NMSHandler.class,
+				me.desht.dhutils.nms.v1_6_R3.NMSHandler.class,
+				me.desht.dhutils.nms.v1_7_R1.NMSHandler.class,
+				me.desht.dhutils.nms.v1_7_R2.NMSHandler.class,
+				me.desht.dhutils.nms.v1_7_R3.NMSHandler.class,
+				me.desht.dhutils.nms.v1_7_R4.NMSHandler.class,
+		};
+	}
 
 	public static NMSAbstraction init(Plugin plugin) throws ClassNotFoundException, IllegalArgumentException,
 			SecurityException, InstantiationException, IllegalAccessException, InvocationTargetException,
@@ -43,6 +52,8 @@ public class NMSHelper {
 		String serverPackageName = plugin.getServer().getClass().getPackage().getName();
 		String pluginPackageName = plugin.getClass().getPackage().getName();
 
+		long start = System.nanoTime();
+
         // Check for MCPC+
         try {
             Class.forName("za.co.mcportcentral.MCPCUtils");
@@ -72,22 +83,58 @@ public class NMSHelper {
 		}
 
 		// Check if we have a NMSAbstraction implementing class at that location.
+		NMSAbstraction handler;
 		if (NMSAbstraction.class.isAssignableFrom(clazz)) {
-			nms = (NMSAbstraction) clazz.getConstructor().newInstance();
+			handler = (NMSAbstraction) clazz.getConstructor().newInstance();
 		} else {
 			throw new IllegalStateException("Class " + clazz.getName() + " does not implement NMSAbstraction");
 		}
+		setHandler(handler, System.nanoTime() - start);
 
 		return nms;
 	}
 
     public static NMSAbstraction initFallback() {
-        nms = new me.desht.dhutils.nms.fallback.NMSHandler();
+        long start = System.nanoTime();
+        setHandler(new me.desht.dhutils.nms.fallback.NMSHandler(), System.nanoTime() - start);
 
         return nms;
     }
 
+	private static synchronized void setHandler(NMSAbstraction handler, long loadTime) {
+		nms = handler;
+		// built when first needed; it's relatively expensive, and many plugins never need it
+		lightingProperties = null;
+		metrics = new NMSMetrics(handler.getClass().getName(), loadTime);
+		Debugger.getInstance().debug(metrics.toString());
+	}
+
 	public static NMSAbstraction getNMS() {
 		return nms;
 	}
+
+	/**
+	 * Get the block lighting properties, as reported by the NMS abstraction.  These are
+	 * captured the first time this method is called.
+	 *
+	 * @return the lighting properties, or null if the NMS abstraction has not been initialised
+	 */
+	public static synchronized LightingProperties getLightingProperties() {
+		if (lightingProperties == null && nms != null) {
+			long start = System.nanoTime();
+			lightingProperties = LightingProperties.snapshot(nms);
+			metrics.setFirstUseTime(System.nanoTime() - start);
+			Debugger.getInstance().debug(metrics.toString());
+		}
+		return lightingProperties;
+	}
+
+	/**
+	 * Get timings for the initialisation of the NMS abstraction.
+	 *
+	 * @return the metrics, or null if the NMS abstraction has not been initialised
+	 */
+	public static synchronized NMSMetrics getMetrics() {
+		return metrics;
+	}
 }
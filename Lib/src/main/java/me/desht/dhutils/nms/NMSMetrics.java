@@ -0,0 +1,60 @@
+package me.desht.dhutils.nms;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timings for the initialisation of the NMS abstraction, as returned by
+ * {@link NMSHelper#getMetrics()}.  Initialisation is split into two parts: loading and
+ * instantiating the handler class, done by {@link NMSHelper#init(org.bukkit.plugin.Plugin)},
+ * and building the block lighting tables, which is put off until they're first used.
+ */
+public class NMSMetrics {
+	private final String handlerName;
+	private final long loadTime;
+	private volatile long firstUseTime = -1;
+
+	NMSMetrics(String handlerName, long loadTime) {
+		this.handlerName = handlerName;
+		this.loadTime = loadTime;
+	}
+
+	void setFirstUseTime(long firstUseTime) {
+		this.firstUseTime = firstUseTime;
+	}
+
+	/**
+	 * Get the name of the handler class which was chosen.
+	 *
+	 * @return the handler's class name
+	 */
+	public String getHandlerName() {
+		return handlerName;
+	}
+
+	/**
+	 * Get the time taken to find, load and instantiate the handler class.
+	 *
+	 * @param timeUnit the time unit for the result
+	 * @return the time taken
+	 */
+	public long getLoadTime(TimeUnit timeUnit) {
+		return timeUnit.convert(loadTime, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Get the time taken by the work deferred until the NMS abstraction was first used
+	 * (currently, building the block lighting tables).
+	 *
+	 * @param timeUnit the time unit for the result
+	 * @return the time taken, or -1 if the abstraction hasn't been used yet
+	 */
+	public long getFirstUseTime(TimeUnit timeUnit) {
+		return firstUseTime < 0 ? -1 : timeUnit.convert(firstUseTime, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public String toString() {
+		return "NMS handler " + handlerName + ": load " + loadTime / 1000 + "us, first use "
+				+ (firstUseTime < 0 ? "pending" : firstUseTime / 1000 + "us");
+	}
+}
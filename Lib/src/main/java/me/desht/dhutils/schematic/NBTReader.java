@@ -0,0 +1,272 @@
+package me.desht.dhutils.schematic;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A minimal streaming reader for the NBT format.  Tags are read one at a time as the caller
+ * walks through the file, and array payloads can be read a piece at a time, so nothing is held
+ * in memory beyond what the caller asks for.
+ */
+class NBTReader implements Closeable {
+	static final int TAG_END = 0;
+	static final int TAG_BYTE = 1;
+	static final int TAG_SHORT = 2;
+	static final int TAG_INT = 3;
+	static final int TAG_LONG = 4;
+	static final int TAG_FLOAT = 5;
+	static final int TAG_DOUBLE = 6;
+	static final int TAG_BYTE_ARRAY = 7;
+	static final int TAG_STRING = 8;
+	static final int TAG_LIST = 9;
+	static final int TAG_COMPOUND = 10;
+	static final int TAG_INT_ARRAY = 11;
+
+	private final DataInputStream in;
+
+	NBTReader(InputStream in) {
+		this.in = new DataInputStream(in);
+	}
+
+	/**
+	 * Open a gzip-compressed NBT file, as used for schematics.
+	 *
+	 * @param file the file
+	 * @return a reader positioned at the root tag
+	 * @throws IOException if the file can't be opened
+	 */
+	static NBTReader open(File file) throws IOException {
+		return new NBTReader(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file), 65536)));
+	}
+
+	/**
+	 * Read the type of the next named tag in a compound.  Unless it is {@link #TAG_END}, the
+	 * tag's name and then its payload follow.
+	 *
+	 * @return the tag type
+	 * @throws IOException if the stream can't be read
+	 */
+	int readTagType() throws IOException {
+		return in.readUnsignedByte();
+	}
+
+	String readName() throws IOException {
+		return in.readUTF();
+	}
+
+	byte readByte() throws IOException {
+		return in.readByte();
+	}
+
+	short readShort() throws IOException {
+		return in.readShort();
+	}
+
+	int readInt() throws IOException {
+		return in.readInt();
+	}
+
+	String readString() throws IOException {
+		return in.readUTF();
+	}
+
+	/**
+	 * Read the element type of a list payload; the list length and then the elements follow.
+	 *
+	 * @return the element type
+	 * @throws IOException if the stream can't be read
+	 */
+	int readListType() throws IOException {
+		return in.readUnsignedByte();
+	}
+
+	/**
+	 * Read the length of a byte array, int array or list payload; the array elements follow.
+	 *
+	 * @return the array length
+	 * @throws IOException if the stream can't be read, or the length is negative
+	 */
+	int readArrayLength() throws IOException {
+		int len = in.readInt();
+		if (len < 0) {
+			throw new IOException("negative NBT array length " + len);
+		}
+		return len;
+	}
+
+	/**
+	 * Read part of a byte array payload.
+	 *
+	 * @param buf the buffer to read into
+	 * @param off the offset in the buffer
+	 * @param len the number of bytes to read
+	 * @throws IOException if the stream can't be read, or ends early
+	 */
+	void readBytes(byte[] buf, int off, int len) throws IOException {
+		in.readFully(buf, off, len);
+	}
+
+	/**
+	 * Check that a tag has the expected type.
+	 *
+	 * @param name the tag name, for the error message
+	 * @param actual the tag's type
+	 * @param expected the expected type
+	 * @throws IOException if the types differ
+	 */
+	static void expect(String name, int actual, int expected) throws IOException {
+		if (actual != expected) {
+			throw new IOException("NBT tag '" + name + "' has type " + actual + ", expected " + expected);
+		}
+	}
+
+	/**
+	 * Skip over the payload of a tag of the given type.
+	 *
+	 * @param type the tag type
+	 * @throws IOException if the stream can't be read, or contains an unknown tag type
+	 */
+	void skipPayload(int type) throws IOException {
+		switch (type) {
+			case TAG_END:
+				break;
+			case TAG_BYTE:
+				skip(1);
+				break;
+			case TAG_SHORT:
+				skip(2);
+				break;
+			case TAG_INT:
+			case TAG_FLOAT:
+				skip(4);
+				break;
+			case TAG_LONG:
+			case TAG_DOUBLE:
+				skip(8);
+				break;
+			case TAG_BYTE_ARRAY:
+				skip(readArrayLength());
+				break;
+			case TAG_INT_ARRAY:
+				skip(readArrayLength() * 4L);
+				break;
+			case TAG_STRING:
+				skip(in.readUnsignedShort());
+				break;
+			case TAG_LIST:
+				int elementType = readListType();
+				int len = readArrayLength();
+				for (int i = 0; i < len; i++) {
+					skipPayload(elementType);
+				}
+				break;
+			case TAG_COMPOUND:
+				int t;
+				while ((t = readTagType()) != TAG_END) {
+					readName();
+					skipPayload(t);
+				}
+				break;
+			default:
+				throw new IOException("unknown NBT tag type " + type);
+		}
+	}
+
+	/**
+	 * Copy the payload of a tag of the given type, unchanged, to the given output.
+	 *
+	 * @param type the tag type
+	 * @param out the output
+	 * @throws IOException if the stream can't be read or the output can't be written, or the
+	 *         stream contains an unknown tag type
+	 */
+	void copyPayload(int type, DataOutput out) throws IOException {
+		switch (type) {
+			case TAG_END:
+				break;
+			case TAG_BYTE:
+				copy(1, out);
+				break;
+			case TAG_SHORT:
+				copy(2, out);
+				break;
+			case TAG_INT:
+			case TAG_FLOAT:
+				copy(4, out);
+				break;
+			case TAG_LONG:
+			case TAG_DOUBLE:
+				copy(8, out);
+				break;
+			case TAG_BYTE_ARRAY:
+				int byteLen = readArrayLength();
+				out.writeInt(byteLen);
+				copy(byteLen, out);
+				break;
+			case TAG_INT_ARRAY:
+				int intLen = readArrayLength();
+				out.writeInt(intLen);
+				copy(intLen * 4L, out);
+				break;
+			case TAG_STRING:
+				int strLen = in.readUnsignedShort();
+				out.writeShort(strLen);
+				copy(strLen, out);
+				break;
+			case TAG_LIST:
+				int elementType = readListType();
+				int len = readArrayLength();
+				out.writeByte(elementType);
+				out.writeInt(len);
+				for (int i = 0; i < len; i++) {
+					copyPayload(elementType, out);
+				}
+				break;
+			case TAG_COMPOUND:
+				int t;
+				while ((t = readTagType()) != TAG_END) {
+					out.writeByte(t);
+					out.writeUTF(readName());
+					copyPayload(t, out);
+				}
+				out.writeByte(TAG_END);
+				break;
+			default:
+				throw new IOException("unknown NBT tag type " + type);
+		}
+	}
+
+	private void copy(long n, DataOutput out) throws IOException {
+		byte[] buf = new byte[(int) Math.min(n, 4096)];
+		while (n > 0) {
+			int len = (int) Math.min(n, buf.length);
+			in.readFully(buf, 0, len);
+			out.write(buf, 0, len);
+			n -= len;
+		}
+	}
+
+	private void skip(long n) throws IOException {
+		while (n > 0) {
+			int skipped = in.skipBytes((int) Math.min(n, Integer.MAX_VALUE));
+			if (skipped <= 0) {
+				// skipBytes() may stop early, so check for the end of the stream the hard way
+				in.readByte();
+				skipped = 1;
+			}
+			n -= skipped;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
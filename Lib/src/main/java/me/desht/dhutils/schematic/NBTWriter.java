@@ -0,0 +1,106 @@
+package me.desht.dhutils.schematic;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A minimal streaming writer for the NBT format; the counterpart of {@link NBTReader}.
+ */
+class NBTWriter implements Closeable {
+	private final DataOutputStream out;
+
+	NBTWriter(OutputStream out) {
+		this.out = new DataOutputStream(out);
+	}
+
+	/**
+	 * Create a gzip-compressed NBT file, as used for schematics.
+	 *
+	 * @param file the file
+	 * @return a writer
+	 * @throws IOException if the file can't be created
+	 */
+	static NBTWriter create(File file) throws IOException {
+		return new NBTWriter(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file), 65536)));
+	}
+
+	void beginCompound(String name) throws IOException {
+		writeHeader(NBTReader.TAG_COMPOUND, name);
+	}
+
+	void endCompound() throws IOException {
+		out.writeByte(NBTReader.TAG_END);
+	}
+
+	void writeShort(String name, int value) throws IOException {
+		writeHeader(NBTReader.TAG_SHORT, name);
+		out.writeShort(value);
+	}
+
+	void writeInt(String name, int value) throws IOException {
+		writeHeader(NBTReader.TAG_INT, name);
+		out.writeInt(value);
+	}
+
+	void writeString(String name, String value) throws IOException {
+		writeHeader(NBTReader.TAG_STRING, name);
+		out.writeUTF(value);
+	}
+
+	void writeByteArray(String name, byte[] value) throws IOException {
+		beginByteArray(name, value.length);
+		writeBytes(value, 0, value.length);
+	}
+
+	/**
+	 * Start a byte array tag, whose contents will be written with one or more calls to
+	 * {@link #writeBytes(byte[], int, int)}.
+	 *
+	 * @param name the tag name
+	 * @param length the total length of the array
+	 * @throws IOException if the stream can't be written
+	 */
+	void beginByteArray(String name, int length) throws IOException {
+		writeHeader(NBTReader.TAG_BYTE_ARRAY, name);
+		out.writeInt(length);
+	}
+
+	void writeBytes(byte[] buf, int off, int len) throws IOException {
+		out.write(buf, off, len);
+	}
+
+	/**
+	 * Start a list tag.  The caller must then write exactly <em>length</em> elements; for a
+	 * list of compounds, each element is its named tags followed by {@link #endCompound()}.
+	 *
+	 * @param name the tag name
+	 * @param elementType the type of the list's elements
+	 * @param length the number of elements
+	 * @throws IOException if the stream can't be written
+	 */
+	void beginList(String name, int elementType, int length) throws IOException {
+		writeHeader(NBTReader.TAG_LIST, name);
+		out.writeByte(elementType);
+		out.writeInt(length);
+	}
+
+	void writeEmptyList(String name, int elementType) throws IOException {
+		beginList(name, elementType, 0);
+	}
+
+	private void writeHeader(int type, String name) throws IOException {
+		out.writeByte(type);
+		out.writeUTF(name);
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
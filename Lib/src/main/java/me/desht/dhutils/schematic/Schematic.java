@@ -0,0 +1,628 @@
+package me.desht.dhutils.schematic;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import me.desht.dhutils.block.MassBlockJob;
+import me.desht.dhutils.block.MassBlockUpdate;
+import me.desht.dhutils.cuboid.Cuboid;
+import me.desht.dhutils.cuboid.CuboidSection;
+import me.desht.dhutils.cuboid.SectionVisitor;
+import me.desht.dhutils.nms.NMSHelper;
+import me.desht.dhutils.nms.api.NMSAbstraction;
+
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.BlockState;
+import org.bukkit.util.BlockVector;
+
+/**
+ * A block region in the MCEdit schematic format, as used by MCEdit and WorldEdit.  Schematics
+ * can be copied from the world a chunk section at a time, and pasted through a
+ * {@link MassBlockUpdate}, without needing WorldEdit.
+ * <p>
+ * Blocks and tile entity data (sign text, chest contents, spawner settings etc.) are stored;
+ * entities are not.  Tile entity data is read from and written to the world through the NMS
+ * abstraction, so it is not copied or pasted if the abstraction is unavailable or is the
+ * fallback handler.  It is always kept on the heap, and is pasted after the blocks it
+ * belongs to have been written.
+ * <p>
+ * Blocks are stored as in the file format: the block at (x, y, z), relative to the schematic's
+ * minimum corner, is at index <code>(y * length + z) * width + x</code>.
+ * <p>
+ * Very large schematics can be opened with {@link #open(File)} rather than loaded with
+ * {@link #load(File)}.  The block arrays are then decompressed into a cache file and memory
+ * mapped, instead of being held on the heap, and the schematic can be pasted a chunk column
+ * per unit of a {@link MassBlockJob}, spread over several ticks.  Such a schematic should be
+ * closed when no longer needed, to delete the cache file.
+ */
+public class Schematic implements Closeable {
+	private static final String MATERIALS = "Alpha";
+	private static final int MAX_SIZE = Short.MAX_VALUE;
+	private static final int COPY_BUFFER_SIZE = 65536;
+
+	private final int width, height, length;
+	private final ByteBuffer blocks;
+	private final ByteBuffer data;
+	// high four bits of block IDs, two to a byte; null if there are no IDs above 255
+	private ByteBuffer addBlocks;
+	private final BlockVector origin;
+	private final BlockVector offset;
+	// the file the block arrays are mapped from, or null if they're on the heap
+	private final File cacheFile;
+	private final List<TileEntityData> tileEntities;
+
+	private Schematic(int width, int height, int length, ByteBuffer blocks, ByteBuffer data, ByteBuffer addBlocks, BlockVector origin, BlockVector offset, File cacheFile, List<TileEntityData> tileEntities) {
+		this.width = width;
+		this.height = height;
+		this.length = length;
+		this.blocks = blocks;
+		this.data = data;
+		this.addBlocks = addBlocks;
+		this.origin = origin;
+		this.offset = offset;
+		this.cacheFile = cacheFile;
+		this.tileEntities = tileEntities;
+	}
+
+	/**
+	 * Copy the blocks in the given Cuboid into a new schematic.  The schematic's origin is the
+	 * Cuboid's minimum corner.  Tile entity data is copied too, if the NMS abstraction supports
+	 * it.  This must be called from the main thread.
+	 *
+	 * @param cuboid the region to copy
+	 * @return a new schematic
+	 * @throws IllegalArgumentException if the Cuboid is too big to store as a schematic
+	 */
+	public static Schematic copy(Cuboid cuboid) {
+		final int width = cuboid.getSizeX(), height = cuboid.getSizeY(), length = cuboid.getSizeZ();
+		if (width > MAX_SIZE || height > MAX_SIZE || length > MAX_SIZE || (long) width * height * length > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("region is too big for a schematic: " + width + "x" + height + "x" + length);
+		}
+		final int x0 = cuboid.getLowerX(), y0 = cuboid.getLowerY(), z0 = cuboid.getLowerZ();
+		final Schematic schematic = new Schematic(width, height, length,
+				ByteBuffer.wrap(new byte[width * height * length]), ByteBuffer.wrap(new byte[width * height * length]), null,
+				new BlockVector(x0, y0, z0), new BlockVector(0, 0, 0), null, new ArrayList<TileEntityData>());
+
+		cuboid.forEachChunkSection(new SectionVisitor() {
+			@Override
+			public boolean visit(CuboidSection section) {
+				for (int y = section.getMinY(); y <= section.getMaxY(); y++) {
+					for (int z = section.getMinZ(); z <= section.getMaxZ(); z++) {
+						int base = ((y - y0) * length + (z - z0)) * width - x0;
+						for (int x = section.getMinX(); x <= section.getMaxX(); x++) {
+							schematic.set(base + x, section.getBlockId(x, y, z), section.getData(x, y, z));
+						}
+					}
+				}
+				return true;
+			}
+		});
+
+		NMSAbstraction nms = NMSHelper.getNMS();
+		if (nms != null) {
+			World world = cuboid.getWorld();
+			for (Chunk chunk : cuboid.getChunks()) {
+				for (BlockState state : chunk.getTileEntities()) {
+					int x = state.getX(), y = state.getY(), z = state.getZ();
+					if (!cuboid.contains(x, y, z)) {
+						continue;
+					}
+					byte[] nbt = nms.getTileEntityData(world, x, y, z);
+					if (nbt != null) {
+						try {
+							NBTReader in = new NBTReader(new GZIPInputStream(new ByteArrayInputStream(nbt)));
+							if (in.readTagType() != NBTReader.TAG_COMPOUND) {
+								throw new IOException("not a compound tag");
+							}
+							in.readName();
+							schematic.tileEntities.add(readTileEntity(in, x0, y0, z0));
+						} catch (IOException e) {
+							throw new IllegalStateException("bad tile entity data at " + x + "," + y + "," + z, e);
+						}
+					}
+				}
+			}
+		}
+
+		return schematic;
+	}
+
+	/**
+	 * Load a schematic from a file in the MCEdit format.
+	 *
+	 * @param file the file
+	 * @return the schematic
+	 * @throws IOException if the file can't be read, or is not a valid schematic
+	 */
+	public static Schematic load(File file) throws IOException {
+		return read(file, null);
+	}
+
+	/**
+	 * Open a schematic file in the MCEdit format, without loading its block data onto the heap.
+	 * The file is read as a stream, and the block arrays are decompressed into a temporary
+	 * cache file, which is then memory mapped; heap use is independent of the schematic's size.
+	 * The schematic should be closed when it is no longer needed.
+	 *
+	 * @param file the file
+	 * @return the schematic
+	 * @throws IOException if the file can't be read, or is not a valid schematic, or the cache
+	 *         file can't be written
+	 */
+	public static Schematic open(File file) throws IOException {
+		File cacheFile = File.createTempFile("dhutils-schematic", ".cache");
+		cacheFile.deleteOnExit();
+		try {
+			return read(file, cacheFile);
+		} catch (IOException e) {
+			cacheFile.delete();
+			throw e;
+		} catch (RuntimeException e) {
+			cacheFile.delete();
+			throw e;
+		}
+	}
+
+	private static Schematic read(File file, File cacheFile) throws IOException {
+		NBTReader in = NBTReader.open(file);
+		RandomAccessFile cache = cacheFile == null ? null : new RandomAccessFile(cacheFile, "rw");
+		try {
+			if (in.readTagType() != NBTReader.TAG_COMPOUND || !in.readName().equals("Schematic")) {
+				throw new IOException(file + ": not a schematic");
+			}
+			int width = -1, height = -1, length = -1;
+			int[] origin = new int[3], offset = new int[3];
+			ByteBuffer blocks = null, data = null, addBlocks = null;
+			List<TileEntityData> tileEntities = new ArrayList<TileEntityData>();
+			int type;
+			while ((type = in.readTagType()) != NBTReader.TAG_END) {
+				String name = in.readName();
+				if (name.equals("Width") || name.equals("Height") || name.equals("Length")) {
+					NBTReader.expect(name, type, NBTReader.TAG_SHORT);
+					int size = in.readShort();
+					if (name.equals("Width")) {
+						width = size;
+					} else if (name.equals("Height")) {
+						height = size;
+					} else {
+						length = size;
+					}
+				} else if (name.equals("Materials")) {
+					NBTReader.expect(name, type, NBTReader.TAG_STRING);
+					String materials = in.readString();
+					if (!materials.equals(MATERIALS)) {
+						throw new IOException(file + ": unsupported schematic materials '" + materials + "'");
+					}
+				} else if (name.equals("Blocks") || name.equals("Data") || name.equals("AddBlocks")) {
+					NBTReader.expect(name, type, NBTReader.TAG_BYTE_ARRAY);
+					ByteBuffer array = readArray(in, cache == null ? null : cache.getChannel());
+					if (name.equals("Blocks")) {
+						blocks = array;
+					} else if (name.equals("Data")) {
+						data = array;
+					} else {
+						addBlocks = array;
+					}
+				} else if (getVectorIndex(name) >= 0) {
+					NBTReader.expect(name, type, NBTReader.TAG_INT);
+					int[] vec = name.startsWith("WEOrigin") ? origin : offset;
+					vec[getVectorIndex(name)] = in.readInt();
+				} else if (name.equals("TileEntities")) {
+					NBTReader.expect(name, type, NBTReader.TAG_LIST);
+					int elementType = in.readListType();
+					int count = in.readArrayLength();
+					if (count > 0) {
+						NBTReader.expect(name + " element", elementType, NBTReader.TAG_COMPOUND);
+					}
+					for (int i = 0; i < count; i++) {
+						tileEntities.add(readTileEntity(in, 0, 0, 0));
+					}
+				} else {
+					// entities, or anything else we don't use
+					in.skipPayload(type);
+				}
+			}
+
+			if (width <= 0 || height <= 0 || length <= 0 || blocks == null || data == null) {
+				throw new IOException(file + ": schematic is missing its size or block data");
+			}
+			int volume = width * height * length;
+			if (blocks.capacity() != volume || data.capacity() != volume) {
+				throw new IOException(file + ": schematic block data doesn't match its size");
+			}
+			for (Iterator<TileEntityData> iter = tileEntities.iterator(); iter.hasNext(); ) {
+				TileEntityData te = iter.next();
+				if (te.x < 0 || te.x >= width || te.y < 0 || te.y >= height || te.z < 0 || te.z >= length) {
+					iter.remove();
+				}
+			}
+			return new Schematic(width, height, length, blocks, data, addBlocks,
+					new BlockVector(origin[0], origin[1], origin[2]), new BlockVector(offset[0], offset[1], offset[2]),
+					cacheFile, tileEntities);
+		} finally {
+			in.close();
+			if (cache != null) {
+				// mapped buffers stay valid after the file is closed
+				cache.close();
+			}
+		}
+	}
+
+	/**
+	 * Read a byte array payload, either onto the heap, or if a cache channel is given, by
+	 * appending it to the cache a piece at a time and mapping it from there.
+	 */
+	private static ByteBuffer readArray(NBTReader in, FileChannel cache) throws IOException {
+		int len = in.readArrayLength();
+		if (cache == null) {
+			byte[] array = new byte[len];
+			in.readBytes(array, 0, len);
+			return ByteBuffer.wrap(array);
+		}
+		long start = cache.position();
+		byte[] buf = new byte[Math.min(len, COPY_BUFFER_SIZE)];
+		for (int done = 0; done < len; ) {
+			int n = Math.min(buf.length, len - done);
+			in.readBytes(buf, 0, n);
+			ByteBuffer bb = ByteBuffer.wrap(buf, 0, n);
+			while (bb.hasRemaining()) {
+				cache.write(bb);
+			}
+			done += n;
+		}
+		return cache.map(FileChannel.MapMode.READ_ONLY, start, len);
+	}
+
+	/**
+	 * Save this schematic to a file in the MCEdit format.
+	 *
+	 * @param file the file
+	 * @throws IOException if the file can't be written
+	 */
+	public void save(File file) throws IOException {
+		NBTWriter out = NBTWriter.create(file);
+		try {
+			out.beginCompound("Schematic");
+			out.writeShort("Width", width);
+			out.writeShort("Height", height);
+			out.writeShort("Length", length);
+			out.writeString("Materials", MATERIALS);
+			writeArray(out, "Blocks", blocks);
+			writeArray(out, "Data", data);
+			if (addBlocks != null) {
+				writeArray(out, "AddBlocks", addBlocks);
+			}
+			out.writeEmptyList("Entities", NBTReader.TAG_COMPOUND);
+			out.beginList("TileEntities", NBTReader.TAG_COMPOUND, tileEntities.size());
+			for (TileEntityData te : tileEntities) {
+				writeTileEntity(out, te, te.x, te.y, te.z);
+			}
+			out.writeInt("WEOriginX", origin.getBlockX());
+			out.writeInt("WEOriginY", origin.getBlockY());
+			out.writeInt("WEOriginZ", origin.getBlockZ());
+			out.writeInt("WEOffsetX", offset.getBlockX());
+			out.writeInt("WEOffsetY", offset.getBlockY());
+			out.writeInt("WEOffsetZ", offset.getBlockZ());
+			out.endCompound();
+		} finally {
+			out.close();
+		}
+	}
+
+	private static void writeArray(NBTWriter out, String name, ByteBuffer buf) throws IOException {
+		if (buf.hasArray()) {
+			out.writeByteArray(name, buf.array());
+			return;
+		}
+		out.beginByteArray(name, buf.capacity());
+		ByteBuffer src = buf.duplicate();
+		src.clear();
+		byte[] tmp = new byte[Math.min(src.capacity(), COPY_BUFFER_SIZE)];
+		while (src.hasRemaining()) {
+			int n = Math.min(tmp.length, src.remaining());
+			src.get(tmp, 0, n);
+			out.writeBytes(tmp, 0, n);
+		}
+	}
+
+	/**
+	 * Paste this schematic into the world, a chunk column at a time.  As with WorldEdit, the
+	 * schematic's offset is added to the given location to get the minimum corner of the pasted
+	 * region.  Air blocks in the schematic are pasted too.  Clients will not see the changes
+	 * until {@link MassBlockUpdate#notifyClients()} is called; for a large paste, the update
+	 * should be in batch mode.  If the schematic has any tile entities, the update is flushed
+	 * once the blocks have been set, and the tile entity data is then loaded into the world.
+	 *
+	 * @param mbu the mass block update to write through, which must be for the location's world
+	 * @param loc the location to paste at
+	 */
+	public void paste(MassBlockUpdate mbu, Location loc) {
+		int bx = loc.getBlockX() + offset.getBlockX();
+		int bz = loc.getBlockZ() + offset.getBlockZ();
+		for (int cx = bx >> 4; cx <= (bx + width - 1) >> 4; cx++) {
+			for (int cz = bz >> 4; cz <= (bz + length - 1) >> 4; cz++) {
+				pasteColumn(mbu, loc, cx, cz);
+			}
+		}
+		if (!tileEntities.isEmpty()) {
+			mbu.flush();
+			pasteTileEntities(tileEntities, loc);
+		}
+	}
+
+	/**
+	 * Add units to the given job to paste this schematic, one unit per chunk column, so that
+	 * the paste can be spread over several ticks by a
+	 * {@link me.desht.dhutils.block.MassBlockScheduler}.  Otherwise, this behaves like
+	 * {@link #paste(MassBlockUpdate, Location)}, except that the job flushes and relights the
+	 * update after each column, so a batch-mode update only buffers one column's changes at a
+	 * time, and the relighting is spread over the job's ticks.  A
+	 * column's tile entities are pasted in the same unit as its blocks, after flushing the
+	 * update early.  If this schematic was opened with {@link #open(File)}, it must not be
+	 * closed until the job has finished.
+	 *
+	 * @param job the job, whose mass block update must be for the location's world
+	 * @param loc the location to paste at
+	 */
+	public void paste(final MassBlockJob job, final Location loc) {
+		int bx = loc.getBlockX() + offset.getBlockX();
+		int bz = loc.getBlockZ() + offset.getBlockZ();
+
+		Map<Long, List<TileEntityData>> columnTileEntities = new HashMap<Long, List<TileEntityData>>();
+		for (TileEntityData te : tileEntities) {
+			Long key = columnKey((bx + te.x) >> 4, (bz + te.z) >> 4);
+			List<TileEntityData> list = columnTileEntities.get(key);
+			if (list == null) {
+				list = new ArrayList<TileEntityData>();
+				columnTileEntities.put(key, list);
+			}
+			list.add(te);
+		}
+
+		for (int cx = bx >> 4; cx <= (bx + width - 1) >> 4; cx++) {
+			for (int cz = bz >> 4; cz <= (bz + length - 1) >> 4; cz++) {
+				final int chunkX = cx, chunkZ = cz;
+				final List<TileEntityData> column = columnTileEntities.get(columnKey(cx, cz));
+				job.addUnit(new Runnable() {
+					@Override
+					public void run() {
+						MassBlockUpdate mbu = job.getMassBlockUpdate();
+						pasteColumn(mbu, loc, chunkX, chunkZ);
+						if (column != null) {
+							mbu.flush();
+							pasteTileEntities(column, loc);
+						}
+					}
+				});
+			}
+		}
+	}
+
+	private static long columnKey(int cx, int cz) {
+		return ((long) cx << 32) | (cz & 0xffffffffL);
+	}
+
+	private void pasteColumn(MassBlockUpdate mbu, Location loc, int cx, int cz) {
+		int bx = loc.getBlockX() + offset.getBlockX();
+		int by = loc.getBlockY() + offset.getBlockY();
+		int bz = loc.getBlockZ() + offset.getBlockZ();
+		int minY = Math.max(0, by), maxY = Math.min(loc.getWorld().getMaxHeight() - 1, by + height - 1);
+		int minX = Math.max(bx, cx << 4), maxX = Math.min(bx + width - 1, (cx << 4) + 15);
+		int minZ = Math.max(bz, cz << 4), maxZ = Math.min(bz + length - 1, (cz << 4) + 15);
+
+		for (int y = minY; y <= maxY; y++) {
+			for (int z = minZ; z <= maxZ; z++) {
+				int base = ((y - by) * length + (z - bz)) * width - bx;
+				for (int x = minX; x <= maxX; x++) {
+					mbu.setBlock(x, y, z, getBlockId(base + x), data.get(base + x) & 0x0f);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Load the given tile entities' data into the world.  Their blocks must already have been
+	 * written.
+	 */
+	private void pasteTileEntities(List<TileEntityData> list, Location loc) {
+		NMSAbstraction nms = NMSHelper.getNMS();
+		if (nms == null) {
+			return;
+		}
+		World world = loc.getWorld();
+		int bx = loc.getBlockX() + offset.getBlockX();
+		int by = loc.getBlockY() + offset.getBlockY();
+		int bz = loc.getBlockZ() + offset.getBlockZ();
+		for (TileEntityData te : list) {
+			int x = bx + te.x, y = by + te.y, z = bz + te.z;
+			if (y < 0 || y >= world.getMaxHeight()) {
+				continue;
+			}
+			ByteArrayOutputStream buf = new ByteArrayOutputStream();
+			try {
+				NBTWriter out = new NBTWriter(new GZIPOutputStream(buf));
+				out.beginCompound("");
+				writeTileEntity(out, te, x, y, z);
+				out.close();
+			} catch (IOException e) {
+				// the stream is in memory, so this can't really happen
+				throw new IllegalStateException(e);
+			}
+			nms.setTileEntityData(world, x, y, z, buf.toByteArray());
+		}
+	}
+
+	/**
+	 * Read the payload of a tile entity compound tag.  The position tags are read into the
+	 * returned object, relative to the given origin, and all the other tags are kept as they are.
+	 */
+	private static TileEntityData readTileEntity(NBTReader in, int x0, int y0, int z0) throws IOException {
+		ByteArrayOutputStream tags = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(tags);
+		int[] pos = new int[3];
+		int found = 0;
+		int type;
+		while ((type = in.readTagType()) != NBTReader.TAG_END) {
+			String name = in.readName();
+			int i = name.length() == 1 ? "xyz".indexOf(name.charAt(0)) : -1;
+			if (i >= 0 && type == NBTReader.TAG_INT) {
+				pos[i] = in.readInt();
+				found |= 1 << i;
+			} else {
+				out.writeByte(type);
+				out.writeUTF(name);
+				in.copyPayload(type, out);
+			}
+		}
+		if (found != 7) {
+			throw new IOException("tile entity has no position");
+		}
+		return new TileEntityData(pos[0] - x0, pos[1] - y0, pos[2] - z0, tags.toByteArray());
+	}
+
+	/**
+	 * Write the payload of a tile entity compound tag, with the given position, and end the
+	 * compound.
+	 */
+	private static void writeTileEntity(NBTWriter out, TileEntityData te, int x, int y, int z) throws IOException {
+		out.writeInt("x", x);
+		out.writeInt("y", y);
+		out.writeInt("z", z);
+		out.writeBytes(te.tags, 0, te.tags.length);
+		out.endCompound();
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Get the position the schematic was copied from.
+	 *
+	 * @return the origin
+	 */
+	public BlockVector getOrigin() {
+		return origin.clone();
+	}
+
+	/**
+	 * Get the offset of the schematic's minimum corner from the paste location.
+	 *
+	 * @return the offset
+	 */
+	public BlockVector getOffset() {
+		return offset.clone();
+	}
+
+	/**
+	 * Get the block ID at the given position, relative to the schematic's minimum corner.
+	 *
+	 * @param x the X position, from 0 to width - 1
+	 * @param y the Y position, from 0 to height - 1
+	 * @param z the Z position, from 0 to length - 1
+	 * @return the block ID
+	 */
+	public int getBlockId(int x, int y, int z) {
+		return getBlockId(index(x, y, z));
+	}
+
+	/**
+	 * Get the block data at the given position, relative to the schematic's minimum corner.
+	 *
+	 * @param x the X position, from 0 to width - 1
+	 * @param y the Y position, from 0 to height - 1
+	 * @param z the Z position, from 0 to length - 1
+	 * @return the block data
+	 */
+	public int getData(int x, int y, int z) {
+		return data.get(index(x, y, z)) & 0x0f;
+	}
+
+	private int index(int x, int y, int z) {
+		if (x < 0 || x >= width || y < 0 || y >= height || z < 0 || z >= length) {
+			throw new IndexOutOfBoundsException("position " + x + "," + y + "," + z + " is outside the schematic");
+		}
+		return (y * length + z) * width + x;
+	}
+
+	/**
+	 * Delete the cache file, if this schematic was opened with {@link #open(File)}.  The
+	 * schematic must not be used after it has been closed.
+	 */
+	@Override
+	public void close() {
+		if (cacheFile != null) {
+			// on some platforms, this fails while the file is still mapped; if so, it will be
+			// deleted when the JVM exits
+			cacheFile.delete();
+		}
+	}
+
+	private int getBlockId(int idx) {
+		int id = blocks.get(idx) & 0xff;
+		if (addBlocks != null && (idx >> 1) < addBlocks.capacity()) {
+			int add = addBlocks.get(idx >> 1);
+			id |= ((idx & 1) == 0 ? add & 0x0f : (add >> 4) & 0x0f) << 8;
+		}
+		return id;
+	}
+
+	private void set(int idx, int blockId, int blockData) {
+		blocks.put(idx, (byte) blockId);
+		data.put(idx, (byte) blockData);
+		if (blockId > 255) {
+			if (addBlocks == null) {
+				addBlocks = ByteBuffer.wrap(new byte[(blocks.capacity() + 1) >> 1]);
+			}
+			int add = (blockId >> 8) & 0x0f;
+			addBlocks.put(idx >> 1, (byte) (addBlocks.get(idx >> 1) | ((idx & 1) == 0 ? add : add << 4)));
+		}
+	}
+
+	/**
+	 * The NBT data of one tile entity, at a position relative to the schematic's minimum corner.
+	 */
+	private static class TileEntityData {
+		private final int x, y, z;
+		// the compound's tags, other than the position, without the end tag
+		private final byte[] tags;
+
+		TileEntityData(int x, int y, int z, byte[] tags) {
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.tags = tags;
+		}
+	}
+
+	private static int getVectorIndex(String name) {
+		if (name.length() == 9 && (name.startsWith("WEOrigin") || name.startsWith("WEOffset"))) {
+			return "XYZ".indexOf(name.charAt(8));
+		}
+		return -1;
+	}
+}
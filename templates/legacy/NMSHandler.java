@@ -0,0 +1,253 @@
+/*
+ * NMS handler template for CraftBukkit 1.4.5 - 1.6.4, where blocks are handled by numeric ID.
+ * Each versioned module generates its NMSHandler from this file at build time (see the
+ * templating-maven-plugin configuration in the parent POM); ${nms.version} is the module's
+ * version and the other ${nms.*} properties name the obfuscated members which vary between
+ * versions.  Edit this template, not the generated source.
+ */
+package me.desht.dhutils.nms.${nms.version};
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import net.minecraft.server.${nms.version}.Block;
+import net.minecraft.server.${nms.version}.Chunk;
+import net.minecraft.server.${nms.version}.ChunkCoordIntPair;
+import net.minecraft.server.${nms.version}.EnumSkyBlock;
+import net.minecraft.server.${nms.version}.NBTCompressedStreamTools;
+import net.minecraft.server.${nms.version}.NBTTagCompound;
+import net.minecraft.server.${nms.version}.TileEntity;
+
+import org.bukkit.World;
+import org.bukkit.craftbukkit.${nms.version}.CraftWorld;
+import org.bukkit.craftbukkit.${nms.version}.entity.CraftPlayer;
+import org.bukkit.entity.Player;
+
+import me.desht.dhutils.nms.api.LightingEngine;
+import me.desht.dhutils.nms.api.NMSAbstraction;
+import org.bukkit.util.Vector;
+
+public class NMSHandler implements NMSAbstraction {
+
+	@Override
+	public boolean setBlockFast(World world, int x, int y, int z, int blockId, byte data) {
+		net.minecraft.server.${nms.version}.World w = ((CraftWorld) world).getHandle();
+		Chunk chunk = w.getChunkAt(x >> 4, z >> 4);
+		return chunk.a(x & 0x0f, y, z & 0x0f, blockId, data);
+	}
+
+	@Override
+	public int setSectionFast(World world, int cx, int sy, int cz, short[] blockIds, byte[] data, short[] oldBlockIds) {
+		net.minecraft.server.${nms.version}.World w = ((CraftWorld) world).getHandle();
+		Chunk chunk = w.getChunkAt(cx, cz);
+		int baseY = sy << 4;
+		int changed = 0;
+		for (int idx = 0; idx < 4096; idx++) {
+			if (oldBlockIds != null) {
+				oldBlockIds[idx] = -1;
+			}
+			if (blockIds[idx] < 0) {
+				continue;
+			}
+			int i = idx & 0x0f, j = baseY + (idx >> 8), k = (idx >> 4) & 0x0f;
+			int oldId = chunk.getTypeId(i, j, k);
+			if (chunk.a(i, j, k, blockIds[idx], data[idx])) {
+				if (oldBlockIds != null) {
+					oldBlockIds[idx] = (short) oldId;
+				}
+				changed++;
+			}
+		}
+		return changed;
+	}
+
+	@Override
+	public int fillSection(World world, int cx, int sy, int cz, int blockId, byte data, short[] oldBlockIds) {
+		net.minecraft.server.${nms.version}.World w = ((CraftWorld) world).getHandle();
+		Chunk chunk = w.getChunkAt(cx, cz);
+		int baseY = sy << 4;
+		int changed = 0;
+		for (int idx = 0; idx < 4096; idx++) {
+			if (oldBlockIds != null) {
+				oldBlockIds[idx] = -1;
+			}
+			int i = idx & 0x0f, j = baseY + (idx >> 8), k = (idx >> 4) & 0x0f;
+			int oldId = chunk.getTypeId(i, j, k);
+			if (oldId == blockId && chunk.getData(i, j, k) == data) {
+				continue;
+			}
+			if (chunk.a(i, j, k, blockId, data)) {
+				if (oldBlockIds != null) {
+					oldBlockIds[idx] = (short) oldId;
+				}
+				changed++;
+			}
+		}
+		return changed;
+	}
+
+	@Override
+	public void readSection(World world, int cx, int sy, int cz, short[] blockIds, byte[] data, byte[] blockLight, byte[] skyLight) {
+		net.minecraft.server.${nms.version}.World w = ((CraftWorld) world).getHandle();
+		Chunk chunk = w.getChunkAt(cx, cz);
+		int baseY = sy << 4;
+		for (int idx = 0; idx < 4096; idx++) {
+			int i = idx & 0x0f, j = baseY + (idx >> 8), k = (idx >> 4) & 0x0f;
+			if (blockIds != null) {
+				blockIds[idx] = (short) chunk.getTypeId(i, j, k);
+			}
+			if (data != null) {
+				data[idx] = (byte) chunk.getData(i, j, k);
+			}
+			if (blockLight != null) {
+				blockLight[idx] = (byte) chunk.getBrightness(EnumSkyBlock.BLOCK, i, j, k);
+			}
+			if (skyLight != null) {
+				skyLight[idx] = (byte) chunk.getBrightness(EnumSkyBlock.SKY, i, j, k);
+			}
+		}
+	}
+
+	@Override
+	public byte[] getTileEntityData(World world, int x, int y, int z) {
+		TileEntity te = ((CraftWorld) world).getHandle().getTileEntity(x, y, z);
+		if (te == null) {
+			return null;
+		}
+		NBTTagCompound tag = new NBTTagCompound();
+		te.b(tag);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			NBTCompressedStreamTools.a(tag, out);
+		} catch (Exception e) {
+			// the stream is in memory, so this can't really happen
+			throw new IllegalStateException(e);
+		}
+		return out.toByteArray();
+	}
+
+	@Override
+	public boolean setTileEntityData(World world, int x, int y, int z, byte[] nbt) {
+		net.minecraft.server.${nms.version}.World w = ((CraftWorld) world).getHandle();
+		TileEntity te = w.getTileEntity(x, y, z);
+		if (te == null) {
+			return false;
+		}
+		NBTTagCompound tag;
+		try {
+			tag = NBTCompressedStreamTools.a(new ByteArrayInputStream(nbt));
+		} catch (Exception e) {
+			throw new IllegalArgumentException("invalid tile entity data", e);
+		}
+		tag.setInt("x", x);
+		tag.setInt("y", y);
+		tag.setInt("z", z);
+		te.a(tag);
+		te.update();
+		w.notify(x, y, z);
+		return true;
+	}
+
+	@Override
+	public void forceBlockLightLevel(World world, int x, int y, int z, int level) {
+		net.minecraft.server.${nms.version}.World w = ((CraftWorld) world).getHandle();
+		w.b(EnumSkyBlock.BLOCK, x, y, z, level);
+	}
+
+	@Override
+	public int getBlockLightEmission(int blockId) {
+		return Block.lightEmission[blockId];
+	}
+
+	@Override
+	public int getBlockLightBlocking(int blockId) {
+		return Block.lightBlock[blockId];
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void queueChunkForUpdate(Player player, int cx, int cz) {
+		((CraftPlayer) player).getHandle().chunkCoordIntPairQueue.add(new ChunkCoordIntPair(cx, cz));
+	}
+
+	@Override
+	public void recalculateBlockLighting(World world, int x, int y, int z) {
+		net.minecraft.server.${nms.version}.World w = ((CraftWorld) world).getHandle();
+		w.${nms.relightMethod}(x, y, z);
+	}
+
+	@Override
+	public Vector[] getBlockHitbox(org.bukkit.block.Block block) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void relightSections(World world, int[] cx, int[] sy, int[] cz) {
+		new ChunkLightingEngine(world).relight(cx, sy, cz);
+	}
+
+	private static class ChunkLightingEngine extends LightingEngine {
+		private final World world;
+		private final net.minecraft.server.${nms.version}.World w;
+		private Chunk chunk = null;
+		private int chunkX, chunkZ;
+
+		ChunkLightingEngine(World world) {
+			this.world = world;
+			this.w = ((CraftWorld) world).getHandle();
+		}
+
+		private Chunk chunkAt(int x, int z) {
+			if (chunk == null || x >> 4 != chunkX || z >> 4 != chunkZ) {
+				chunkX = x >> 4;
+				chunkZ = z >> 4;
+				chunk = w.getChunkAt(chunkX, chunkZ);
+			}
+			return chunk;
+		}
+
+		@Override
+		protected boolean isLoaded(int x, int z) {
+			return chunk != null && x >> 4 == chunkX && z >> 4 == chunkZ || world.isChunkLoaded(x >> 4, z >> 4);
+		}
+
+		@Override
+		protected boolean hasSky() {
+			return world.getEnvironment() == World.Environment.NORMAL;
+		}
+
+		@Override
+		protected int getOpacity(int x, int y, int z) {
+			return Block.lightBlock[chunkAt(x, z).getTypeId(x & 0x0f, y, z & 0x0f)];
+		}
+
+		@Override
+		protected int getEmission(int x, int y, int z) {
+			return Block.lightEmission[chunkAt(x, z).getTypeId(x & 0x0f, y, z & 0x0f)];
+		}
+
+		@Override
+		protected int getLight(boolean sky, int x, int y, int z) {
+			return chunkAt(x, z).getBrightness(sky ? EnumSkyBlock.SKY : EnumSkyBlock.BLOCK, x & 0x0f, y, z & 0x0f);
+		}
+
+		@Override
+		protected void setLight(boolean sky, int x, int y, int z, int level) {
+			chunkAt(x, z).a(sky ? EnumSkyBlock.SKY : EnumSkyBlock.BLOCK, x & 0x0f, y, z & 0x0f, level);
+		}
+
+		@Override
+		protected void prepareChunk(int cx, int cz) {
+			Chunk c = w.getChunkAt(cx, cz);
+			for (int k = 0; k < 16; k++) {
+				for (int i = 0; i < 16; i++) {
+					int y = 256;
+					while (y > 0 && Block.lightBlock[c.getTypeId(i, y - 1, k)] == 0) {
+						y--;
+					}
+					c.heightMap[k << 4 | i] = y;
+				}
+			}
+		}
+	}
+}
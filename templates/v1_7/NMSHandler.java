@@ -0,0 +1,470 @@
+/*
+ * NMS handler template for CraftBukkit 1.7.x, where blocks are handled as Block objects.
+ * Each versioned module generates its NMSHandler from this file at build time (see the
+ * templating-maven-plugin configuration in the parent POM); ${nms.version} is the module's
+ * version and the other ${nms.*} properties name the obfuscated members which vary between
+ * versions.  Edit this template, not the generated source.
+ */
+package me.desht.dhutils.nms.${nms.version};
+
+import me.desht.dhutils.nms.api.LightingEngine;
+import me.desht.dhutils.nms.api.NMSAbstraction;
+import me.desht.dhutils.nms.api.OcclusionMask;
+import net.minecraft.server.${nms.version}.*;
+import org.bukkit.World;
+import org.bukkit.craftbukkit.${nms.version}.CraftWorld;
+import org.bukkit.craftbukkit.${nms.version}.entity.CraftPlayer;
+import org.bukkit.craftbukkit.${nms.version}.util.CraftMagicNumbers;
+import org.bukkit.entity.Player;
+import org.bukkit.util.Vector;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+public class NMSHandler implements NMSAbstraction {
+
+	@Override
+    public boolean setBlockFast(World world, int x, int y, int z, int blockId, byte data) {
+        net.minecraft.server.${nms.version}.World w = ((CraftWorld) world).getHandle();
+        Chunk chunk = w.getChunkAt(x >> 4, z >> 4);
+        return a(chunk, x & 0x0f, y, z & 0x0f, Block.${nms.blockById}(blockId), data);
+    }
+
+    @Override
+    public int setSectionFast(World world, int cx, int sy, int cz, short[] blockIds, byte[] data, short[] oldBlockIds) {
+        net.minecraft.server.${nms.version}.World w = ((CraftWorld) world).getHandle();
+        Chunk chunk = w.getChunkAt(cx, cz);
+        int baseY = sy << 4;
+        int changed = 0;
+        boolean initLighting = false;
+
+        for (int idx = 0; idx < 4096; idx++) {
+            if (oldBlockIds != null) {
+                oldBlockIds[idx] = -1;
+            }
+            if (blockIds[idx] < 0) {
+                continue;
+            }
+            int i = idx & 0x0f, j = idx >> 8, k = (idx >> 4) & 0x0f;
+            Block block = Block.${nms.blockById}(blockIds[idx]);
+            ChunkSection chunksection = chunk.${nms.chunkSections}()[sy];
+            Block oldBlock = chunksection == null ? Blocks.AIR : chunksection.getTypeId(i, j, k);
+            int oldData = chunksection == null ? 0 : chunksection.getData(i, j, k);
+
+            if (oldBlock == block && oldData == data[idx]) {
+                continue;
+            }
+            if (oldBlock instanceof IContainer || block instanceof IContainer) {
+                // tile entities need the full vanilla treatment
+                if (a(chunk, i, baseY + j, k, block, data[idx])) {
+                    if (oldBlockIds != null) {
+                        oldBlockIds[idx] = (short) CraftMagicNumbers.getId(oldBlock);
+                    }
+                    changed++;
+                }
+                continue;
+            }
+
+            int i1 = k << 4 | i;
+            if (chunksection == null) {
+                if (block == Blocks.AIR) {
+                    continue;
+                }
+                chunksection = chunk.${nms.chunkSections}()[sy] = new ChunkSection(baseY, !chunk.world.worldProvider.g);
+                initLighting = initLighting || baseY + j >= chunk.heightMap[i1];
+            }
+            if (baseY + j >= chunk.b[i1] - 1) {
+                chunk.b[i1] = -999;
+            }
+            chunksection.setTypeId(i, j, k, block);
+            chunksection.setData(i, j, k, data[idx]);
+            if (oldBlockIds != null) {
+                oldBlockIds[idx] = (short) CraftMagicNumbers.getId(oldBlock);
+            }
+            changed++;
+        }
+
+        if (initLighting) {
+            chunk.initLighting();
+        }
+        if (changed > 0) {
+            chunk.n = true;
+        }
+        return changed;
+    }
+
+    @Override
+    public int fillSection(World world, int cx, int sy, int cz, int blockId, byte data, short[] oldBlockIds) {
+        net.minecraft.server.${nms.version}.World w = ((CraftWorld) world).getHandle();
+        Chunk chunk = w.getChunkAt(cx, cz);
+        Block block = Block.${nms.blockById}(blockId);
+        int baseY = sy << 4;
+        int changed = 0;
+        boolean initLighting = false;
+
+        if (oldBlockIds != null) {
+            Arrays.fill(oldBlockIds, (short) -1);
+        }
+        ChunkSection chunksection = chunk.${nms.chunkSections}()[sy];
+        if (chunksection == null) {
+            if (block == Blocks.AIR) {
+                return 0;
+            }
+            chunksection = chunk.${nms.chunkSections}()[sy] = new ChunkSection(baseY, !chunk.world.worldProvider.g);
+            for (int i1 = 0; i1 < 256 && !initLighting; i1++) {
+                initLighting = baseY + 15 >= chunk.heightMap[i1];
+            }
+        }
+
+        // the block to fill with is resolved once, and the section written directly,
+        // rather than going through setSectionFast() for every position
+        boolean container = block instanceof IContainer;
+        for (int idx = 0; idx < 4096; idx++) {
+            int i = idx & 0x0f, j = idx >> 8, k = (idx >> 4) & 0x0f;
+            Block oldBlock = chunksection.getTypeId(i, j, k);
+            if (oldBlock == block && chunksection.getData(i, j, k) == data) {
+                continue;
+            }
+            if (container || oldBlock instanceof IContainer) {
+                // tile entities need the full vanilla treatment
+                if (!a(chunk, i, baseY + j, k, block, data)) {
+                    continue;
+                }
+            } else {
+                chunksection.setTypeId(i, j, k, block);
+                chunksection.setData(i, j, k, data);
+            }
+            if (oldBlockIds != null) {
+                oldBlockIds[idx] = (short) CraftMagicNumbers.getId(oldBlock);
+            }
+            changed++;
+        }
+
+        if (changed > 0) {
+            for (int i1 = 0; i1 < 256; i1++) {
+                if (baseY + 15 >= chunk.b[i1] - 1) {
+                    chunk.b[i1] = -999;
+                }
+            }
+            if (initLighting) {
+                chunk.initLighting();
+            }
+            chunk.n = true;
+        }
+        return changed;
+    }
+
+    @Override
+    public void readSection(World world, int cx, int sy, int cz, short[] blockIds, byte[] data, byte[] blockLight, byte[] skyLight) {
+        net.minecraft.server.${nms.version}.World w = ((CraftWorld) world).getHandle();
+        Chunk chunk = w.getChunkAt(cx, cz);
+        boolean empty = chunk.${nms.chunkSections}()[sy] == null;
+        int baseY = sy << 4;
+        for (int idx = 0; idx < 4096; idx++) {
+            int i = idx & 0x0f, j = baseY + (idx >> 8), k = (idx >> 4) & 0x0f;
+            if (blockIds != null) {
+                blockIds[idx] = empty ? 0 : (short) CraftMagicNumbers.getId(chunk.getType(i, j, k));
+            }
+            if (data != null) {
+                data[idx] = empty ? 0 : (byte) chunk.getData(i, j, k);
+            }
+            if (blockLight != null) {
+                blockLight[idx] = empty ? 0 : (byte) chunk.getBrightness(EnumSkyBlock.BLOCK, i, j, k);
+            }
+            if (skyLight != null) {
+                skyLight[idx] = (byte) chunk.getBrightness(EnumSkyBlock.SKY, i, j, k);
+            }
+        }
+    }
+
+    private boolean a(Chunk that, int i, int j, int k, Block block, int l) {
+        int i1 = k << 4 | i;
+
+        if (j >= that.b[i1] - 1) {
+            that.b[i1] = -999;
+        }
+
+        int j1 = that.heightMap[i1];
+        Block block1 = that.getType(i, j, k);
+        int k1 = that.getData(i, j, k);
+
+        if (block1 == block && k1 == l) {
+            return false;
+        } else {
+            boolean flag = false;
+            ChunkSection chunksection = that.${nms.chunkSections}()[j >> 4];
+
+            if (chunksection == null) {
+                if (block == Blocks.AIR) {
+                    return false;
+                }
+
+                chunksection = that.${nms.chunkSections}()[j >> 4] = new ChunkSection(j >> 4 << 4, !that.world.worldProvider.g);
+                flag = j >= j1;
+            }
+
+            int l1 = that.locX * 16 + i;
+            int i2 = that.locZ * 16 + k;
+
+            if (!that.world.isStatic) {
+                block1.f(that.world, l1, j, i2, k1);
+            }
+
+            // CraftBukkit start - Delay removing containers until after they're cleaned up
+            if (!(block1 instanceof IContainer)) {
+                chunksection.setTypeId(i, j & 15, k, block);
+            }
+            // CraftBukkit end
+
+            if (!that.world.isStatic) {
+                block1.remove(that.world, l1, j, i2, block1, k1);
+            } else if (block1 instanceof IContainer && block1 != block) {
+                that.world.p(l1, j, i2);
+            }
+
+            // CraftBukkit start - Remove containers now after cleanup
+            if (block1 instanceof IContainer) {
+                chunksection.setTypeId(i, j & 15, k, block);
+            }
+            // CraftBukkit end
+
+            if (chunksection.getTypeId(i, j & 15, k) != block) {
+                return false;
+            } else {
+                chunksection.setData(i, j & 15, k, l);
+                if (flag) {
+                    that.initLighting();
+                }
+                TileEntity tileentity;
+
+                if (block1 instanceof IContainer) {
+                    tileentity = that.e(i, j, k);
+                    if (tileentity != null) {
+                        tileentity.u();
+                    }
+                }
+
+                // CraftBukkit - Don't place while processing the BlockPlaceEvent, unless it's a BlockContainer
+                if (!that.world.isStatic && (!that.world.${nms.captureBlockStates} || (block instanceof BlockContainer))) {
+                    block.onPlace(that.world, l1, j, i2);
+                }
+
+                if (block instanceof IContainer) {
+                    // CraftBukkit start - Don't create tile entity if placement failed
+                    if (that.getType(i, j, k) != block) {
+                        return false;
+                    }
+                    // CraftBukkit end
+
+                    tileentity = that.e(i, j, k);
+                    if (tileentity == null) {
+                        tileentity = ((IContainer) block).a(that.world, l);
+                        that.world.setTileEntity(l1, j, i2, tileentity);
+                    }
+
+                    if (tileentity != null) {
+                        tileentity.u();
+                    }
+                }
+
+                that.n = true;
+                return true;
+            }
+        }
+    }
+
+	@Override
+	public byte[] getTileEntityData(World world, int x, int y, int z) {
+		TileEntity te = ((CraftWorld) world).getHandle().getTileEntity(x, y, z);
+		if (te == null) {
+			return null;
+		}
+		NBTTagCompound tag = new NBTTagCompound();
+		te.b(tag);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			NBTCompressedStreamTools.a(tag, out);
+		} catch (Exception e) {
+			// the stream is in memory, so this can't really happen
+			throw new IllegalStateException(e);
+		}
+		return out.toByteArray();
+	}
+
+	@Override
+	public boolean setTileEntityData(World world, int x, int y, int z, byte[] nbt) {
+		net.minecraft.server.${nms.version}.World w = ((CraftWorld) world).getHandle();
+		TileEntity te = w.getTileEntity(x, y, z);
+		if (te == null) {
+			return false;
+		}
+		NBTTagCompound tag;
+		try {
+			tag = NBTCompressedStreamTools.a(new ByteArrayInputStream(nbt));
+		} catch (Exception e) {
+			throw new IllegalArgumentException("invalid tile entity data", e);
+		}
+		tag.setInt("x", x);
+		tag.setInt("y", y);
+		tag.setInt("z", z);
+		te.a(tag);
+		te.update();
+		w.notify(x, y, z);
+		return true;
+	}
+
+	@Override
+	public void forceBlockLightLevel(World world, int x, int y, int z, int level) {
+		net.minecraft.server.${nms.version}.World w = ((CraftWorld) world).getHandle();
+		w.b(EnumSkyBlock.BLOCK, x, y, z, level);
+	}
+
+	@Override
+	public int getBlockLightEmission(int blockId) {
+		return Block.${nms.blockById}(blockId).m();
+	}
+
+	@Override
+	public int getBlockLightBlocking(int blockId) {
+		return Block.${nms.blockById}(blockId).k();
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void queueChunkForUpdate(Player player, int cx, int cz) {
+		((CraftPlayer) player).getHandle().chunkCoordIntPairQueue.add(new ChunkCoordIntPair(cx, cz));
+	}
+
+	@Override
+	public Vector[] getBlockHitbox(org.bukkit.block.Block block) {
+		net.minecraft.server.${nms.version}.World w = ((CraftWorld)block.getWorld()).getHandle();
+		net.minecraft.server.${nms.version}.Block b = w.getType(block.getX(), block.getY(), block.getZ());
+		b.updateShape(w, block.getX(), block.getY(), block.getZ());
+		return new Vector[] {
+				new Vector(block.getX() + b.x(), block.getY() + b.z(), block.getZ() + b.B()),
+				new Vector(block.getX() + b.y(), block.getY() + b.A(), block.getZ() + b.C())
+		};
+	}
+
+    @Override
+    public void recalculateBlockLighting(World world, int x, int y, int z) {
+        // Don't consider blocks that are completely surrounded by other non-transparent blocks
+        if (!canAffectLighting(world, x, y, z)) {
+            return;
+        }
+
+        int i = x & 0x0F;
+        int j = y & 0xFF;
+        int k = z & 0x0F;
+        net.minecraft.server.${nms.version}.World w = ((CraftWorld) world).getHandle();
+        Chunk nmsChunk = w.getChunkAt(x >> 4, z >> 4);
+
+        // Bring the column's height map up to date, as the chunk's private relight method
+        // would: a new light-blocking block at or above the top raises it, and clearing
+        // the top block lowers it to the next light-blocking block down.
+        int i1 = k << 4 | i;
+        int maxY = nmsChunk.heightMap[i1];
+        if (nmsChunk.getType(i, j, k).k() > 0) {
+            if (j >= maxY) {
+                nmsChunk.heightMap[i1] = j + 1;
+            }
+        } else if (j == maxY - 1) {
+            int h = j;
+            while (h > 0 && nmsChunk.getType(i, h - 1, k).k() == 0) {
+                h--;
+            }
+            nmsChunk.heightMap[i1] = h;
+        }
+
+        if (!w.worldProvider.g) {
+            w.c(EnumSkyBlock.SKY, x, y, z);
+        }
+        w.c(EnumSkyBlock.BLOCK, x, y, z);
+    }
+
+    private boolean canAffectLighting(World world, int x, int y, int z) {
+        // looked up directly in the NMS world, rather than through seven Bukkit Block objects
+        net.minecraft.server.${nms.version}.World w = ((CraftWorld) world).getHandle();
+        return !isOpaque(w, x + 1, y, z) ||
+                !isOpaque(w, x - 1, y, z) ||
+                !isOpaque(w, x, y + 1, z) ||
+                !isOpaque(w, x, y - 1, z) ||
+                !isOpaque(w, x, y, z + 1) ||
+                !isOpaque(w, x, y, z - 1);
+    }
+
+    private static boolean isOpaque(net.minecraft.server.${nms.version}.World w, int x, int y, int z) {
+        return OcclusionMask.isOpaque(CraftMagicNumbers.getId(w.getType(x, y, z)));
+    }
+
+    @Override
+    public void relightSections(World world, int[] cx, int[] sy, int[] cz) {
+        new ChunkLightingEngine(world).relight(cx, sy, cz);
+    }
+
+    private static class ChunkLightingEngine extends LightingEngine {
+        private final World world;
+        private final net.minecraft.server.${nms.version}.World w;
+        private Chunk chunk = null;
+        private int chunkX, chunkZ;
+
+        ChunkLightingEngine(World world) {
+            this.world = world;
+            this.w = ((CraftWorld) world).getHandle();
+        }
+
+        private Chunk chunkAt(int x, int z) {
+            if (chunk == null || x >> 4 != chunkX || z >> 4 != chunkZ) {
+                chunkX = x >> 4;
+                chunkZ = z >> 4;
+                chunk = w.getChunkAt(chunkX, chunkZ);
+            }
+            return chunk;
+        }
+
+        @Override
+        protected boolean isLoaded(int x, int z) {
+            return chunk != null && x >> 4 == chunkX && z >> 4 == chunkZ || world.isChunkLoaded(x >> 4, z >> 4);
+        }
+
+        @Override
+        protected boolean hasSky() {
+            return world.getEnvironment() == World.Environment.NORMAL;
+        }
+
+        @Override
+        protected int getOpacity(int x, int y, int z) {
+            return chunkAt(x, z).getType(x & 0x0f, y, z & 0x0f).k();
+        }
+
+        @Override
+        protected int getEmission(int x, int y, int z) {
+            return chunkAt(x, z).getType(x & 0x0f, y, z & 0x0f).m();
+        }
+
+        @Override
+        protected int getLight(boolean sky, int x, int y, int z) {
+            return chunkAt(x, z).getBrightness(sky ? EnumSkyBlock.SKY : EnumSkyBlock.BLOCK, x & 0x0f, y, z & 0x0f);
+        }
+
+        @Override
+        protected void setLight(boolean sky, int x, int y, int z, int level) {
+            chunkAt(x, z).a(sky ? EnumSkyBlock.SKY : EnumSkyBlock.BLOCK, x & 0x0f, y, z & 0x0f, level);
+        }
+
+        @Override
+        protected void prepareChunk(int cx, int cz) {
+            Chunk c = w.getChunkAt(cx, cz);
+            for (int k = 0; k < 16; k++) {
+                for (int i = 0; i < 16; i++) {
+                    int y = 256;
+                    while (y > 0 && c.getType(i, y - 1, k).k() == 0) {
+                        y--;
+                    }
+                    c.heightMap[k << 4 | i] = y;
+                }
+            }
+        }
+    }
+}